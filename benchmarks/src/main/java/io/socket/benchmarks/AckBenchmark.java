@@ -0,0 +1,96 @@
+package io.socket.benchmarks;
+
+import io.socket.client.AckFuture;
+import io.socket.client.IO;
+import io.socket.client.Socket;
+import io.socket.emitter.Emitter;
+import io.socket.loopback.LoopbackServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained request/response throughput of {@link Socket#emitWithAck(String, long, TimeUnit, Object...)}
+ * against the {@code ack} handler of the test server.
+ *
+ * <p>By default, the in-JVM {@link LoopbackServer} is used, so that the whole client stack (Socket,
+ * Manager, parser and engine) is measured without any network. The Node.js server can be used instead:</p>
+ *
+ * <pre>
+ * cd src/test/resources &amp;&amp; npm install &amp;&amp; node server.js
+ * java -jar target/benchmarks.jar AckBenchmark -p url=http://localhost:3000
+ * </pre>
+ *
+ * <p>{@code window} is the maximum number of pending requests.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AckBenchmark {
+
+    @Param({"loopback"})
+    public String url;
+
+    @Param({"1", "64", "1024"})
+    public int window;
+
+    private LoopbackServer server;
+    private Socket socket;
+    private Semaphore permits;
+    private AckFuture.Callback release;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        if ("loopback".equals(this.url)) {
+            this.server = new LoopbackServer();
+            this.socket = IO.socket(URI.create("http://localhost"), this.server.createOptions());
+        } else {
+            IO.Options options = new IO.Options();
+            options.forceNew = true;
+            options.transports = new String[] {"websocket"};
+            this.socket = IO.socket(URI.create(this.url), options);
+        }
+
+        final CountDownLatch connected = new CountDownLatch(1);
+        this.socket.once(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                connected.countDown();
+            }
+        });
+        this.socket.connect();
+        if (!connected.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("could not connect to " + this.url + ", is the test server running?");
+        }
+
+        this.permits = new Semaphore(this.window);
+        this.release = new AckFuture.Callback() {
+            @Override
+            public void call(Object[] args, Exception err) {
+                AckBenchmark.this.permits.release();
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        // wait for the pending requests
+        this.permits.tryAcquire(this.window, 10, TimeUnit.SECONDS);
+        this.socket.close();
+        if (this.server != null) {
+            this.server.close();
+        }
+    }
+
+    @Benchmark
+    public void requestResponse() throws InterruptedException {
+        this.permits.acquire();
+        this.socket.emitWithAck("ack", 10, TimeUnit.SECONDS, "hello", 42).whenComplete(this.release);
+    }
+}
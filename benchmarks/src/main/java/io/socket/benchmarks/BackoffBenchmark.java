@@ -0,0 +1,36 @@
+package io.socket.benchmarks;
+
+import io.socket.backo.Backoff;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Backoff#duration()} over a sequence of reconnection attempts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BackoffBenchmark {
+
+    @Param({"10", "100"})
+    public int attempts;
+
+    private Backoff backoff;
+
+    @Setup
+    public void setup() {
+        this.backoff = new Backoff().setMin(1000).setMax(5000).setJitter(0.5);
+    }
+
+    @Benchmark
+    public long duration() {
+        if (this.backoff.getAttempts() >= this.attempts) {
+            this.backoff.reset();
+        }
+        return this.backoff.duration();
+    }
+}
@@ -0,0 +1,98 @@
+package io.socket.benchmarks;
+
+import io.socket.hasbinary.HasBinary;
+import io.socket.parser.Binary;
+import io.socket.parser.IOParser;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The binary path of the parser over the payloads of {@link Corpus}: the extraction of the attachments by
+ * the single-pass {@link IOParser.Encoder}, and their reinsertion by the {@link IOParser.Decoder}. The
+ * detection and deconstruction of the previous encoder are kept for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryBenchmark {
+
+    @Param
+    public Corpus corpus;
+
+    private JSONArray data;
+    private IOParser.Encoder encoder;
+    private Parser.Encoder.Callback encoded;
+    private Parser.Decoder.Callback decoded;
+    private Object[] frames;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws JSONException {
+        this.data = this.corpus.data();
+        this.encoder = new IOParser.Encoder();
+        this.encoded = new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                blackhole.consume(data);
+            }
+        };
+        this.decoded = new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                blackhole.consume(packet);
+            }
+        };
+
+        final Object[][] frames = new Object[1][];
+        this.encoder.encode(this.packet(), new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                frames[0] = data;
+            }
+        });
+        this.frames = frames[0];
+    }
+
+    @Benchmark
+    public void encode() {
+        this.encoder.encode(this.packet(), this.encoded);
+    }
+
+    /**
+     * The placeholders are replaced in place, so each invocation decodes the frames with a new decoder.
+     */
+    @Benchmark
+    public void decode() {
+        IOParser.Decoder decoder = new IOParser.Decoder();
+        decoder.onDecoded(this.decoded);
+        decoder.add((String) this.frames[0]);
+        for (int i = 1; i < this.frames.length; i++) {
+            decoder.add((byte[]) this.frames[i]);
+        }
+    }
+
+    /**
+     * {@link HasBinary#hasBinary(Object)} then {@link Binary#deconstructPacket(Packet)}, as done by the
+     * encoder before the single-pass serialization, without the serialization itself.
+     */
+    @Benchmark
+    public Binary.DeconstructedPacket legacyDeconstructPacket() {
+        Packet<JSONArray> packet = this.packet();
+        return HasBinary.hasBinary(packet.data) ? Binary.deconstructPacket(packet) : null;
+    }
+
+    private Packet<JSONArray> packet() {
+        // the encoder changes the type of the packets with attachments
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, this.data);
+        packet.nsp = "/";
+        return packet;
+    }
+}
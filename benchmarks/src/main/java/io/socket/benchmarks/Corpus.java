@@ -0,0 +1,87 @@
+package io.socket.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Random;
+
+/**
+ * Realistic payloads, as the arguments of an event (including the event name).
+ */
+public enum Corpus {
+
+    /**
+     * A chat message of about 100 bytes.
+     */
+    SMALL_CHAT {
+        @Override
+        JSONArray data(Random random) throws JSONException {
+            JSONObject message = new JSONObject()
+                    .put("from", "alice")
+                    .put("room", "general")
+                    .put("text", "hey, are you there? " + random.nextInt(1000))
+                    .put("ts", 1657453623000L + random.nextInt(100000));
+            return new JSONArray().put("message").put(message);
+        }
+    },
+
+    /**
+     * A JSON document of about 64 KB.
+     */
+    JSON_64KB {
+        @Override
+        JSONArray data(Random random) throws JSONException {
+            JSONArray items = new JSONArray();
+            JSONObject document = new JSONObject().put("id", "doc-" + random.nextInt()).put("items", items);
+            int size = 0;
+            for (int i = 0; size < 64 * 1024; i++) {
+                JSONObject item = new JSONObject()
+                        .put("id", i)
+                        .put("name", "item-" + random.nextInt(100000))
+                        .put("price", random.nextInt(100000) / 100.0)
+                        .put("available", random.nextBoolean())
+                        .put("tags", new JSONArray().put("tag" + random.nextInt(10)).put("tag" + random.nextInt(10)));
+                items.put(item);
+                size += item.toString().length() + 1;
+            }
+            return new JSONArray().put("document").put(document);
+        }
+    },
+
+    /**
+     * A file upload, mixing JSON metadata and binary chunks.
+     */
+    MIXED_BINARY {
+        @Override
+        JSONArray data(Random random) throws JSONException {
+            JSONArray chunks = new JSONArray();
+            for (int i = 0; i < 4; i++) {
+                chunks.put(bytes(random, 4096));
+            }
+            JSONObject file = new JSONObject()
+                    .put("name", "picture-" + random.nextInt(1000) + ".png")
+                    .put("type", "image/png")
+                    .put("chunks", chunks)
+                    .put("meta", new JSONObject().put("width", 640).put("height", 480));
+            return new JSONArray().put("upload").put(file).put(bytes(random, 16384));
+        }
+    };
+
+    /**
+     * @param random the source of randomness, seeded so that the runs are comparable.
+     * @return a new copy of the payload.
+     * @throws JSONException never
+     */
+    abstract JSONArray data(Random random) throws JSONException;
+
+    JSONArray data() throws JSONException {
+        return this.data(new Random(42));
+    }
+
+    private static byte[] bytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,62 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.IOParser;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the index-based header parsing of {@link IOParser.Decoder} with the previous implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecoderBenchmark {
+
+    @Param({
+        "2[\"chat\",\"hello\"]",
+        "2/chat,[\"message\",{\"from\":\"bob\",\"text\":\"hi there\",\"ts\":1657453623000}]",
+        "3/orders,123456[{\"status\":\"ok\",\"price\":42.5}]",
+        "51-/files,7[\"upload\",{\"_placeholder\":true,\"num\":0}]"
+    })
+    public String frame;
+
+    private IOParser.Decoder decoder;
+    private Parser.Decoder.Callback callback;
+    private boolean binary;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        this.binary = this.frame.charAt(0) - '0' == Parser.BINARY_EVENT;
+        this.callback = new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                blackhole.consume(packet);
+            }
+        };
+        this.decoder = new IOParser.Decoder();
+        this.decoder.onDecoded(this.callback);
+    }
+
+    @Benchmark
+    public Object current() {
+        this.decoder.add(this.frame);
+        if (this.binary) {
+            // drop the pending reconstruction, the attachments are not part of this benchmark
+            this.decoder.destroy();
+            this.decoder.onDecoded(this.callback);
+        }
+        return this.decoder;
+    }
+
+    @Benchmark
+    public Packet legacy() {
+        return LegacyDecoder.decodeString(this.frame);
+    }
+}
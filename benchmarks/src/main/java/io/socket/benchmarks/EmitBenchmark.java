@@ -0,0 +1,91 @@
+package io.socket.benchmarks;
+
+import io.socket.client.Manager;
+import io.socket.client.ManagerHooks;
+import io.socket.client.Socket;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link Socket#emit(String, Object...)}, from the event loop (like a listener
+ * replying to an event) and from another thread. The packets are encoded, but not written to the engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EmitBenchmark {
+
+    private static final int EMITS = 1000;
+
+    private Manager manager;
+    private Socket socket;
+    private JSONObject payload;
+    private Runnable emitFromLoop;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws InterruptedException, JSONException {
+        Manager.Options opts = new Manager.Options();
+        opts.encoder = new Parser.Encoder() {
+            @Override
+            public void encode(Packet obj, Callback callback) {
+                blackhole.consume(obj);
+                callback.call(new Object[0]);
+            }
+        };
+        this.manager = Sockets.manager(opts);
+        this.socket = Sockets.connect(this.manager, "/");
+        this.payload = new JSONObject("{\"symbol\":\"ACME\",\"price\":42.5,\"quantity\":100}");
+        this.emitFromLoop = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < EMITS; i++) {
+                    EmitBenchmark.this.socket.emit("trade", EmitBenchmark.this.payload);
+                }
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.socket.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMITS)
+    public void emitFromLoop() throws InterruptedException {
+        this.await(this.emitFromLoop);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMITS)
+    public void emitFromOtherThread() throws InterruptedException {
+        for (int i = 0; i < EMITS; i++) {
+            this.socket.emit("trade", this.payload);
+        }
+        this.await(null);
+    }
+
+    private void await(final Runnable task) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        ManagerHooks.exec(this.manager, new Runnable() {
+            @Override
+            public void run() {
+                if (task != null) {
+                    task.run();
+                }
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+}
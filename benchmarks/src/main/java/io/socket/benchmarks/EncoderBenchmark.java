@@ -0,0 +1,88 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.IOParser;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass {@link IOParser.Encoder} with the previous implementation, over payloads
+ * of varying depth and binary density.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncoderBenchmark {
+
+    private static final int FAN_OUT = 3;
+
+    @Param({"1", "3", "6"})
+    public int depth;
+
+    /**
+     * Share of the leaves which are byte arrays.
+     */
+    @Param({"0", "0.1", "0.5"})
+    public double binaryDensity;
+
+    private JSONArray data;
+    private IOParser.Encoder encoder;
+    private Parser.Encoder.Callback callback;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws JSONException {
+        Random random = new Random(42);
+        this.data = new JSONArray().put("event").put(node(this.depth, this.binaryDensity, random));
+        this.encoder = new IOParser.Encoder();
+        this.callback = new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                blackhole.consume(data);
+            }
+        };
+    }
+
+    @Benchmark
+    public void current() {
+        this.encoder.encode(this.packet(), this.callback);
+    }
+
+    @Benchmark
+    public Object[] legacy() {
+        return LegacyEncoder.encode(this.packet());
+    }
+
+    private Packet<JSONArray> packet() {
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, this.data);
+        packet.nsp = "/";
+        packet.id = 12;
+        return packet;
+    }
+
+    private static Object node(int depth, double binaryDensity, Random random) throws JSONException {
+        if (depth == 0) {
+            if (random.nextDouble() < binaryDensity) {
+                byte[] bytes = new byte[64];
+                random.nextBytes(bytes);
+                return bytes;
+            }
+            return random.nextBoolean() ? "value-" + random.nextInt(1000) : random.nextDouble();
+        }
+        JSONObject object = new JSONObject();
+        for (int i = 0; i < FAN_OUT; i++) {
+            object.put("key" + i, node(depth - 1, binaryDensity, random));
+        }
+        object.put("list", new JSONArray().put(node(depth - 1, binaryDensity, random)).put(random.nextInt()));
+        return object;
+    }
+}
@@ -0,0 +1,108 @@
+package io.socket.benchmarks;
+
+import io.socket.client.Ack;
+import io.socket.client.Manager;
+import io.socket.client.Socket;
+import io.socket.client.TypedListener;
+import io.socket.emitter.Emitter;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import io.socket.parser.jackson.JacksonCodec;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the dispatch of an incoming event to an untyped {@link Emitter.Listener}, to a
+ * {@link TypedListener} of {@link JSONObject} and to a {@link TypedListener} of POJO bound by the
+ * {@link JacksonCodec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventDispatchBenchmark {
+
+    private Manager manager;
+    private Socket socket;
+    private Manager jacksonManager;
+    private Socket jacksonSocket;
+    private Packet<Object[]> untyped;
+    private Packet<Object[]> typed;
+    private Packet<Object[]> pojo;
+
+    public static class Trade {
+        public String symbol;
+        public double price;
+        public int quantity;
+    }
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws InterruptedException, JSONException {
+        this.manager = Sockets.manager();
+        this.socket = Sockets.connect(this.manager, "/");
+
+        // the arguments as decoded by the codec of each manager
+        String trade = "{\"symbol\":\"ACME\",\"price\":42.5,\"quantity\":100}";
+        this.untyped = packet(new Object[] {"untyped", new JSONObject(trade)});
+        this.typed = packet(new Object[] {"typed", new JSONObject(trade)});
+        String pojo = "[\"pojo\"," + trade + "]";
+        this.pojo = packet(new JacksonCodec().decodeArguments(pojo, 0, pojo.length(), null, null));
+
+        this.socket.on("untyped", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                blackhole.consume(args[0]);
+            }
+        });
+        this.socket.onTyped("typed", JSONObject.class, new TypedListener<JSONObject>() {
+            @Override
+            public void call(JSONObject arg, Ack ack) {
+                blackhole.consume(arg);
+            }
+        });
+
+        Manager.Options opts = new Manager.Options();
+        opts.codec = new JacksonCodec();
+        this.jacksonManager = Sockets.manager(opts);
+        this.jacksonSocket = Sockets.connect(this.jacksonManager, "/");
+        this.jacksonSocket.onTyped("pojo", Trade.class, new TypedListener<Trade>() {
+            @Override
+            public void call(Trade arg, Ack ack) {
+                blackhole.consume(arg);
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.socket.close();
+        this.jacksonSocket.close();
+    }
+
+    @Benchmark
+    public void untypedListener() {
+        Sockets.receive(this.manager, this.untyped);
+    }
+
+    @Benchmark
+    public void typedListener() {
+        Sockets.receive(this.manager, this.typed);
+    }
+
+    @Benchmark
+    public void pojoListener() {
+        Sockets.receive(this.jacksonManager, this.pojo);
+    }
+
+    private static Packet<Object[]> packet(Object[] data) {
+        Packet<Object[]> packet = new Packet<>(Parser.EVENT, data);
+        packet.nsp = "/";
+        return packet;
+    }
+}
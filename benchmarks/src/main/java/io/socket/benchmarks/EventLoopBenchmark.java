@@ -0,0 +1,139 @@
+package io.socket.benchmarks;
+
+import io.socket.client.EventLoopGroup;
+import io.socket.client.Manager;
+import io.socket.client.ManagerHooks;
+import io.socket.client.Socket;
+import io.socket.emitter.Emitter;
+import io.socket.parser.DecodingException;
+import io.socket.parser.IOParser;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the number of incoming events decoded and dispatched per second, when the managers share the
+ * EventThread ({@code loops = 0}) or are spread over an {@link EventLoopGroup}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventLoopBenchmark {
+
+    private static final int MANAGERS = 16;
+    private static final int EVENTS = 1024;
+
+    @Param({"0", "1", "2", "4"})
+    public int loops;
+
+    private EventLoopGroup group;
+    private Manager[] managers;
+    private Socket[] sockets;
+    private Receiver[] receivers;
+    private String encoded;
+    private final AtomicReference<CountDownLatch> latch = new AtomicReference<>();
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws InterruptedException, JSONException {
+        this.group = this.loops > 0 ? new EventLoopGroup(this.loops) : null;
+        this.managers = new Manager[MANAGERS];
+        this.sockets = new Socket[MANAGERS];
+        this.receivers = new Receiver[MANAGERS];
+        for (int i = 0; i < MANAGERS; i++) {
+            this.managers[i] = Sockets.manager(this.group);
+            this.sockets[i] = Sockets.connect(this.managers[i], "/");
+            this.sockets[i].on("quote", new Emitter.Listener() {
+                @Override
+                public void call(Object... args) {
+                    blackhole.consume(args[0]);
+                    EventLoopBenchmark.this.latch.get().countDown();
+                }
+            });
+            this.receivers[i] = new Receiver(this.managers[i]);
+        }
+
+        JSONObject quote = new JSONObject();
+        for (int i = 0; i < 16; i++) {
+            quote.put("field" + i, "value" + i);
+        }
+        final String[] encoded = new String[1];
+        new IOParser.Encoder().encode(packet(new JSONArray().put("quote").put(quote)), new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                encoded[0] = (String) data[0];
+            }
+        });
+        this.encoded = encoded[0];
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (Socket socket : this.sockets) {
+            socket.close();
+        }
+        if (this.group != null) {
+            this.group.shutdown();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void receive() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(EVENTS);
+        this.latch.set(latch);
+        for (int i = 0; i < EVENTS; i++) {
+            Receiver receiver = this.receivers[i % MANAGERS];
+            ManagerHooks.exec(receiver.manager, receiver.task(this.encoded));
+        }
+        latch.await();
+    }
+
+    private static Packet<JSONArray> packet(JSONArray data) {
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, data);
+        packet.nsp = "/";
+        return packet;
+    }
+
+    /**
+     * Decodes the data on the loop of the manager, like the engine data would be.
+     */
+    private static final class Receiver implements Parser.Decoder.Callback {
+
+        private final Manager manager;
+        private final IOParser.Decoder decoder = new IOParser.Decoder();
+
+        Receiver(Manager manager) {
+            this.manager = manager;
+            this.decoder.onDecoded(this);
+        }
+
+        Runnable task(final String data) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Receiver.this.decoder.add(data);
+                    } catch (DecodingException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void call(Packet packet) {
+            ManagerHooks.receive(this.manager, packet);
+        }
+    }
+}
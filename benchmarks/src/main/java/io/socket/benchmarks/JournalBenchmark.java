@@ -0,0 +1,109 @@
+package io.socket.benchmarks;
+
+import io.socket.client.Ack;
+import io.socket.client.Manager;
+import io.socket.client.ManagerHooks;
+import io.socket.client.OutboundJournal;
+import io.socket.client.Socket;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of an acknowledged {@link Socket#emit(String, Object[], Ack)} and of its
+ * acknowledgement, with and without an {@link OutboundJournal} in the temporary directory. The packets
+ * are encoded, but not written to the engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+
+    private static final int EMITS = 1000;
+
+    @Param({"none", "NEVER", "PERIODIC"})
+    public String fsyncPolicy;
+
+    private File directory;
+    private OutboundJournal journal;
+    private Manager manager;
+    private Socket socket;
+    private Object[] args;
+    private Ack ack;
+    private int ids;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws InterruptedException, JSONException, IOException {
+        Manager.Options opts = new Manager.Options();
+        opts.encoder = new Parser.Encoder() {
+            @Override
+            public void encode(Packet obj, Callback callback) {
+                blackhole.consume(obj);
+                callback.call(new Object[0]);
+            }
+        };
+        if (!"none".equals(this.fsyncPolicy)) {
+            this.directory = Files.createTempDirectory("journal").toFile();
+            this.journal = new OutboundJournal(this.directory, OutboundJournal.DEFAULT_SEGMENT_SIZE,
+                    OutboundJournal.FsyncPolicy.valueOf(this.fsyncPolicy), 1000);
+            opts.journal = this.journal;
+        }
+        this.manager = Sockets.manager(opts);
+        this.socket = Sockets.connect(this.manager, "/", opts);
+        this.args = new Object[] {new JSONObject("{\"symbol\":\"ACME\",\"price\":42.5,\"quantity\":100}")};
+        this.ack = new Ack() {
+            @Override
+            public void call(Object... args) {
+                blackhole.consume(args);
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.socket.close();
+        if (this.journal != null) {
+            this.journal.close();
+            for (File file : this.directory.listFiles()) {
+                file.delete();
+            }
+            this.directory.delete();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMITS)
+    public void emitAndAck() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        ManagerHooks.exec(this.manager, new Runnable() {
+            @Override
+            public void run() {
+                JournalBenchmark self = JournalBenchmark.this;
+                for (int i = 0; i < EMITS; i++) {
+                    self.socket.emit("trade", self.args, self.ack);
+                }
+                for (int i = 0; i < EMITS; i++) {
+                    Packet<JSONArray> packet = new Packet<>(Parser.ACK, new JSONArray());
+                    packet.nsp = "/";
+                    packet.id = self.ids++;
+                    Sockets.receive(self.manager, packet);
+                }
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+}
@@ -0,0 +1,83 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.DecodingException;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+/**
+ * Header parsing of {@code IOParser.Decoder} as of 2.1.0, kept as a baseline for {@link DecoderBenchmark}.
+ */
+final class LegacyDecoder {
+
+    private LegacyDecoder() {}
+
+    static Packet decodeString(String str) {
+        int i = 0;
+        int length = str.length();
+
+        Packet<Object> p = new Packet<>(Character.getNumericValue(str.charAt(0)));
+
+        if (p.type < 0 || p.type > Parser.types.length - 1) {
+            throw new DecodingException("unknown packet type " + p.type);
+        }
+
+        if (Parser.BINARY_EVENT == p.type || Parser.BINARY_ACK == p.type) {
+            if (!str.contains("-") || length <= i + 1) {
+                throw new DecodingException("illegal attachments");
+            }
+            StringBuilder attachments = new StringBuilder();
+            while (str.charAt(++i) != '-') {
+                attachments.append(str.charAt(i));
+            }
+            p.attachments = Integer.parseInt(attachments.toString());
+        }
+
+        if (length > i + 1 && '/' == str.charAt(i + 1)) {
+            StringBuilder nsp = new StringBuilder();
+            while (true) {
+                ++i;
+                char c = str.charAt(i);
+                if (',' == c) break;
+                nsp.append(c);
+                if (i + 1 == length) break;
+            }
+            p.nsp = nsp.toString();
+        } else {
+            p.nsp = "/";
+        }
+
+        if (length > i + 1) {
+            Character next = str.charAt(i + 1);
+            if (Character.getNumericValue(next) > -1) {
+                StringBuilder id = new StringBuilder();
+                while (true) {
+                    ++i;
+                    char c = str.charAt(i);
+                    if (Character.getNumericValue(c) < 0) {
+                        --i;
+                        break;
+                    }
+                    id.append(c);
+                    if (i + 1 == length) break;
+                }
+                try {
+                    p.id = Integer.parseInt(id.toString());
+                } catch (NumberFormatException e) {
+                    throw new DecodingException("invalid payload");
+                }
+            }
+        }
+
+        if (length > i + 1) {
+            try {
+                str.charAt(++i);
+                p.data = new JSONTokener(str.substring(i)).nextValue();
+            } catch (JSONException e) {
+                throw new DecodingException("invalid payload");
+            }
+        }
+        return p;
+    }
+}
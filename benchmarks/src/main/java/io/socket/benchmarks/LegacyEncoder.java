@@ -0,0 +1,58 @@
+package io.socket.benchmarks;
+
+import io.socket.hasbinary.HasBinary;
+import io.socket.parser.Binary;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@code IOParser.Encoder} as of 2.1.0 (binary detection, then deconstruction, then serialization),
+ * kept as a baseline for {@link EncoderBenchmark}.
+ */
+final class LegacyEncoder {
+
+    private LegacyEncoder() {}
+
+    static Object[] encode(Packet obj) {
+        if ((obj.type == Parser.EVENT || obj.type == Parser.ACK) && HasBinary.hasBinary(obj.data)) {
+            obj.type = obj.type == Parser.EVENT ? Parser.BINARY_EVENT : Parser.BINARY_ACK;
+        }
+
+        if (Parser.BINARY_EVENT == obj.type || Parser.BINARY_ACK == obj.type) {
+            Binary.DeconstructedPacket deconstruction = Binary.deconstructPacket(obj);
+            String pack = encodeAsString(deconstruction.packet);
+            List<Object> buffers = new ArrayList<Object>(Arrays.asList(deconstruction.buffers));
+            buffers.add(0, pack);
+            return buffers.toArray();
+        } else {
+            return new String[] {encodeAsString(obj)};
+        }
+    }
+
+    private static String encodeAsString(Packet obj) {
+        StringBuilder str = new StringBuilder("" + obj.type);
+
+        if (Parser.BINARY_EVENT == obj.type || Parser.BINARY_ACK == obj.type) {
+            str.append(obj.attachments);
+            str.append("-");
+        }
+
+        if (obj.nsp != null && obj.nsp.length() != 0 && !"/".equals(obj.nsp)) {
+            str.append(obj.nsp);
+            str.append(",");
+        }
+
+        if (obj.id >= 0) {
+            str.append(obj.id);
+        }
+
+        if (obj.data != null) {
+            str.append(obj.data);
+        }
+        return str.toString();
+    }
+}
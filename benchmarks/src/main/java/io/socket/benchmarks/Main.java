@@ -0,0 +1,30 @@
+package io.socket.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks, writing the results as JSON to {@code target/jmh-result.json} unless another
+ * result format or file is given, so that they can be compared between commits (for example with
+ * <a href="https://jmh.morethan.io">JMH Visualizer</a>).
+ */
+public final class Main {
+
+    private Main() {}
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        if (!arguments.contains("-rff")) {
+            new File("target").mkdirs();
+            arguments.add("-rff");
+            arguments.add("target/jmh-result.json");
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,65 @@
+package io.socket.benchmarks;
+
+import io.socket.client.Manager;
+import io.socket.client.Socket;
+import io.socket.emitter.Emitter;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the dispatch of an incoming event when several namespaces are multiplexed over the same
+ * manager.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NamespaceRoutingBenchmark {
+
+    @Param({"1", "32"})
+    public int namespaces;
+
+    private Manager manager;
+    private List<Socket> sockets;
+    private Packet<Object[]> packet;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws InterruptedException, JSONException {
+        this.manager = Sockets.manager();
+        this.sockets = new ArrayList<>(this.namespaces);
+        for (int i = 0; i < this.namespaces; i++) {
+            Socket socket = Sockets.connect(this.manager, "/nsp" + i);
+            socket.on("tick", new Emitter.Listener() {
+                @Override
+                public void call(Object... args) {
+                    blackhole.consume(args[0]);
+                }
+            });
+            this.sockets.add(socket);
+        }
+
+        this.packet = new Packet<>(Parser.EVENT, new Object[] {"tick", 42});
+        this.packet.nsp = "/nsp" + (this.namespaces - 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (Socket socket : this.sockets) {
+            socket.close();
+        }
+    }
+
+    @Benchmark
+    public void route() {
+        Sockets.receive(this.manager, this.packet);
+    }
+}
@@ -0,0 +1,80 @@
+package io.socket.benchmarks;
+
+import io.socket.parser.IOParser;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of the realistic payloads of {@link Corpus}, including the binary attachments.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    @Param
+    public Corpus corpus;
+
+    private JSONArray data;
+    private Object[] frames;
+    private IOParser.Encoder encoder;
+    private IOParser.Decoder decoder;
+    private Parser.Encoder.Callback encoderCallback;
+
+    @Setup
+    public void setup(final Blackhole blackhole) throws JSONException {
+        this.data = this.corpus.data();
+        this.encoder = new IOParser.Encoder();
+        this.encoderCallback = new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                blackhole.consume(data);
+            }
+        };
+        this.encoder.encode(this.packet(), new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                ParserBenchmark.this.frames = data;
+            }
+        });
+
+        this.decoder = new IOParser.Decoder();
+        this.decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                blackhole.consume(packet);
+            }
+        });
+    }
+
+    @Benchmark
+    public void encode() {
+        this.encoder.encode(this.packet(), this.encoderCallback);
+    }
+
+    @Benchmark
+    public void decode() {
+        for (Object frame : this.frames) {
+            if (frame instanceof String) {
+                this.decoder.add((String) frame);
+            } else {
+                this.decoder.add((byte[]) frame);
+            }
+        }
+    }
+
+    private Packet<JSONArray> packet() {
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, this.data);
+        packet.nsp = "/";
+        return packet;
+    }
+}
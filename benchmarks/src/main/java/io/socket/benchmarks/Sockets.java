@@ -0,0 +1,68 @@
+package io.socket.benchmarks;
+
+import io.socket.client.EventLoopGroup;
+import io.socket.client.Manager;
+import io.socket.client.ManagerHooks;
+import io.socket.client.Socket;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates sockets that are connected without any server, by feeding the packets directly to the Manager.
+ */
+final class Sockets {
+
+    private Sockets() {}
+
+    static Manager manager() {
+        return manager(new Manager.Options());
+    }
+
+    static Manager manager(EventLoopGroup group) {
+        Manager.Options opts = new Manager.Options();
+        opts.eventLoopGroup = group;
+        return manager(opts);
+    }
+
+    static Manager manager(Manager.Options opts) {
+        opts.reconnection = false;
+        opts.transports = new String[] {"websocket"};
+        // nothing listens on this port, the engine fails right away and stays closed
+        return new Manager(URI.create("http://localhost:1"), opts);
+    }
+
+    static Socket connect(Manager manager, String nsp) throws InterruptedException, JSONException {
+        return connect(manager, nsp, null);
+    }
+
+    static Socket connect(final Manager manager, String nsp, Manager.Options opts) throws InterruptedException, JSONException {
+        final Socket socket = manager.socket(nsp, opts);
+        final Packet<JSONObject> connect = new Packet<>(Parser.CONNECT, new JSONObject().put("sid", "benchmark"));
+        connect.nsp = nsp;
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        socket.open();
+        ManagerHooks.exec(manager, new Runnable() {
+            @Override
+            public void run() {
+                ManagerHooks.receive(manager, connect);
+                latch.countDown();
+            }
+        });
+        latch.await(5, TimeUnit.SECONDS);
+        if (!socket.connected()) {
+            throw new IllegalStateException("socket is not connected");
+        }
+        return socket;
+    }
+
+    static void receive(Manager manager, Packet<?> packet) {
+        ManagerHooks.receive(manager, packet);
+    }
+}
@@ -0,0 +1,25 @@
+package io.socket.client;
+
+import io.socket.parser.Packet;
+
+/**
+ * Gives the benchmarks access to the package-private entry points of the {@link Manager}.
+ */
+public final class ManagerHooks {
+
+    private ManagerHooks() {}
+
+    /**
+     * Handles the packet as if it had just been decoded. Must be called on the event loop of the manager.
+     */
+    public static void receive(Manager manager, Packet<?> packet) {
+        manager.ondecoded(packet);
+    }
+
+    /**
+     * Executes the task on the event loop of the manager.
+     */
+    public static void exec(Manager manager, Runnable task) {
+        manager.loop.exec(task);
+    }
+}
@@ -0,0 +1,474 @@
+package io.socket.parser.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.socket.logging.Log;
+import io.socket.parser.DecodingException;
+import io.socket.parser.JSONCodec;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link JSONCodec} based on Gson.
+ *
+ * <p>The objects and arrays of the payloads are parsed into {@link Map} and {@link List}, like the values
+ * Gson reads into an {@code Object}, which the listeners receive, and the binary attachments found in them
+ * into {@code byte[]}. The emitted values may be POJOs, which are serialized by the {@link Gson} instance,
+ * and the typed listeners receive POJOs bound by the same instance:</p>
+ *
+ * <pre>
+ * IO.Options options = IO.Options.builder()
+ *     .setCodec(new GsonCodec())
+ *     .build();
+ *
+ * Socket socket = IO.socket(URI.create("https://example.com"), options);
+ *
+ * socket.onTyped("trade", Trade.class, new TypedListener&lt;Trade&gt;() {
+ *     &#64;Override
+ *     public void call(Trade trade, Ack ack) {
+ *         // ...
+ *     }
+ * });
+ *
+ * socket.emit("order", new Order("BTC", 2));
+ * </pre>
+ *
+ * <p>The arguments of the typed listeners are bound by the {@link TypeAdapter} of their type straight from
+ * the {@link JsonReader}. The {@code byte[]} found in the emitted values, including the fields of the POJOs,
+ * are sent as binary attachments, and bound back from them.</p>
+ */
+public final class GsonCodec implements JSONCodec {
+
+    private static final Log logger = Log.getLog(GsonCodec.class);
+
+    /**
+     * The attachments of the packet being encoded or bound, read by the {@link AttachmentAdapter}.
+     */
+    private static final ThreadLocal<List<byte[]>> attachments = new ThreadLocal<>();
+
+    private final Gson gson;
+
+    public GsonCodec() {
+        this(new Gson());
+    }
+
+    /**
+     * @param gson the instance of the application, whose configuration is kept.
+     */
+    public GsonCodec(Gson gson) {
+        this.gson = gson.newBuilder()
+                .registerTypeAdapterFactory(new TreeAdapterFactory())
+                .registerTypeAdapter(byte[].class, new AttachmentAdapter())
+                .create();
+    }
+
+    @Override
+    public void encode(Object data, StringBuilder out, List<byte[]> attachments) {
+        int start = out.length();
+        int count = attachments != null ? attachments.size() : 0;
+        List<byte[]> previous = GsonCodec.attachments.get();
+        GsonCodec.attachments.set(attachments);
+        try {
+            JsonWriter writer = this.gson.newJsonWriter(new StringBuilderWriter(out));
+            if (data == null) {
+                writer.nullValue();
+            } else {
+                this.gson.toJson(data, data.getClass(), writer);
+            }
+            writer.flush();
+        } catch (IOException | JsonParseException | IllegalArgumentException e) {
+            // NaN and infinite values are refused, unless serializeSpecialFloatingPointValues() is set
+            out.setLength(start);
+            if (attachments != null) {
+                attachments.subList(count, attachments.size()).clear();
+            }
+            throw new IllegalArgumentException("unable to encode the payload", e);
+        } finally {
+            GsonCodec.attachments.set(previous);
+        }
+    }
+
+    @Override
+    public Object decode(String str, int start, int end) {
+        try {
+            JsonReader reader = new JsonReader(new StringRangeReader(str, start, end));
+            return readValue(reader, null);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            logger.warning("An error occured while parsing the payload", e);
+            throw new DecodingException("invalid payload");
+        }
+    }
+
+    @Override
+    public Object[] decodeArguments(String str, int start, int end, byte[][] attachments, Class<?>[] types) {
+        if (types != null) {
+            List<byte[]> previous = GsonCodec.attachments.get();
+            GsonCodec.attachments.set(attachments != null ? Arrays.asList(attachments) : null);
+            try {
+                return this.readArguments(str, start, end, attachments, types);
+            } catch (IOException | RuntimeException e) {
+                // parsed again into the object model, so that the listener reports the failure
+                logger.fine("unable to bind the arguments", e);
+            } finally {
+                GsonCodec.attachments.set(previous);
+            }
+        }
+        try {
+            return this.readArguments(str, start, end, attachments, null);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            logger.warning("An error occured while parsing the payload", e);
+            throw new DecodingException("invalid payload");
+        }
+    }
+
+    private Object[] readArguments(String str, int start, int end, byte[][] attachments, Class<?>[] types)
+            throws IOException {
+        JsonReader reader = new JsonReader(new StringRangeReader(str, start, end));
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            throw new DecodingException("invalid payload");
+        }
+        List<Object> args = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int index = args.size();
+            if (types != null && index < types.length && types[index] != null) {
+                args.add(this.gson.getAdapter(types[index]).read(reader));
+            } else {
+                args.add(readValue(reader, attachments));
+            }
+        }
+        reader.endArray();
+        return args.toArray();
+    }
+
+    /**
+     * Reads a value into {@link Map}, {@link List} and the Java types of the scalars, replacing the
+     * placeholders of the binary attachments with the {@code byte[]}.
+     */
+    private static Object readValue(JsonReader reader, byte[][] attachments) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT: {
+                Map<String, Object> object = new LinkedHashMap<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    object.put(name, readValue(reader, attachments));
+                }
+                reader.endObject();
+                if (attachments != null && Boolean.TRUE.equals(object.get("_placeholder"))) {
+                    Object num = object.get("num");
+                    int index = num instanceof Number ? ((Number) num).intValue() : -1;
+                    if (index < 0 || index >= attachments.length) {
+                        throw new DecodingException("illegal attachments");
+                    }
+                    return attachments[index];
+                }
+                return object;
+            }
+            case BEGIN_ARRAY: {
+                List<Object> array = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.add(readValue(reader, attachments));
+                }
+                reader.endArray();
+                return array;
+            }
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                return toNumber(reader.nextString());
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                throw new DecodingException("invalid payload");
+        }
+    }
+
+    /**
+     * Like {@code org.json}, the integers are read into {@link Integer} or {@link Long} depending on their
+     * magnitude, and the other numbers into {@link Double}.
+     */
+    private static Number toNumber(String str) {
+        if (str.indexOf('.') < 0 && str.indexOf('e') < 0 && str.indexOf('E') < 0) {
+            try {
+                long value = Long.parseLong(str);
+                if (value == (int) value) {
+                    return (int) value;
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                // larger than a long
+            }
+        }
+        return Double.parseDouble(str);
+    }
+
+    @Override
+    public boolean canConvert(Class<?> type) {
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            this.gson.getAdapter(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Binds the value with the {@link Gson} instance, through its tree. The {@code byte[]} of the value are
+     * kept aside as attachments, and bound back in place of their placeholders.
+     */
+    @Override
+    public <T> T convert(Object value, Class<T> type) {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            if (type.isPrimitive()) {
+                throw new IllegalArgumentException("cannot convert null to " + type.getName());
+            }
+            return null;
+        }
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        }
+        List<byte[]> previous = attachments.get();
+        attachments.set(new ArrayList<byte[]>());
+        try {
+            return this.gson.fromJson(this.gson.toJsonTree(value), type);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("cannot convert the value to " + type.getName(), e);
+        } finally {
+            attachments.set(previous);
+        }
+    }
+
+    /**
+     * Writes the {@code org.json} values, whose content may include POJOs and binary attachments.
+     */
+    private static final class TreeAdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            Class<? super T> raw = type.getRawType();
+            if (JSONArray.class.isAssignableFrom(raw) || JSONObject.class.isAssignableFrom(raw)
+                    || JSONString.class.isAssignableFrom(raw) || raw == JSONObject.NULL.getClass()) {
+                return (TypeAdapter<T>) new TreeAdapter(gson);
+            }
+            return null;
+        }
+    }
+
+    private static final class TreeAdapter extends TypeAdapter<Object> {
+
+        private final Gson gson;
+
+        TreeAdapter(Gson gson) {
+            this.gson = gson;
+        }
+
+        @Override
+        public void write(JsonWriter out, Object value) throws IOException {
+            if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                int length = array.length();
+                out.beginArray();
+                for (int i = 0; i < length; i++) {
+                    this.writeValue(out, array.opt(i));
+                }
+                out.endArray();
+            } else if (value instanceof JSONObject) {
+                JSONObject object = (JSONObject) value;
+                Iterator<?> keys = object.keys();
+                out.beginObject();
+                while (keys.hasNext()) {
+                    String key = keys.next().toString();
+                    out.name(key);
+                    this.writeValue(out, object.opt(key));
+                }
+                out.endObject();
+            } else if (value instanceof JSONString) {
+                out.jsonValue(((JSONString) value).toJSONString());
+            } else {
+                // JSONObject.NULL
+                out.nullValue();
+            }
+        }
+
+        private void writeValue(JsonWriter out, Object value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())) {
+                // like JSON.stringify()
+                out.nullValue();
+            } else if (value instanceof Float && (((Float) value).isNaN() || ((Float) value).isInfinite())) {
+                out.nullValue();
+            } else {
+                this.writeObject(out, value);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> void writeObject(JsonWriter out, T value) throws IOException {
+            TypeAdapter<T> adapter = (TypeAdapter<T>) this.gson.getAdapter(value.getClass());
+            adapter.write(out, value);
+        }
+
+        @Override
+        public Object read(JsonReader in) {
+            throw new UnsupportedOperationException("the org.json values are not decoded by Gson");
+        }
+    }
+
+    /**
+     * Replaces the {@code byte[]} with the placeholders of the binary attachments, when the packet
+     * supports them, and reads them back.
+     */
+    private static final class AttachmentAdapter extends TypeAdapter<byte[]> {
+
+        @Override
+        public void write(JsonWriter out, byte[] value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            List<byte[]> attachments = GsonCodec.attachments.get();
+            if (attachments == null) {
+                out.beginArray();
+                for (byte b : value) {
+                    out.value(b);
+                }
+                out.endArray();
+                return;
+            }
+            out.beginObject();
+            out.name("_placeholder").value(true);
+            out.name("num").value(attachments.size());
+            out.endObject();
+            attachments.add(value);
+        }
+
+        @Override
+        public byte[] read(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case NULL:
+                    in.nextNull();
+                    return null;
+                case BEGIN_ARRAY: {
+                    byte[] bytes = new byte[16];
+                    int length = 0;
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        if (length == bytes.length) {
+                            bytes = Arrays.copyOf(bytes, length * 2);
+                        }
+                        bytes[length++] = (byte) in.nextInt();
+                    }
+                    in.endArray();
+                    return Arrays.copyOf(bytes, length);
+                }
+                default: {
+                    List<byte[]> attachments = GsonCodec.attachments.get();
+                    int num = -1;
+                    boolean placeholder = false;
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String name = in.nextName();
+                        if ("_placeholder".equals(name)) {
+                            placeholder = in.nextBoolean();
+                        } else if ("num".equals(name)) {
+                            num = in.nextInt();
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    if (!placeholder || attachments == null || num < 0 || num >= attachments.size()) {
+                        throw new JsonParseException("illegal attachments");
+                    }
+                    return attachments.get(num);
+                }
+            }
+        }
+    }
+
+    private static final class StringBuilderWriter extends Writer {
+
+        private final StringBuilder out;
+
+        StringBuilderWriter(StringBuilder out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) {
+            this.out.append((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            this.out.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            this.out.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    /**
+     * Reads a range of a string without copying it.
+     */
+    private static final class StringRangeReader extends Reader {
+
+        private final String str;
+        private final int end;
+        private int pos;
+
+        StringRangeReader(String str, int start, int end) {
+            this.str = str;
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) return 0;
+            if (this.pos >= this.end) return -1;
+            int n = Math.min(len, this.end - this.pos);
+            this.str.getChars(this.pos, this.pos + n, cbuf, off);
+            this.pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,500 @@
+package io.socket.parser.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.socket.logging.Log;
+import io.socket.parser.DecodingException;
+import io.socket.parser.JSONCodec;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link JSONCodec} based on Jackson.
+ *
+ * <p>The objects and arrays of the payloads are parsed into {@link JsonNode} trees, which the listeners
+ * receive, and the binary attachments found in them into {@link BinaryNode}. The emitted values may be
+ * POJOs or {@link JsonNode}, which are serialized by the {@link ObjectMapper}, and the typed listeners
+ * receive POJOs bound by the same mapper:</p>
+ *
+ * <pre>
+ * IO.Options options = IO.Options.builder()
+ *     .setCodec(new JacksonCodec())
+ *     .build();
+ *
+ * Socket socket = IO.socket(URI.create("https://example.com"), options);
+ *
+ * socket.onTyped("trade", Trade.class, new TypedListener&lt;Trade&gt;() {
+ *     &#64;Override
+ *     public void call(Trade trade, Ack ack) {
+ *         // ...
+ *     }
+ * });
+ *
+ * socket.emit("order", new Order("BTC", 2));
+ * </pre>
+ *
+ * <p>The arguments of the typed listeners are bound by an {@link ObjectReader} straight from the parser,
+ * without building a tree first. The {@code byte[]} found in the emitted values, including the fields of
+ * the POJOs and the {@link BinaryNode}, are sent as binary attachments, and bound back from them.</p>
+ */
+public final class JacksonCodec implements JSONCodec {
+
+    private static final Log logger = Log.getLog(JacksonCodec.class);
+
+    private static final String ATTACHMENTS = JacksonCodec.class.getName() + ".attachments";
+    private static final String DECODED_ATTACHMENTS = JacksonCodec.class.getName() + ".decodedAttachments";
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+    private final JsonFactory factory;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public JacksonCodec() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     * @param mapper the mapper of the application, which is copied so that its configuration is kept.
+     */
+    public JacksonCodec(ObjectMapper mapper) {
+        SimpleModule module = new SimpleModule("socket.io-client");
+        module.addSerializer(JSONObject.class, new TreeSerializer());
+        module.addSerializer(JSONArray.class, new TreeSerializer());
+        module.addSerializer(JSONObject.NULL.getClass(), new TreeSerializer());
+        module.addSerializer(JSONString.class, new JSONStringSerializer());
+        module.addSerializer(byte[].class, new AttachmentSerializer());
+        module.addSerializer(JsonNode.class, new JsonNodeSerializer());
+        module.addDeserializer(byte[].class, new AttachmentDeserializer());
+        this.mapper = mapper.copy().registerModule(module);
+        this.writer = this.mapper.writer();
+        this.factory = this.mapper.getFactory();
+    }
+
+    @Override
+    public void encode(Object data, StringBuilder out, List<byte[]> attachments) {
+        int start = out.length();
+        int count = attachments != null ? attachments.size() : 0;
+        try {
+            JsonGenerator generator = this.factory.createGenerator(new StringBuilderWriter(out));
+            this.writer.withAttribute(ATTACHMENTS, attachments).writeValue(generator, data);
+            generator.flush();
+        } catch (IOException e) {
+            out.setLength(start);
+            if (attachments != null) {
+                attachments.subList(count, attachments.size()).clear();
+            }
+            throw new IllegalArgumentException("unable to encode the payload", e);
+        }
+    }
+
+    @Override
+    public Object decode(String str, int start, int end) {
+        try {
+            JsonParser parser = this.factory.createParser(new StringRangeReader(str, start, end));
+            JsonNode node = this.mapper.readTree(parser);
+            if (node == null || node.isMissingNode()) {
+                throw new DecodingException("invalid payload");
+            }
+            return node;
+        } catch (IOException e) {
+            logger.warning("An error occured while parsing the payload", e);
+            throw new DecodingException("invalid payload");
+        }
+    }
+
+    @Override
+    public Object[] decodeArguments(String str, int start, int end, byte[][] attachments, Class<?>[] types) {
+        if (types != null) {
+            try {
+                return this.readArguments(str, start, end, attachments, types);
+            } catch (IOException | RuntimeException e) {
+                // parsed again into the object model, so that the listener reports the failure
+                logger.fine("unable to bind the arguments", e);
+            }
+        }
+        try {
+            return this.readArguments(str, start, end, attachments, null);
+        } catch (IOException e) {
+            logger.warning("An error occured while parsing the payload", e);
+            throw new DecodingException("invalid payload");
+        }
+    }
+
+    private Object[] readArguments(String str, int start, int end, byte[][] attachments, Class<?>[] types)
+            throws IOException {
+        JsonParser parser = this.factory.createParser(new StringRangeReader(str, start, end));
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new DecodingException("invalid payload");
+        }
+        List<Object> args = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            int index = args.size();
+            if (token != null && types != null && index < types.length && types[index] != null) {
+                args.add(this.reader(types[index], attachments).readValue(parser));
+            } else {
+                args.add(this.readArgument(parser, token, attachments));
+            }
+        }
+        return args.toArray();
+    }
+
+    private ObjectReader reader(Class<?> type, byte[][] attachments) {
+        ObjectReader reader = this.readers.get(type);
+        if (reader == null) {
+            reader = this.mapper.readerFor(type);
+            this.readers.putIfAbsent(type, reader);
+        }
+        return attachments != null ? reader.withAttribute(DECODED_ATTACHMENTS, attachments) : reader;
+    }
+
+    private Object readArgument(JsonParser parser, JsonToken token, byte[][] attachments) throws IOException {
+        if (token == null) {
+            // end of the input
+            throw new DecodingException("invalid payload");
+        }
+        switch (token) {
+            case START_OBJECT:
+            case START_ARRAY: {
+                JsonNode node = this.mapper.readTree(parser);
+                if (attachments == null) {
+                    return node;
+                }
+                JsonNode reconstructed = reconstruct(node, attachments);
+                return reconstructed instanceof BinaryNode ? reconstructed.binaryValue() : reconstructed;
+            }
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                // Integer, Long or BigInteger, depending on the magnitude
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new DecodingException("invalid payload");
+        }
+    }
+
+    /**
+     * Replaces the placeholders of the binary attachments with {@link BinaryNode}, in place.
+     */
+    private static JsonNode reconstruct(JsonNode node, byte[][] attachments) {
+        if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                JsonNode element = array.get(i);
+                JsonNode reconstructed = reconstruct(element, attachments);
+                if (reconstructed != element) {
+                    array.set(i, reconstructed);
+                }
+            }
+        } else if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            if (object.path("_placeholder").asBoolean()) {
+                int num = object.path("num").asInt(-1);
+                if (num < 0 || num >= attachments.length) {
+                    throw new DecodingException("illegal attachments");
+                }
+                return BinaryNode.valueOf(attachments[num]);
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode reconstructed = reconstruct(field.getValue(), attachments);
+                if (reconstructed != field.getValue()) {
+                    field.setValue(reconstructed);
+                }
+            }
+        }
+        return node;
+    }
+
+    @Override
+    public boolean canConvert(Class<?> type) {
+        return type.isPrimitive() || this.mapper.canDeserialize(this.mapper.constructType(type));
+    }
+
+    /**
+     * Binds the value with the {@link ObjectMapper}. The {@link JsonNode} trees are read by the mapper
+     * node by node, and the other values are streamed to it token by token, without being serialized to a
+     * string.
+     */
+    @Override
+    public <T> T convert(Object value, Class<T> type) {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            if (type.isPrimitive()) {
+                throw new IllegalArgumentException("cannot convert null to " + type.getName());
+            }
+            return null;
+        }
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        }
+        if (value instanceof JsonNode) {
+            try {
+                return this.mapper.treeToValue((JsonNode) value, type);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("cannot convert the value to " + type.getName(), e);
+            }
+        }
+        return this.mapper.convertValue(value, type);
+    }
+
+    private static void writeValue(Object value, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())) {
+            // like JSON.stringify()
+            generator.writeNull();
+        } else if (value instanceof Float && (((Float) value).isNaN() || ((Float) value).isInfinite())) {
+            generator.writeNull();
+        } else {
+            provider.defaultSerializeValue(value, generator);
+        }
+    }
+
+    /**
+     * Writes the {@code org.json} values, whose content may include POJOs and binary attachments.
+     */
+    private static final class TreeSerializer extends JsonSerializer<Object> {
+
+        @Override
+        public void serialize(Object value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                int length = array.length();
+                generator.writeStartArray();
+                for (int i = 0; i < length; i++) {
+                    writeValue(array.opt(i), generator, provider);
+                }
+                generator.writeEndArray();
+            } else if (value instanceof JSONObject) {
+                JSONObject object = (JSONObject) value;
+                Iterator<?> keys = object.keys();
+                generator.writeStartObject();
+                while (keys.hasNext()) {
+                    String key = keys.next().toString();
+                    generator.writeFieldName(key);
+                    writeValue(object.opt(key), generator, provider);
+                }
+                generator.writeEndObject();
+            } else {
+                // JSONObject.NULL
+                generator.writeNull();
+            }
+        }
+    }
+
+    /**
+     * Writes the {@link JsonNode} trees, whose {@link BinaryNode} are sent as attachments.
+     */
+    private static final class JsonNodeSerializer extends JsonSerializer<JsonNode> {
+
+        @Override
+        public void serialize(JsonNode value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            if (value.isArray()) {
+                generator.writeStartArray();
+                for (JsonNode element : value) {
+                    this.serialize(element, generator, provider);
+                }
+                generator.writeEndArray();
+            } else if (value.isObject()) {
+                generator.writeStartObject();
+                Iterator<Map.Entry<String, JsonNode>> fields = value.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    generator.writeFieldName(field.getKey());
+                    this.serialize(field.getValue(), generator, provider);
+                }
+                generator.writeEndObject();
+            } else if (value.isBinary()) {
+                provider.defaultSerializeValue(value.binaryValue(), generator);
+            } else {
+                ((JsonSerializable) value).serialize(generator, provider);
+            }
+        }
+    }
+
+    private static final class JSONStringSerializer extends JsonSerializer<JSONString> {
+
+        @Override
+        public void serialize(JSONString value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeRawValue(value.toJSONString());
+        }
+    }
+
+    /**
+     * Replaces the {@code byte[]} with the placeholders of the binary attachments, when the packet
+     * supports them.
+     */
+    private static final class AttachmentSerializer extends JsonSerializer<byte[]> {
+
+        @Override
+        public void serialize(byte[] value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            @SuppressWarnings("unchecked")
+            List<byte[]> attachments = (List<byte[]>) provider.getAttribute(ATTACHMENTS);
+            if (attachments == null) {
+                generator.writeBinary(value);
+                return;
+            }
+            generator.writeStartObject();
+            generator.writeBooleanField("_placeholder", true);
+            generator.writeNumberField("num", attachments.size());
+            generator.writeEndObject();
+            attachments.add(value);
+        }
+    }
+
+    /**
+     * Reads the {@code byte[]} from the placeholders of the binary attachments, and from the values
+     * supported by default (base64 strings, arrays of numbers and embedded binary values).
+     */
+    private static final class AttachmentDeserializer extends JsonDeserializer<byte[]> {
+
+        @Override
+        public byte[] deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            switch (parser.currentToken()) {
+                case START_OBJECT: {
+                    boolean placeholder = false;
+                    int num = -1;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("_placeholder".equals(name)) {
+                            placeholder = parser.getValueAsBoolean();
+                        } else if ("num".equals(name)) {
+                            num = parser.getValueAsInt(-1);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    byte[][] attachments = (byte[][]) context.getAttribute(DECODED_ATTACHMENTS);
+                    if (!placeholder || attachments == null || num < 0 || num >= attachments.length) {
+                        throw JsonMappingException.from(parser, "illegal attachments");
+                    }
+                    return attachments[num];
+                }
+                case START_ARRAY: {
+                    byte[] bytes = new byte[16];
+                    int length = 0;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (length == bytes.length) {
+                            bytes = Arrays.copyOf(bytes, length * 2);
+                        }
+                        bytes[length++] = (byte) parser.getValueAsInt();
+                    }
+                    return Arrays.copyOf(bytes, length);
+                }
+                case VALUE_EMBEDDED_OBJECT: {
+                    Object value = parser.getEmbeddedObject();
+                    if (value instanceof byte[]) {
+                        return (byte[]) value;
+                    }
+                    return parser.getBinaryValue(context.getBase64Variant());
+                }
+                default:
+                    return parser.getBinaryValue(context.getBase64Variant());
+            }
+        }
+    }
+
+    private static final class StringBuilderWriter extends Writer {
+
+        private final StringBuilder out;
+
+        StringBuilderWriter(StringBuilder out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) {
+            this.out.append((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            this.out.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            this.out.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    /**
+     * Reads a range of a string without copying it.
+     */
+    private static final class StringRangeReader extends Reader {
+
+        private final String str;
+        private final int end;
+        private int pos;
+
+        StringRangeReader(String str, int start, int end) {
+            this.str = str;
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) return 0;
+            if (this.pos >= this.end) return -1;
+            int n = Math.min(len, this.end - this.pos);
+            this.str.getChars(this.pos, this.pos + n, cbuf, off);
+            this.pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,220 @@
+package io.socket.parser.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.socket.parser.DecodingException;
+import io.socket.parser.IOParser;
+import io.socket.parser.JSONCodec;
+import io.socket.parser.OrgJSONCodec;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class JacksonCodecTest {
+
+    private static JSONCodec codec = new JacksonCodec();
+
+    public static class Trade {
+        public String symbol;
+        public int quantity;
+        public double price;
+        public byte[] receipt;
+    }
+
+    @Test
+    public void encodeLikeOrgJSON() throws JSONException {
+        JSONObject object = new JSONObject("{\"a\": [1, 2.5, \"b\\\"c\", null, true, {}], \"d\": {\"e\": -3}}");
+        object.put("f", 5000000000L);
+
+        StringBuilder expected = new StringBuilder();
+        new OrgJSONCodec().encode(object, expected, null);
+        StringBuilder out = new StringBuilder();
+        codec.encode(object, out, null);
+        assertThat(out.toString(), is(expected.toString()));
+    }
+
+    @Test
+    public void decodeIntoJsonNode() {
+        String str = "0{\"sid\":\"a\",\"b\":5000000000}";
+        Object data = codec.decode(str, 1, str.length());
+
+        assertThat(data, instanceOf(ObjectNode.class));
+        JsonNode node = (JsonNode) data;
+        assertThat(node.get("sid").asText(), is("a"));
+        assertThat(node.get("b").asLong(), is(5000000000L));
+    }
+
+    @Test
+    public void decodeArguments() {
+        String str = "2[{\"a\":1,\"c\":2.5,\"d\":null},\"e\",true,5000000000,2.5,null]";
+        Object[] args = codec.decodeArguments(str, 1, str.length(), null, null);
+
+        assertThat(args.length, is(6));
+        assertThat(args[0], instanceOf(ObjectNode.class));
+        JsonNode object = (JsonNode) args[0];
+        assertThat(object.get("a").asInt(), is(1));
+        assertThat(object.get("c").asDouble(), is(2.5));
+        assertThat(object.get("d").isNull(), is(true));
+        assertThat(args[1], is((Object) "e"));
+        assertThat(args[2], is((Object) true));
+        assertThat(args[3], is((Object) 5000000000L));
+        assertThat(args[4], is((Object) 2.5));
+        assertThat(args[5], is(nullValue()));
+    }
+
+    @Test
+    public void decodeArgumentsWithAttachments() {
+        String str = "51-[{\"_placeholder\":true,\"num\":0},{\"a\":[{\"_placeholder\":true,\"num\":0}]}]";
+        byte[] attachment = new byte[] {1, 2};
+        Object[] args = codec.decodeArguments(str, 3, str.length(), new byte[][] {attachment}, null);
+
+        assertSame(attachment, args[0]);
+        JsonNode element = ((JsonNode) args[1]).get("a").get(0);
+        assertThat(element, instanceOf(BinaryNode.class));
+        assertSame(attachment, ((BinaryNode) element).binaryValue());
+    }
+
+    @Test(expected = DecodingException.class)
+    public void decodeArgumentsWithAMissingAttachment() {
+        String str = "51-[{\"_placeholder\":true,\"num\":1}]";
+        codec.decodeArguments(str, 3, str.length(), new byte[][] {new byte[0]}, null);
+    }
+
+    @Test(expected = DecodingException.class)
+    public void decodeArgumentsOfAnObject() {
+        String str = "2{\"a\":1}";
+        codec.decodeArguments(str, 1, str.length(), null, null);
+    }
+
+    @Test
+    public void encodeBinaryNode() {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        node.set("a", BinaryNode.valueOf(new byte[] {1}));
+        List<byte[]> attachments = new ArrayList<>();
+        StringBuilder out = new StringBuilder();
+        codec.encode(new JSONArray().put("b").put(node), out, attachments);
+
+        assertThat(out.toString(), is("[\"b\",{\"a\":{\"_placeholder\":true,\"num\":0}}]"));
+        assertThat(attachments.size(), is(1));
+    }
+
+    @Test
+    public void decodeArgumentsWithTypes() {
+        String str = "51-[\"trade\",{\"symbol\":\"BTC\",\"quantity\":2,\"price\":1.5,"
+                + "\"receipt\":{\"_placeholder\":true,\"num\":0}},3]";
+        byte[] receipt = new byte[] {1, 2, 3};
+        Object[] args = codec.decodeArguments(str, 3, str.length(), new byte[][] {receipt},
+                new Class<?>[] {null, Trade.class, Long.class});
+
+        assertThat(args[0], is((Object) "trade"));
+        Trade trade = (Trade) args[1];
+        assertThat(trade.symbol, is("BTC"));
+        assertThat(trade.quantity, is(2));
+        assertThat(trade.price, is(1.5));
+        assertSame(receipt, trade.receipt);
+        assertThat(args[2], is((Object) 3L));
+    }
+
+    @Test
+    public void keepTheArgumentsThatCannotBeBound() {
+        String str = "2[\"trade\",{\"symbol\":[]},3]";
+        Object[] args = codec.decodeArguments(str, 1, str.length(), null,
+                new Class<?>[] {null, Trade.class, Long.class});
+
+        assertThat(args[1], instanceOf(ObjectNode.class));
+        assertThat(args[2], is((Object) 3));
+    }
+
+    @Test(expected = DecodingException.class)
+    public void decodeInvalidRange() {
+        codec.decode("2[\"a\",1]", 1, 4);
+    }
+
+    @Test
+    public void roundTripPojo() {
+        Trade trade = new Trade();
+        trade.symbol = "BTC";
+        trade.quantity = 2;
+        trade.price = 1.5;
+        trade.receipt = new byte[] {1, 2, 3};
+
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, new JSONArray().put("trade").put(trade));
+        final List<Object> frames = new ArrayList<>();
+        new IOParser.Encoder(codec).encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                for (Object frame : data) {
+                    frames.add(frame);
+                }
+            }
+        });
+
+        assertThat(frames.size(), is(2));
+        assertThat((String) frames.get(0),
+                is("51-[\"trade\",{\"symbol\":\"BTC\",\"quantity\":2,\"price\":1.5,\"receipt\":{\"_placeholder\":true,\"num\":0}}]"));
+
+        final List<Packet> packets = new ArrayList<>();
+        IOParser.Decoder decoder = new IOParser.Decoder(codec);
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+        decoder.add((String) frames.get(0));
+        decoder.add((byte[]) frames.get(1));
+
+        assertThat(packets.size(), is(1));
+        Object[] args = (Object[]) packets.get(0).data;
+        assertThat(args[0], is((Object) "trade"));
+        assertThat(args[1], instanceOf(ObjectNode.class));
+
+        Trade decoded = codec.convert(args[1], Trade.class);
+        assertThat(decoded.symbol, is("BTC"));
+        assertThat(decoded.quantity, is(2));
+        assertThat(decoded.price, is(1.5));
+        assertArrayEquals(new byte[] {1, 2, 3}, decoded.receipt);
+    }
+
+    @Test
+    public void convert() {
+        assertThat(codec.convert(1, long.class), is(1L));
+        assertThat(codec.convert("a", String.class), is("a"));
+        assertThat(codec.convert(JSONObject.NULL, Trade.class), is(nullValue()));
+        String str = "0{\"sid\":\"a\"}";
+        Map<?, ?> map = codec.convert(codec.decode(str, 1, str.length()), Map.class);
+        assertThat(map.get("sid"), is((Object) "a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convertNullToPrimitive() {
+        codec.convert(JSONObject.NULL, int.class);
+    }
+
+    @Test
+    public void canConvert() {
+        assertThat(codec.canConvert(Trade.class), is(true));
+        assertThat(codec.canConvert(JSONObject.class), is(true));
+        assertThat(codec.canConvert(int.class), is(true));
+        assertThat(codec.canConvert(Object.class), is(true));
+    }
+}
@@ -0,0 +1,77 @@
+package io.socket.parser.jackson;
+
+import io.socket.client.Ack;
+import io.socket.client.IO;
+import io.socket.client.Socket;
+import io.socket.client.TypedListener;
+import io.socket.loopback.LoopbackServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Emits and receives POJOs through the in-JVM {@link LoopbackServer}.
+ */
+@RunWith(JUnit4.class)
+public class JacksonConnectionTest {
+
+    private static final int TIMEOUT = 7000;
+
+    private LoopbackServer server;
+    private Socket socket;
+
+    public static class Trade {
+        public String symbol;
+        public int quantity;
+        public byte[] receipt;
+    }
+
+    @Before
+    public void startServer() {
+        server = new LoopbackServer();
+    }
+
+    @After
+    public void stopServer() {
+        if (socket != null) {
+            socket.disconnect();
+        }
+        server.close();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void echoPojo() throws InterruptedException {
+        final BlockingQueue<Trade> values = new LinkedBlockingQueue<>();
+        IO.Options opts = server.createOptions();
+        opts.codec = new JacksonCodec();
+        socket = IO.socket(URI.create("http://localhost/"), opts);
+        socket.onTyped("echoBack", Trade.class, new TypedListener<Trade>() {
+            @Override
+            public void call(Trade trade, Ack ack) {
+                values.offer(trade);
+            }
+        });
+        socket.connect();
+
+        Trade trade = new Trade();
+        trade.symbol = "BTC";
+        trade.quantity = 2;
+        trade.receipt = new byte[] {1, 2, 3};
+        socket.emit("echo", trade);
+
+        Trade echoed = values.take();
+        assertThat(echoed.symbol, is("BTC"));
+        assertThat(echoed.quantity, is(2));
+        assertArrayEquals(new byte[] {1, 2, 3}, echoed.receipt);
+    }
+}
@@ -0,0 +1,171 @@
+package io.socket.client;
+
+import io.socket.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of {@link Socket#emitWithAck(String, long, TimeUnit, Object...)}.
+ *
+ * <p>The future completes with the arguments of the acknowledgement, or fails with a
+ * {@link SocketIOException} if the server does not acknowledge the event in time, or if the socket gets
+ * disconnected in the meantime.</p>
+ *
+ * <pre>
+ * socket.emitWithAck("hello", 5, TimeUnit.SECONDS, "world").whenComplete(new AckFuture.Callback() {
+ *     &#64;Override
+ *     public void call(Object[] args, Exception err) {
+ *         ...
+ *     }
+ * });
+ * </pre>
+ */
+public final class AckFuture implements Future<Object[]> {
+
+    private static final Log logger = Log.getLog(AckFuture.class);
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private List<Callback> callbacks;
+    private volatile boolean done;
+    private volatile Object[] result;
+    private volatile Exception error;
+    private Runnable onCancel;
+
+    /*package*/ AckFuture() {}
+
+    /**
+     * Registers a callback, which is called once the future completes (usually on the EventThread), or
+     * immediately if it has already completed.
+     *
+     * @param callback the callback.
+     * @return a reference to this object.
+     */
+    public AckFuture whenComplete(Callback callback) {
+        synchronized (this) {
+            if (!this.done) {
+                if (this.callbacks == null) {
+                    this.callbacks = new ArrayList<>(1);
+                }
+                this.callbacks.add(callback);
+                return this;
+            }
+        }
+        call(callback, this.result, this.error);
+        return this;
+    }
+
+    /**
+     * Registers the task which cleans up the pending request, run right away if the future was already
+     * cancelled.
+     */
+    /*package*/ void onCancel(Runnable onCancel) {
+        synchronized (this) {
+            if (!this.isCancelled()) {
+                this.onCancel = onCancel;
+                return;
+            }
+        }
+        onCancel.run();
+    }
+
+    /*package*/ boolean complete(Object[] result) {
+        return this.finish(result, null);
+    }
+
+    /*package*/ boolean fail(Exception error) {
+        return this.finish(null, error);
+    }
+
+    private boolean finish(Object[] result, Exception error) {
+        List<Callback> callbacks;
+        synchronized (this) {
+            if (this.done) return false;
+            this.result = result;
+            this.error = error;
+            this.done = true;
+            callbacks = this.callbacks;
+            this.callbacks = null;
+        }
+        this.latch.countDown();
+
+        if (callbacks != null) {
+            for (Callback callback : callbacks) {
+                call(callback, result, error);
+            }
+        }
+        return true;
+    }
+
+    private static void call(Callback callback, Object[] result, Exception error) {
+        try {
+            callback.call(result, error);
+        } catch (RuntimeException e) {
+            logger.warning("An error occured while running the callback of an ack", e);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!this.fail(new CancellationException())) {
+            return false;
+        }
+        Runnable onCancel;
+        synchronized (this) {
+            onCancel = this.onCancel;
+        }
+        if (onCancel != null) {
+            onCancel.run();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return this.error instanceof CancellationException;
+    }
+
+    @Override
+    public boolean isDone() {
+        return this.done;
+    }
+
+    @Override
+    public Object[] get() throws InterruptedException, ExecutionException {
+        this.latch.await();
+        return this.report();
+    }
+
+    @Override
+    public Object[] get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!this.latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return this.report();
+    }
+
+    private Object[] report() throws ExecutionException {
+        Exception error = this.error;
+        if (error instanceof CancellationException) {
+            throw (CancellationException) error;
+        } else if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return this.result;
+    }
+
+    public interface Callback {
+
+        /**
+         * @param args the arguments of the acknowledgement, or null if the future failed.
+         * @param err the error, or null if the event was acknowledged.
+         */
+        void call(Object[] args, Exception err);
+    }
+}
@@ -1,11 +1,10 @@
 package io.socket.client;
 
-import java.util.Timer;
 import java.util.TimerTask;
 
 public abstract class AckWithTimeout implements Ack {
     private final long timeout;
-    private final Timer timer = new Timer();
+    private volatile HashedWheelTimer.Timeout timer;
 
     /**
      *
@@ -17,16 +16,33 @@ public abstract class AckWithTimeout implements Ack {
 
     @Override
     public final void call(Object... args) {
-        this.timer.cancel();
+        this.cancelTimer();
         this.onSuccess(args);
     }
 
+    /**
+     * Schedules the task on the timer shared by all the sockets, so that pending acknowledgements
+     * do not each hold a thread.
+     *
+     * @param task the task to run once the delay has elapsed
+     */
+    public final void schedule(Runnable task) {
+        this.timer = HashedWheelTimer.shared().schedule(task, this.timeout);
+    }
+
+    /**
+     * @deprecated use {@link #schedule(Runnable)}, the task is no longer run by a {@link java.util.Timer}.
+     */
+    @Deprecated
     public final void schedule(TimerTask task) {
-        this.timer.schedule(task, this.timeout);
+        this.schedule((Runnable) task);
     }
 
     public final void cancelTimer() {
-        this.timer.cancel();
+        HashedWheelTimer.Timeout timer = this.timer;
+        if (timer != null) {
+            timer.cancel();
+        }
     }
 
     public abstract void onSuccess(Object... args);
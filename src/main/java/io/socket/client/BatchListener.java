@@ -0,0 +1,17 @@
+package io.socket.client;
+
+import java.util.List;
+
+/**
+ * Listener receiving the occurrences of an event by batches.
+ *
+ * @see Socket#onBatch(String, int, long, BatchListener)
+ */
+public interface BatchListener {
+
+    /**
+     * @param events the arguments of each event, in the order they were received. The list is not
+     *     reused, and can be kept.
+     */
+    void call(List<Object[]> events);
+}
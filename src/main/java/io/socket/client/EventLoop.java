@@ -0,0 +1,50 @@
+package io.socket.client;
+
+import io.socket.thread.EventThread;
+
+/**
+ * Thread on which a {@link Manager} and its sockets run. The events of the engine, the decoding of the
+ * packets, the listeners and the emits of a manager are all executed in order on the same loop.
+ */
+/*package*/ abstract class EventLoop {
+
+    /**
+     * The EventThread shared with the engine, used unless an {@link EventLoopGroup} is configured.
+     */
+    /*package*/ static final EventLoop DEFAULT = new EventLoop() {
+        @Override
+        boolean isCurrent() {
+            return EventThread.isCurrent();
+        }
+
+        @Override
+        void exec(Runnable task) {
+            EventThread.exec(task);
+        }
+
+        @Override
+        void nextTick(Runnable task) {
+            EventThread.nextTick(task);
+        }
+    };
+
+    /**
+     * @return whether the current thread is the EventThread or the thread of any loop, which must not
+     *     be blocked.
+     */
+    /*package*/ static boolean inEventLoop() {
+        return EventThread.isCurrent() || Thread.currentThread() instanceof EventLoopGroup.LoopThread;
+    }
+
+    /*package*/ abstract boolean isCurrent();
+
+    /**
+     * Executes the task, synchronously if called from this loop.
+     */
+    /*package*/ abstract void exec(Runnable task);
+
+    /**
+     * Executes the task after the tasks already queued on this loop.
+     */
+    /*package*/ abstract void nextTick(Runnable task);
+}
@@ -0,0 +1,155 @@
+package io.socket.client;
+
+import io.socket.logging.Log;
+
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group of event loops, to spread the managers of a process over several threads.
+ *
+ * <p>By default, all the managers run on the single EventThread of the engine. When a group is set in
+ * {@link Manager.Options#eventLoopGroup}, each manager is pinned to one loop of the group: the packets of
+ * a connection are still handled in order, while the connections are handled in parallel.</p>
+ *
+ * <pre>
+ * EventLoopGroup group = new EventLoopGroup(Runtime.getRuntime().availableProcessors());
+ * IO.Options opts = IO.Options.builder()
+ *     .setEventLoopGroup(group)
+ *     .build();
+ * </pre>
+ *
+ * <p>The I/O of the engine itself (heartbeat, framing) stays on the EventThread.</p>
+ */
+public final class EventLoopGroup {
+
+    private static final Log logger = Log.getLog(EventLoopGroup.class);
+
+    private static final AtomicInteger groups = new AtomicInteger();
+
+    /**
+     * How a manager is assigned to a loop.
+     */
+    public enum Affinity {
+
+        /**
+         * The managers are assigned to the loops in turn.
+         */
+        ROUND_ROBIN,
+
+        /**
+         * The managers are assigned according to the host and port of their URI, so that the
+         * managers of a same server share the same loop.
+         */
+        URI_HASH
+    }
+
+    private final Loop[] loops;
+    private final Affinity affinity;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public EventLoopGroup(int size) {
+        this(size, Affinity.ROUND_ROBIN);
+    }
+
+    public EventLoopGroup(int size, Affinity affinity) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        int group = groups.incrementAndGet();
+        this.loops = new Loop[size];
+        for (int i = 0; i < size; i++) {
+            this.loops[i] = new Loop(String.format("socket.io-loop-%d-%d", group, i));
+        }
+        this.affinity = affinity != null ? affinity : Affinity.ROUND_ROBIN;
+    }
+
+    public int size() {
+        return this.loops.length;
+    }
+
+    /**
+     * Stops the loops once their pending tasks are executed. The managers using this group must be
+     * closed beforehand.
+     */
+    public void shutdown() {
+        for (Loop loop : this.loops) {
+            loop.executor.shutdown();
+        }
+    }
+
+    /*package*/ EventLoop next(URI uri) {
+        int index;
+        if (this.affinity == Affinity.URI_HASH && uri != null) {
+            index = String.valueOf(uri.getAuthority()).hashCode();
+        } else {
+            index = this.next.getAndIncrement();
+        }
+        return this.loops[(index & Integer.MAX_VALUE) % this.loops.length];
+    }
+
+    /*package*/ static final class LoopThread extends Thread {
+
+        private LoopThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+
+    private static final class Loop extends EventLoop {
+
+        private final ExecutorService executor;
+        private volatile Thread thread;
+
+        private Loop(final String name) {
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new LoopThread(runnable, name);
+                    thread.setDaemon(true);
+                    Loop.this.thread = thread;
+                    return thread;
+                }
+            });
+        }
+
+        @Override
+        boolean isCurrent() {
+            return Thread.currentThread() == this.thread;
+        }
+
+        @Override
+        void exec(Runnable task) {
+            if (this.isCurrent()) {
+                task.run();
+            } else {
+                this.nextTick(task);
+            }
+        }
+
+        @Override
+        void nextTick(final Runnable task) {
+            try {
+                this.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.run();
+                        } catch (Throwable t) {
+                            logger.severe("Task threw exception", t);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // like the events of a manager still closing while the group is shut down
+                logger.fine("the event loop group has been shut down, dropping the task");
+            }
+        }
+    }
+}
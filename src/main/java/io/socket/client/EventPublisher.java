@@ -0,0 +1,288 @@
+package io.socket.client;
+
+import io.socket.emitter.Emitter;
+import io.socket.logging.Log;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes the occurrences of an event to the subscribers which request them, following the
+ * Reactive Streams rules. See {@link Socket#events(String, int, Overflow)}.
+ *
+ * <p>The interfaces mirror those of {@code java.util.concurrent.Flow}, which is not available on Java 7
+ * and Android. On Java 11+, {@link #toFlow()} adapts a publisher to {@code Flow.Publisher<Object[]>}.</p>
+ *
+ * <p>Each subscriber has its own buffer, which holds the events received beyond its demand. The
+ * subscribers are called on the thread which received the event (the event loop, or the
+ * {@link Manager.Options#listenerExecutor}), or on the thread which requested more events.</p>
+ *
+ * <p>The subscriptions last across the reconnections. They complete, once their buffered events are
+ * delivered, when the socket is closed (by {@link Socket#close()} or by the server), or when their
+ * listener is removed by {@link Socket#off(String)} or {@link Socket#off()}.</p>
+ */
+public final class EventPublisher {
+
+    private static final Log logger = Log.getLog(EventPublisher.class);
+
+    /**
+     * Default size of the buffer of each subscriber, like {@code Flow.defaultBufferSize()}.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /**
+     * What happens to an event received while the buffer of a subscriber is full.
+     */
+    public enum Overflow {
+        /**
+         * Drop the received event. If the server expects an acknowledgement, it never gets one.
+         */
+        DROP,
+
+        /**
+         * Drop the oldest buffered event, so that the subscriber gets the latest ones. If the server
+         * expects an acknowledgement of the dropped event, it never gets one.
+         */
+        LATEST,
+
+        /**
+         * Cancel the subscription, and signal an {@link IllegalStateException} to the subscriber.
+         */
+        ERROR
+    }
+
+    /**
+     * Receiver of the events, like {@code Flow.Subscriber<Object[]>}.
+     */
+    public interface Subscriber {
+
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * @param args the arguments of the event, followed by an {@link Ack} if the server expects an
+         *     acknowledgement.
+         */
+        void onNext(Object[] args);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * Link between the publisher and a subscriber, like {@code Flow.Subscription}.
+     */
+    public interface Subscription {
+
+        void request(long n);
+
+        void cancel();
+    }
+
+    /**
+     * The live subscriptions of a socket, which are completed when the socket is closed or when their
+     * listener is removed.
+     */
+    /*package*/ static final class Subscriptions {
+
+        private final Queue<EventPublisher.EventSubscription> subscriptions = new ConcurrentLinkedQueue<>();
+
+        /**
+         * @param event an event name, or {@code null} for all the events.
+         */
+        /*package*/ void complete(String event) {
+            Iterator<EventPublisher.EventSubscription> it = this.subscriptions.iterator();
+            while (it.hasNext()) {
+                EventPublisher.EventSubscription subscription = it.next();
+                if (event == null || subscription.event().equals(event)) {
+                    it.remove();
+                    subscription.complete();
+                }
+            }
+        }
+    }
+
+    private final Emitter emitter;
+    private final String event;
+    private final int bufferSize;
+    private final Overflow overflow;
+    private final Subscriptions subscriptions;
+
+    /*package*/ EventPublisher(Emitter emitter, String event, int bufferSize, Overflow overflow,
+                               Subscriptions subscriptions) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        if (overflow == null) {
+            throw new NullPointerException("overflow");
+        }
+        this.emitter = emitter;
+        this.event = event;
+        this.bufferSize = bufferSize;
+        this.overflow = overflow;
+        this.subscriptions = subscriptions;
+    }
+
+    /**
+     * Listens on the event until the subscription is cancelled, completes, or fails with
+     * {@link Overflow#ERROR}.
+     *
+     * @param subscriber the subscriber.
+     */
+    public void subscribe(Subscriber subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        EventSubscription subscription = new EventSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        if (!subscription.cancelled) {
+            this.subscriptions.subscriptions.add(subscription);
+            this.emitter.on(this.event, subscription);
+        }
+    }
+
+    /**
+     * Adapts this publisher to {@code java.util.concurrent.Flow}, which is not referenced by the signature
+     * since it is not available on Java 7 and Android.
+     *
+     * <pre>
+     * Flow.Publisher&lt;Object[]&gt; trades = socket.events("trade").toFlow();
+     * </pre>
+     *
+     * @param <T> {@code Flow.Publisher<Object[]>}.
+     * @return a publisher which forwards the calls to this one.
+     * @throws UnsupportedOperationException before Java 11.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T toFlow() {
+        return (T) FlowAdapter.toFlow(this);
+    }
+
+    private final class EventSubscription implements Subscription, Emitter.Listener {
+
+        private final Subscriber subscriber;
+        private final ArrayDeque<Object[]> queue = new ArrayDeque<>();
+        // number of drain requests, so that a single thread signals the subscriber at a time
+        private final AtomicInteger wip = new AtomicInteger();
+        // guarded by this
+        private long requested;
+        private Throwable error;
+        // no event is received anymore, the subscriber completes once the queue is empty
+        private boolean done;
+        private volatile boolean cancelled;
+
+        EventSubscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void call(Object... args) {
+            synchronized (this) {
+                if (this.cancelled || this.error != null || this.done) return;
+
+                if (this.queue.size() >= EventPublisher.this.bufferSize) {
+                    switch (EventPublisher.this.overflow) {
+                        case DROP:
+                            logger.fine("subscriber is too slow, dropping event {0}", EventPublisher.this.event);
+                            return;
+                        case LATEST:
+                            logger.fine("subscriber is too slow, dropping event {0}", EventPublisher.this.event);
+                            this.queue.poll();
+                            break;
+                        default:
+                            this.error = new IllegalStateException("the buffer of the subscriber to '"
+                                    + EventPublisher.this.event + "' is full");
+                    }
+                }
+                if (this.error == null) {
+                    this.queue.add(args);
+                }
+            }
+            this.drain();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    if (this.error == null) {
+                        this.error = new IllegalArgumentException("non-positive request: " + n);
+                    }
+                } else {
+                    this.requested += n;
+                    if (this.requested < 0) {
+                        // unbounded
+                        this.requested = Long.MAX_VALUE;
+                    }
+                }
+            }
+            this.drain();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            EventPublisher.this.emitter.off(EventPublisher.this.event, this);
+            EventPublisher.this.subscriptions.subscriptions.remove(this);
+            synchronized (this) {
+                this.queue.clear();
+            }
+        }
+
+        private String event() {
+            return EventPublisher.this.event;
+        }
+
+        private void complete() {
+            synchronized (this) {
+                this.done = true;
+            }
+            EventPublisher.this.emitter.off(EventPublisher.this.event, this);
+            this.drain();
+        }
+
+        private void drain() {
+            if (this.wip.getAndIncrement() != 0) return;
+
+            int missed = 1;
+            for (;;) {
+                for (;;) {
+                    Object[] next = null;
+                    Throwable failure = null;
+                    boolean complete;
+                    synchronized (this) {
+                        if (this.cancelled) return;
+                        if (this.error != null) {
+                            failure = this.error;
+                        } else if (this.requested > 0) {
+                            next = this.queue.poll();
+                            if (next != null && this.requested != Long.MAX_VALUE) {
+                                this.requested--;
+                            }
+                        }
+                        complete = this.done && this.queue.isEmpty() && next == null;
+                    }
+
+                    if (failure != null) {
+                        this.cancel();
+                        this.subscriber.onError(failure);
+                        return;
+                    }
+                    if (complete) {
+                        this.cancel();
+                        this.subscriber.onComplete();
+                        return;
+                    }
+                    if (next == null) break;
+                    this.subscriber.onNext(next);
+                }
+
+                missed = this.wip.addAndGet(-missed);
+                if (missed == 0) return;
+            }
+        }
+    }
+}
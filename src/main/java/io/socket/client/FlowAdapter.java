@@ -0,0 +1,20 @@
+package io.socket.client;
+
+/**
+ * Adapts an {@link EventPublisher} to {@code java.util.concurrent.Flow.Publisher<Object[]>}.
+ *
+ * <p>This version fails, since {@code java.util.concurrent.Flow} is not available on Java 7 and Android:
+ * on Java 11+, it is replaced by the one in {@code META-INF/versions/11} of the multi-release jar. See
+ * {@link EventPublisher#toFlow()}.</p>
+ */
+/*package*/ final class FlowAdapter {
+
+    private FlowAdapter() {}
+
+    /**
+     * @return a {@code Flow.Publisher<Object[]>}.
+     */
+    static Object toFlow(EventPublisher publisher) {
+        throw new UnsupportedOperationException("java.util.concurrent.Flow requires Java 11+");
+    }
+}
@@ -0,0 +1,267 @@
+package io.socket.client;
+
+import io.socket.logging.Log;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer shared by the client runtime (acknowledgement timeouts, connection timeouts and reconnection
+ * delays), backed by a single thread instead of one {@link java.util.Timer} per task.
+ *
+ * <p>Scheduling and cancellation are O(1): the tasks are handed to the worker thread through lock-free
+ * queues, and stored in a wheel of buckets indexed by their deadline. The worker thread is started on
+ * the first scheduled task and stops once there is no pending task anymore.</p>
+ *
+ * <p>The tasks are run on the timer thread, and must be quick (usually a hop to the EventThread).</p>
+ */
+/*package*/ final class HashedWheelTimer {
+
+    private static final Log logger = Log.getLog(HashedWheelTimer.class);
+
+    private static final HashedWheelTimer shared = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 512);
+
+    private static final int STOPPED = 0;
+    private static final int STARTED = 1;
+
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> timeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingTimeouts = new AtomicInteger();
+    private final AtomicInteger workerState = new AtomicInteger(STOPPED);
+    private final Runnable worker = new Runnable() {
+        @Override
+        public void run() {
+            HashedWheelTimer.this.work();
+        }
+    };
+
+    // only accessed by the worker thread, handed over to the next one through workerState
+    private long startTime;
+    private long tick;
+
+    /*package*/ HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (ticksPerWheel <= 0 || (ticksPerWheel & (ticksPerWheel - 1)) != 0) {
+            throw new IllegalArgumentException("ticksPerWheel must be a power of 2");
+        }
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[ticksPerWheel];
+        for (int i = 0; i < ticksPerWheel; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = ticksPerWheel - 1;
+    }
+
+    /*package*/ static HashedWheelTimer shared() {
+        return shared;
+    }
+
+    /**
+     * Schedules the task to run after the given delay.
+     *
+     * @param task the task to run.
+     * @param delay delay in milliseconds.
+     * @return a handle to cancel the task.
+     */
+    /*package*/ Timeout schedule(Runnable task, long delay) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+        this.pendingTimeouts.incrementAndGet();
+        this.timeouts.add(timeout);
+        if (this.workerState.compareAndSet(STOPPED, STARTED)) {
+            this.startWorker();
+        }
+        return timeout;
+    }
+
+    /*package*/ int pendingTimeouts() {
+        return this.pendingTimeouts.get();
+    }
+
+    private void startWorker() {
+        Thread thread = new Thread(this.worker, "socket.io-timer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void work() {
+        this.startTime = System.nanoTime();
+        this.tick = 0;
+
+        while (true) {
+            long deadline = this.waitForNextTick();
+            this.processCancelledTimeouts();
+            this.transferTimeouts();
+            this.wheel[(int) (this.tick & this.mask)].expireTimeouts(deadline);
+            this.tick++;
+
+            if (this.pendingTimeouts.get() == 0) {
+                // the buckets are released before another worker may start, as they are not thread-safe
+                this.processCancelledTimeouts();
+                this.workerState.set(STOPPED);
+                // a task may have been scheduled in the meantime
+                if (this.pendingTimeouts.get() == 0 || !this.workerState.compareAndSet(STOPPED, STARTED)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = this.tickDuration * (this.tick + 1);
+        while (true) {
+            long currentTime = System.nanoTime() - this.startTime;
+            long sleepTime = TimeUnit.NANOSECONDS.toMillis(deadline - currentTime + 999999);
+            if (sleepTime <= 0) {
+                return currentTime;
+            }
+            try {
+                Thread.sleep(sleepTime);
+            } catch (InterruptedException ignored) {}
+        }
+    }
+
+    private void transferTimeouts() {
+        Timeout timeout;
+        while ((timeout = this.timeouts.poll()) != null) {
+            if (timeout.state.get() != Timeout.INIT) continue;
+
+            long calculated = (timeout.deadline - this.startTime) / this.tickDuration;
+            timeout.remainingRounds = (calculated - this.tick) / this.wheel.length;
+            long ticks = Math.max(calculated, this.tick);
+            this.wheel[(int) (ticks & this.mask)].add(timeout);
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = this.cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    /*package*/ static final class Timeout implements On.Handle {
+
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+
+        // only accessed by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task, if it has not run yet.
+         *
+         * @return whether the task was cancelled.
+         */
+        /*package*/ boolean cancel() {
+            if (!this.state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            this.timer.pendingTimeouts.decrementAndGet();
+            this.timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public void destroy() {
+            this.cancel();
+        }
+
+        private void expire() {
+            if (!this.state.compareAndSet(INIT, EXPIRED)) {
+                return;
+            }
+            this.timer.pendingTimeouts.decrementAndGet();
+            try {
+                this.task.run();
+            } catch (Throwable t) {
+                logger.warning("An error occured while running a timer task", t);
+            }
+        }
+    }
+
+    /**
+     * Doubly-linked list of the timeouts sharing the same slot of the wheel.
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (this.head == null) {
+                this.head = this.tail = timeout;
+            } else {
+                this.tail.next = timeout;
+                timeout.prev = this.tail;
+                this.tail = timeout;
+            }
+        }
+
+        void expireTimeouts(long deadline) {
+            Timeout timeout = this.head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.state.get() != Timeout.INIT) {
+                    this.remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    this.remove(timeout);
+                    if (timeout.deadline - timeout.timer.startTime <= deadline) {
+                        timeout.expire();
+                    } else {
+                        // should not happen, the timeout was placed in the wrong bucket
+                        timeout.timer.timeouts.add(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) return;
+
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == this.head) {
+                this.head = next;
+            }
+            if (timeout == this.tail) {
+                this.tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
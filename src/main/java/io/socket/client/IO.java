@@ -1,6 +1,7 @@
 package io.socket.client;
 
 
+import io.socket.logging.Log;
 import io.socket.parser.Parser;
 import okhttp3.Call;
 import okhttp3.WebSocket;
@@ -8,13 +9,11 @@ import okhttp3.WebSocket;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 
 public class IO {
 
-    private static final Logger logger = Logger.getLogger(IO.class.getName());
+    private static final Log logger = Log.getLog(IO.class);
 
     private static final ConcurrentHashMap<String, Manager> managers = new ConcurrentHashMap<>();
 
@@ -72,15 +71,11 @@ public class IO {
         }
 
         if (newConnection) {
-            if (logger.isLoggable(Level.FINE)) {
-                logger.fine(String.format("ignoring socket cache for %s", source));
-            }
+            logger.fine("ignoring socket cache for {0}", source);
             io = new Manager(source, opts);
         } else {
             if (!managers.containsKey(id)) {
-                if (logger.isLoggable(Level.FINE)) {
-                    logger.fine(String.format("new io instance for %s", source));
-                }
+                logger.fine("new io instance for {0}", source);
                 managers.putIfAbsent(id, new Manager(source, opts));
             }
             io = managers.get(id);
@@ -0,0 +1,154 @@
+package io.socket.client;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map with primitive {@code int} keys, used to store the pending acknowledgements
+ * without boxing the packet ids nor allocating an entry per ack.
+ *
+ * <p>Linear probing is used, with backward shift deletion so that no tombstone is left behind. Not
+ * thread-safe.</p>
+ *
+ * @param <V> the type of the values.
+ */
+/*package*/ final class IntObjectMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    /*package*/ IntObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /*package*/ IntObjectMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        // load factor of 0.5
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    /*package*/ V get(int key) {
+        int i = this.indexOf(key);
+        return i < 0 ? null : (V) this.values[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    /*package*/ V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        int i = hash(key) & this.mask;
+        while (this.values[i] != null) {
+            if (this.keys[i] == key) {
+                V previous = (V) this.values[i];
+                this.values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & this.mask;
+        }
+        this.keys[i] = key;
+        this.values[i] = value;
+        if (++this.size * 2 > this.values.length) {
+            this.rehash(this.values.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    /*package*/ V remove(int key) {
+        int i = this.indexOf(key);
+        if (i < 0) return null;
+
+        V previous = (V) this.values[i];
+        this.values[i] = null;
+        this.size--;
+
+        // shift back the following entries of the cluster, so that lookups do not stop at the hole
+        int hole = i;
+        int j = (i + 1) & this.mask;
+        while (this.values[j] != null) {
+            int home = hash(this.keys[j]) & this.mask;
+            if (((j - home) & this.mask) >= ((j - hole) & this.mask)) {
+                this.keys[hole] = this.keys[j];
+                this.values[hole] = this.values[j];
+                this.values[j] = null;
+                hole = j;
+            }
+            j = (j + 1) & this.mask;
+        }
+        return previous;
+    }
+
+    /*package*/ int size() {
+        return this.size;
+    }
+
+    /*package*/ boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return a copy of the keys, so that the map can be modified while iterating over them.
+     */
+    /*package*/ int[] keys() {
+        int[] keys = new int[this.size];
+        int n = 0;
+        for (int i = 0; i < this.values.length; i++) {
+            if (this.values[i] != null) {
+                keys[n++] = this.keys[i];
+            }
+        }
+        return keys;
+    }
+
+    /*package*/ void clear() {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    private int indexOf(int key) {
+        int i = hash(key) & this.mask;
+        while (this.values[i] != null) {
+            if (this.keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int j = hash(oldKeys[i]) & this.mask;
+                while (this.values[j] != null) {
+                    j = (j + 1) & this.mask;
+                }
+                this.keys[j] = oldKeys[i];
+                this.values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        // the ids are sequential, spread them to avoid long clusters
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
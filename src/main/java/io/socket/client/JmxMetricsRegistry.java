@@ -0,0 +1,337 @@
+package io.socket.client;
+
+import io.socket.logging.Log;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link MetricsRegistry} which exposes an MXBean per manager and per socket, named
+ * {@code io.socket.client:type=Manager,uri="...",id=N} and
+ * {@code io.socket.client:type=Socket,uri="...",nsp="...",id=N}.
+ *
+ * <pre>
+ * IO.Options opts = IO.Options.builder()
+ *     .setMetricsRegistry(new JmxMetricsRegistry())
+ *     .build();
+ * </pre>
+ *
+ * <p>The durations are recorded in histograms with power-of-two buckets, so the percentiles are the upper
+ * bounds of their bucket. Not available on Android, which has no JMX.</p>
+ */
+public class JmxMetricsRegistry implements MetricsRegistry {
+
+    private static final Log logger = Log.getLog(JmxMetricsRegistry.class);
+
+    public static final String DOMAIN = "io.socket.client";
+
+    private final MBeanServer server;
+    private final ConcurrentMap<Source, ObjectName> names = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+
+    public JmxMetricsRegistry() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsRegistry(MBeanServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public Recorder register(Source source) {
+        Metrics metrics = new Metrics(source);
+        try {
+            ObjectName name = this.nameOf(source);
+            this.server.registerMBean(new StandardMBean(metrics, MetricsMXBean.class, true), name);
+            ObjectName previous = this.names.put(source, name);
+            if (previous != null) {
+                this.unregister(previous);
+            }
+        } catch (JMException e) {
+            logger.warning("unable to register the metrics of {0}", source.uri(), e);
+            return null;
+        }
+        return metrics;
+    }
+
+    @Override
+    public void unregister(Source source) {
+        ObjectName name = this.names.remove(source);
+        if (name != null) {
+            this.unregister(name);
+        }
+    }
+
+    private void unregister(ObjectName name) {
+        try {
+            this.server.unregisterMBean(name);
+        } catch (JMException e) {
+            logger.fine("unable to unregister {0}", name, e);
+        }
+    }
+
+    private ObjectName nameOf(Source source) throws JMException {
+        StringBuilder name = new StringBuilder(DOMAIN)
+                .append(":type=").append(source.namespace() == null ? "Manager" : "Socket")
+                .append(",uri=").append(ObjectName.quote(String.valueOf(source.uri())));
+        if (source.namespace() != null) {
+            name.append(",nsp=").append(ObjectName.quote(source.namespace()));
+        }
+        name.append(",id=").append(this.ids.incrementAndGet());
+        return new ObjectName(name.toString());
+    }
+
+    /**
+     * Attributes of the MXBean of a manager or a socket.
+     */
+    public interface MetricsMXBean {
+
+        String getUri();
+
+        String getNamespace();
+
+        long getPacketsIn();
+
+        long getPacketsOut();
+
+        long getBytesIn();
+
+        long getBytesOut();
+
+        Histogram getDecodeTime();
+
+        Histogram getEncodeTime();
+
+        int getPacketBufferDepth();
+
+        int getSendBufferDepth();
+
+        int getReceiveBufferDepth();
+
+        int getPendingAcks();
+
+        Histogram getAckLatency();
+
+        long getReconnectAttempts();
+    }
+
+    /**
+     * Snapshot of the distribution of a duration, in nanoseconds.
+     */
+    public static final class Histogram {
+
+        private final long count;
+        private final long mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long max;
+
+        /*package*/ Histogram(long count, long mean, long p50, long p90, long p99, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public long getMean() {
+            return this.mean;
+        }
+
+        public long getP50() {
+            return this.p50;
+        }
+
+        public long getP90() {
+            return this.p90;
+        }
+
+        public long getP99() {
+            return this.p99;
+        }
+
+        public long getMax() {
+            return this.max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Histogram{count=%d, mean=%dns, p50=%dns, p90=%dns, p99=%dns, max=%dns}",
+                    this.count, this.mean, this.p50, this.p90, this.p99, this.max);
+        }
+    }
+
+    /**
+     * Lock-free histogram with a bucket per power of two.
+     */
+    /*package*/ static final class Buckets {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /*package*/ void record(long value) {
+            if (value < 0) value = 0;
+            this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value) - (value == 0 ? 0 : 1));
+            this.count.incrementAndGet();
+            this.sum.addAndGet(value);
+            long max;
+            while (value > (max = this.max.get()) && !this.max.compareAndSet(max, value)) {}
+        }
+
+        /*package*/ Histogram snapshot() {
+            long count = this.count.get();
+            long max = this.max.get();
+            return new Histogram(count, count > 0 ? this.sum.get() / count : 0,
+                    this.percentile(count, 0.5, max), this.percentile(count, 0.9, max),
+                    this.percentile(count, 0.99, max), max);
+        }
+
+        private long percentile(long count, double percentile, long max) {
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += this.buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    // upper bound of the bucket [2^i, 2^(i+1))
+                    return i >= 62 ? max : Math.min((2L << i) - 1, max);
+                }
+            }
+            return max;
+        }
+    }
+
+    private static final class Metrics implements Recorder, MetricsMXBean {
+
+        private final Source source;
+        private final AtomicLong packetsIn = new AtomicLong();
+        private final AtomicLong packetsOut = new AtomicLong();
+        private final AtomicLong bytesIn = new AtomicLong();
+        private final AtomicLong bytesOut = new AtomicLong();
+        private final AtomicLong reconnectAttempts = new AtomicLong();
+        private final Buckets decodeTime = new Buckets();
+        private final Buckets encodeTime = new Buckets();
+        private final Buckets ackLatency = new Buckets();
+
+        Metrics(Source source) {
+            this.source = source;
+        }
+
+        @Override
+        public void packetIn(long bytes) {
+            this.packetsIn.incrementAndGet();
+            this.bytesIn.addAndGet(bytes);
+        }
+
+        @Override
+        public void packetOut(long bytes) {
+            this.packetsOut.incrementAndGet();
+            this.bytesOut.addAndGet(bytes);
+        }
+
+        @Override
+        public void decodeTime(long nanos) {
+            this.decodeTime.record(nanos);
+        }
+
+        @Override
+        public void encodeTime(long nanos) {
+            this.encodeTime.record(nanos);
+        }
+
+        @Override
+        public void ackLatency(long nanos) {
+            this.ackLatency.record(nanos);
+        }
+
+        @Override
+        public void reconnectAttempt() {
+            this.reconnectAttempts.incrementAndGet();
+        }
+
+        @Override
+        public String getUri() {
+            return String.valueOf(this.source.uri());
+        }
+
+        @Override
+        public String getNamespace() {
+            return this.source.namespace();
+        }
+
+        @Override
+        public long getPacketsIn() {
+            return this.packetsIn.get();
+        }
+
+        @Override
+        public long getPacketsOut() {
+            return this.packetsOut.get();
+        }
+
+        @Override
+        public long getBytesIn() {
+            return this.bytesIn.get();
+        }
+
+        @Override
+        public long getBytesOut() {
+            return this.bytesOut.get();
+        }
+
+        @Override
+        public Histogram getDecodeTime() {
+            return this.decodeTime.snapshot();
+        }
+
+        @Override
+        public Histogram getEncodeTime() {
+            return this.encodeTime.snapshot();
+        }
+
+        @Override
+        public int getPacketBufferDepth() {
+            return this.source.packetBufferDepth();
+        }
+
+        @Override
+        public int getSendBufferDepth() {
+            return this.source.sendBufferDepth();
+        }
+
+        @Override
+        public int getReceiveBufferDepth() {
+            return this.source.receiveBufferDepth();
+        }
+
+        @Override
+        public int getPendingAcks() {
+            return this.source.pendingAcks();
+        }
+
+        @Override
+        public Histogram getAckLatency() {
+            return this.ackLatency.snapshot();
+        }
+
+        @Override
+        public long getReconnectAttempts() {
+            return this.reconnectAttempts.get();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package io.socket.client;
+
+import io.socket.logging.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the listeners of a {@link Socket} on the executor of {@link Manager.Options#listenerExecutor},
+ * so that a slow listener does not hold the event loop, and measures their execution time.
+ *
+ * <p>The listeners are queued in serial mailboxes (one per socket, or one per event name), so that they
+ * are called in order even with a multi-threaded executor. With one mailbox per event name, a reserved
+ * event is a barrier across all the mailboxes: its listeners run once the events received before it
+ * are handled, and before those received after it. Without executor, the listeners are called on the
+ * event loop and only measured.</p>
+ *
+ * <p>The mailbox of an event name is released once it is idle and the event has no listeners left, so
+ * that the events received once, or listened to for a while, do not each keep a mailbox.</p>
+ */
+/*package*/ final class ListenerDispatcher {
+
+    private static final Log logger = Log.getLog(ListenerDispatcher.class);
+
+    // number of listeners run before yielding the thread of the executor to the other mailboxes
+    private static final int MAX_BATCH = 64;
+
+    private final Socket socket;
+    private final Executor executor;
+    private final Socket.ListenerOrdering ordering;
+    private final long slowListenerThreshold;
+    private final Mailbox mailbox = new Mailbox();
+    /*package*/ final ConcurrentMap<String, Mailbox> eventMailboxes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Socket.ListenerStats> stats = new ConcurrentHashMap<>();
+    // guarded by this, the last barrier which is not released yet
+    private Barrier barrier;
+
+    /**
+     * @param socket the socket whose listeners are looked up before releasing a mailbox, or null to
+     *     release the mailboxes as soon as they are idle.
+     */
+    /*package*/ ListenerDispatcher(Socket socket, Executor executor, Socket.ListenerOrdering ordering,
+                                   long slowListenerThreshold) {
+        this.socket = socket;
+        this.executor = executor;
+        this.ordering = ordering != null ? ordering : Socket.ListenerOrdering.PER_SOCKET;
+        this.slowListenerThreshold = TimeUnit.MILLISECONDS.toNanos(slowListenerThreshold);
+    }
+
+    /**
+     * @return a dispatcher, or null if neither an executor, an ordering nor a threshold is configured.
+     */
+    /*package*/ static ListenerDispatcher create(Socket socket, Manager.Options opts) {
+        if (opts == null) {
+            return null;
+        }
+        Executor executor = opts.listenerExecutor;
+        if (executor == null && opts.listenerOrdering != null) {
+            executor = ListenerExecutors.shared();
+        }
+        if (executor == null && opts.slowListenerThreshold <= 0) {
+            return null;
+        }
+        return new ListenerDispatcher(socket, executor, opts.listenerOrdering, opts.slowListenerThreshold);
+    }
+
+    /**
+     * Runs the listeners of an incoming event.
+     */
+    /*package*/ void dispatch(String event, Runnable listeners) {
+        if (this.executor == null) {
+            this.run(event, listeners);
+        } else if (this.ordering == Socket.ListenerOrdering.PER_EVENT) {
+            Mailbox mailbox;
+            synchronized (this) {
+                mailbox = this.eventMailboxes.get(event);
+                if (mailbox == null) {
+                    mailbox = new Mailbox(event);
+                    if (this.barrier != null) {
+                        // the events received after a reserved event wait for its listeners
+                        mailbox.suspend();
+                        this.barrier.suspended.add(mailbox);
+                    }
+                    this.eventMailboxes.put(event, mailbox);
+                }
+                // queued under the lock, so that the mailbox is not released in between
+                mailbox.offer(event, listeners);
+            }
+            mailbox.schedule();
+        } else {
+            this.mailbox.add(event, listeners);
+        }
+    }
+
+    /**
+     * Runs the listeners of a reserved event (connect, disconnect...) or the callback of an ack (with
+     * a null event), in the mailbox of the socket. With {@link Socket.ListenerOrdering#PER_EVENT}, the
+     * listeners of a reserved event also wait for those of the events received before it, and hold
+     * those of the events received after it.
+     */
+    /*package*/ void dispatchReserved(String event, Runnable listeners) {
+        if (this.executor == null) {
+            this.run(event, listeners);
+        } else if (this.ordering == Socket.ListenerOrdering.PER_EVENT && event != null) {
+            synchronized (this) {
+                List<Mailbox> mailboxes = new ArrayList<>(this.eventMailboxes.values());
+                mailboxes.add(this.mailbox);
+                this.barrier = new Barrier(event, listeners, mailboxes.size());
+                for (Mailbox mailbox : mailboxes) {
+                    mailbox.add(this.barrier);
+                }
+            }
+        } else {
+            this.mailbox.add(event, listeners);
+        }
+    }
+
+    /**
+     * Releases the mailbox of the event, or all the mailboxes with a {@code null} event, if idle and
+     * without listeners.
+     */
+    /*package*/ void release(String event) {
+        if (event != null) {
+            Mailbox mailbox = this.eventMailboxes.get(event);
+            if (mailbox != null) {
+                this.release(mailbox);
+            }
+        } else {
+            for (Mailbox mailbox : this.eventMailboxes.values()) {
+                this.release(mailbox);
+            }
+        }
+    }
+
+    private void release(Mailbox mailbox) {
+        if (this.socket != null && this.socket.hasEventListeners(mailbox.event)) return;
+
+        synchronized (this) {
+            // a mailbox waiting for a barrier stays scheduled, and is released once resumed
+            if (mailbox.entries.isEmpty() && !mailbox.scheduled.get()) {
+                this.eventMailboxes.remove(mailbox.event, mailbox);
+            }
+        }
+    }
+
+    /*package*/ Map<String, Socket.ListenerStats> stats() {
+        return Collections.unmodifiableMap(this.stats);
+    }
+
+    private void run(String event, Runnable listeners) {
+        if (event == null) {
+            listeners.run();
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            listeners.run();
+        } finally {
+            this.record(event, System.nanoTime() - start);
+        }
+    }
+
+    private void record(String event, long duration) {
+        Socket.ListenerStats stats = this.stats.get(event);
+        if (stats == null) {
+            Socket.ListenerStats created = new Socket.ListenerStats();
+            stats = this.stats.putIfAbsent(event, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+
+        boolean slow = this.slowListenerThreshold > 0 && duration > this.slowListenerThreshold;
+        stats.record(duration, slow);
+        if (slow) {
+            logger.warning("the listeners of the event {0} took {1,number,#} ms", event,
+                    TimeUnit.NANOSECONDS.toMillis(duration));
+        }
+    }
+
+    /**
+     * Queue of listeners executed one at a time on the executor.
+     */
+    private final class Mailbox implements Runnable {
+
+        // null for the mailbox of the socket
+        private final String event;
+        private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+        // also set while the mailbox waits for a barrier, so that it is not scheduled
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Mailbox() {
+            this(null);
+        }
+
+        Mailbox(String event) {
+            this.event = event;
+        }
+
+        void add(String event, Runnable listeners) {
+            this.offer(event, listeners);
+            this.schedule();
+        }
+
+        void offer(String event, Runnable listeners) {
+            this.entries.add(new Entry(event, listeners, null));
+        }
+
+        void add(Barrier barrier) {
+            this.entries.add(new Entry(barrier.event, null, barrier));
+            this.schedule();
+        }
+
+        void suspend() {
+            this.scheduled.set(true);
+        }
+
+        void resume() {
+            this.scheduled.set(false);
+            if (!this.entries.isEmpty()) {
+                this.schedule();
+            } else if (this.event != null) {
+                ListenerDispatcher.this.release(this);
+            }
+        }
+
+        void schedule() {
+            if (!this.scheduled.compareAndSet(false, true)) return;
+            try {
+                ListenerDispatcher.this.executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                this.scheduled.set(false);
+                this.entries.clear();
+                logger.warning("the listener executor rejected the listeners, dropping them", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            Entry entry;
+            for (int i = 0; i < MAX_BATCH && (entry = this.entries.poll()) != null; i++) {
+                if (entry.barrier != null) {
+                    // stays scheduled until the barrier is released
+                    entry.barrier.arrive(this);
+                    return;
+                }
+                try {
+                    ListenerDispatcher.this.run(entry.event, entry.listeners);
+                } catch (RuntimeException e) {
+                    logger.warning("An error occured while running a listener", e);
+                }
+            }
+            this.resume();
+        }
+    }
+
+    /**
+     * Listeners of a reserved event, run once all the mailboxes have reached them.
+     */
+    private final class Barrier {
+
+        private final String event;
+        private final Runnable listeners;
+        private final AtomicInteger pending;
+        // guarded by the dispatcher
+        private final List<Mailbox> suspended = new ArrayList<>();
+
+        private Barrier(String event, Runnable listeners, int mailboxes) {
+            this.event = event;
+            this.listeners = listeners;
+            this.pending = new AtomicInteger(mailboxes);
+        }
+
+        private void arrive(Mailbox mailbox) {
+            List<Mailbox> mailboxes;
+            synchronized (ListenerDispatcher.this) {
+                this.suspended.add(mailbox);
+                if (this.pending.decrementAndGet() != 0) return;
+
+                if (ListenerDispatcher.this.barrier == this) {
+                    ListenerDispatcher.this.barrier = null;
+                }
+                mailboxes = new ArrayList<>(this.suspended);
+            }
+
+            try {
+                ListenerDispatcher.this.run(this.event, this.listeners);
+            } catch (RuntimeException e) {
+                logger.warning("An error occured while running a listener", e);
+            }
+            for (Mailbox suspended : mailboxes) {
+                suspended.resume();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final String event;
+        private final Runnable listeners;
+        private final Barrier barrier;
+
+        private Entry(String event, Runnable listeners, Barrier barrier) {
+            this.event = event;
+            this.listeners = listeners;
+            this.barrier = barrier;
+        }
+    }
+}
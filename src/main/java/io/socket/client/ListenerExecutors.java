@@ -0,0 +1,64 @@
+package io.socket.client;
+
+import io.socket.logging.Log;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for {@link Manager.Options#listenerExecutor} and {@link Manager.Options#listenerOrdering}.
+ */
+public final class ListenerExecutors {
+
+    private static final Log logger = Log.getLog(ListenerExecutors.class);
+
+    private ListenerExecutors() {}
+
+    /**
+     * Returns the executor shared by the sockets which set {@link Manager.Options#listenerOrdering}
+     * without {@link Manager.Options#listenerExecutor}, created by {@link #newDefault()} on first use.
+     * Its threads are daemon threads, so it does not need to be shut down.
+     *
+     * @return the shared executor.
+     */
+    public static Executor shared() {
+        return Shared.EXECUTOR;
+    }
+
+    /**
+     * Creates an executor which runs each task on a new virtual thread on JDK 21+, or on a cached pool
+     * of daemon threads otherwise.
+     *
+     * @return a new executor, to shut down once the sockets using it are closed.
+     */
+    public static ExecutorService newDefault() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            // before JDK 21
+        } catch (ReflectiveOperationException e) {
+            logger.fine("virtual threads are not available", e);
+        }
+
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "socket.io-listener-" + this.counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static final class Shared {
+
+        private static final Executor EXECUTOR = newDefault();
+    }
+}
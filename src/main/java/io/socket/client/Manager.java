@@ -2,8 +2,12 @@ package io.socket.client;
 
 import io.socket.backo.Backoff;
 import io.socket.emitter.Emitter;
+import io.socket.jfr.FlightEvents;
+import io.socket.logging.Log;
 import io.socket.parser.DecodingException;
 import io.socket.parser.IOParser;
+import io.socket.parser.JSONCodec;
+import io.socket.parser.OrgJSONCodec;
 import io.socket.parser.Packet;
 import io.socket.parser.Parser;
 import io.socket.thread.EventThread;
@@ -13,15 +17,16 @@ import okhttp3.WebSocket;
 import java.net.URI;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Manager class represents a connection to a given Socket.IO server.
  */
 public class Manager extends Emitter {
 
-    private static final Logger logger = Logger.getLogger(Manager.class.getName());
+    private static final Log logger = Log.getLog(Manager.class);
 
     /*package*/ enum ReadyState {
         CLOSED, OPENING, OPEN
@@ -37,7 +42,12 @@ public class Manager extends Emitter {
      */
     public static final String EVENT_CLOSE = "close";
 
+    /**
+     * Called with every decoded packet, before it is routed to the socket of its namespace. Meant for
+     * debugging, the sockets do not listen to this event.
+     */
     public static final String EVENT_PACKET = "packet";
+
     public static final String EVENT_ERROR = "error";
 
     /**
@@ -68,22 +78,46 @@ public class Manager extends Emitter {
     private boolean skipReconnect;
     private boolean reconnecting;
     private boolean encoding;
+    private boolean flushing;
+    private boolean flushScheduled;
     private int _reconnectionAttempts;
     private long _reconnectionDelay;
     private long _reconnectionDelayMax;
     private double _randomizationFactor;
     private Backoff backoff;
     private long _timeout;
+    private int _maxBatchSize;
+    private long _maxBatchDelay;
+    private final int volatileThreshold;
     private URI uri;
-    private List<Packet> packetBuffer;
+    private Deque<Packet> packetBuffer;
+    private On.Handle flushTimer;
+    private final Queue<Runnable> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean outboxScheduled = new AtomicBoolean();
+    private final Runnable drainOutbox = new Runnable() {
+        @Override
+        public void run() {
+            Manager.this.drainOutbox();
+        }
+    };
     private Queue<On.Handle> subs;
     private Options opts;
     /*package*/ io.socket.engineio.client.Socket engine;
     private Parser.Encoder encoder;
     private Parser.Decoder decoder;
+    /*package*/ final JSONCodec codec;
+    /*package*/ final EventLoop loop;
+    /*package*/ final MetricsRegistry metricsRegistry;
+    private final MetricsRegistry.Source metricsSource;
+
+    // only set when a metrics registry is configured
+    /*package*/ MetricsRegistry.Recorder metrics;
+    private long decodeStart;
+    private long decodeTime;
+    private long bytesIn;
 
     /**
-     * This HashMap can be accessed from outside of EventThread.
+     * This HashMap can be accessed from outside of the event loop.
      */
     /*package*/ ConcurrentHashMap<String, Socket> nsps;
 
@@ -126,12 +160,29 @@ public class Manager extends Emitter {
                 .setMax(this.reconnectionDelayMax())
                 .setJitter(this.randomizationFactor());
         this.timeout(opts.timeout);
+        this.maxBatchSize(opts.maxBatchSize != 0 ? opts.maxBatchSize : Integer.MAX_VALUE);
+        this.maxBatchDelay(opts.maxBatchDelay);
+        this.volatileThreshold = opts.volatileThreshold;
         this.readyState = ReadyState.CLOSED;
         this.uri = uri;
         this.encoding = false;
-        this.packetBuffer = new ArrayList<>();
-        this.encoder = opts.encoder != null ? opts.encoder : new IOParser.Encoder();
-        this.decoder = opts.decoder != null ? opts.decoder : new IOParser.Decoder();
+        this.packetBuffer = new ArrayDeque<>();
+        this.codec = opts.codec != null ? opts.codec : new OrgJSONCodec();
+        this.encoder = opts.encoder != null ? opts.encoder : new IOParser.Encoder(this.codec);
+        this.decoder = opts.decoder != null ? opts.decoder : new IOParser.Decoder(this.codec);
+        if (this.decoder instanceof IOParser.Decoder) {
+            // binds the arguments of the typed listeners while decoding
+            ((IOParser.Decoder) this.decoder).setArgumentTypes(new IOParser.Decoder.ArgumentTypes() {
+                @Override
+                public Class<?>[] get(String nsp, String event) {
+                    Socket socket = Manager.this.nsps.get(nsp);
+                    return socket != null ? socket.argumentTypes(event) : null;
+                }
+            });
+        }
+        this.loop = opts.eventLoopGroup != null ? opts.eventLoopGroup.next(uri) : EventLoop.DEFAULT;
+        this.metricsRegistry = opts.metricsRegistry;
+        this.metricsSource = this.metricsRegistry != null ? new MetricsSource() : null;
     }
 
     public boolean reconnection() {
@@ -147,6 +198,10 @@ public class Manager extends Emitter {
         return reconnecting;
     }
 
+    /*package*/ URI uri() {
+        return this.uri;
+    }
+
     public int reconnectionAttempts() {
         return this._reconnectionAttempts;
     }
@@ -201,6 +256,24 @@ public class Manager extends Emitter {
         return this;
     }
 
+    public int maxBatchSize() {
+        return this._maxBatchSize;
+    }
+
+    public Manager maxBatchSize(int v) {
+        this._maxBatchSize = v;
+        return this;
+    }
+
+    public long maxBatchDelay() {
+        return this._maxBatchDelay;
+    }
+
+    public Manager maxBatchDelay(long v) {
+        this._maxBatchDelay = v;
+        return this;
+    }
+
     private void maybeReconnectOnOpen() {
         // Only try to reconnect if it's the first time we're connecting
         if (!this.reconnecting && this._reconnection && this.backoff.getAttempts() == 0) {
@@ -219,40 +292,39 @@ public class Manager extends Emitter {
      * @return a reference to this object.
      */
     public Manager open(final OpenCallback fn) {
-        EventThread.exec(new Runnable() {
+        this.loop.exec(new Runnable() {
             @Override
             public void run() {
-                if (logger.isLoggable(Level.FINE)) {
-                    logger.fine(String.format("readyState %s", Manager.this.readyState));
-                }
+                logger.fine("readyState {0}", Manager.this.readyState);
                 if (Manager.this.readyState == ReadyState.OPEN || Manager.this.readyState == ReadyState.OPENING) return;
 
-                if (logger.isLoggable(Level.FINE)) {
-                    logger.fine(String.format("opening %s", Manager.this.uri));
-                }
+                logger.fine("opening {0}", Manager.this.uri);
                 Manager.this.engine = new Engine(Manager.this.uri, Manager.this.opts);
                 final io.socket.engineio.client.Socket socket = Manager.this.engine;
                 final Manager self = Manager.this;
                 Manager.this.readyState = ReadyState.OPENING;
                 Manager.this.skipReconnect = false;
+                if (self.metricsRegistry != null && self.metrics == null) {
+                    self.metrics = self.metricsRegistry.register(self.metricsSource);
+                }
 
                 // propagate transport event.
-                socket.on(Engine.EVENT_TRANSPORT, new Listener() {
+                socket.on(Engine.EVENT_TRANSPORT, self.onLoop(new Listener() {
                     @Override
                     public void call(Object... args) {
                         self.emit(Manager.EVENT_TRANSPORT, args);
                     }
-                });
+                }));
 
-                final On.Handle openSub = On.on(socket, Engine.EVENT_OPEN, new Listener() {
+                final On.Handle openSub = On.on(socket, Engine.EVENT_OPEN, self.onLoop(new Listener() {
                     @Override
                     public void call(Object... objects) {
                         self.onopen();
                         if (fn != null) fn.call(null);
                     }
-                });
+                }));
 
-                On.Handle errorSub = On.on(socket, Engine.EVENT_ERROR, new Listener() {
+                On.Handle errorSub = On.on(socket, Engine.EVENT_ERROR, self.onLoop(new Listener() {
                     @Override
                     public void call(Object... objects) {
                         Object data = objects.length > 0 ? objects[0] : null;
@@ -269,13 +341,13 @@ public class Manager extends Emitter {
                             self.maybeReconnectOnOpen();
                         }
                     }
-                });
+                }));
 
                 final long timeout = Manager.this._timeout;
                 final Runnable onTimeout = new Runnable() {
                     @Override
                     public void run() {
-                        logger.fine(String.format("connect attempt timed out after %d", timeout));
+                        logger.fine("connect attempt timed out after {0,number,#}", timeout);
                         openSub.destroy();
                         socket.close();
                         socket.emit(Engine.EVENT_ERROR, new SocketIOException("timeout"));
@@ -283,25 +355,19 @@ public class Manager extends Emitter {
                 };
 
                 if (timeout == 0) {
-                    EventThread.exec(onTimeout);
+                    self.loop.exec(onTimeout);
                     return;
                 } else if (Manager.this._timeout > 0) {
-                    logger.fine(String.format("connection attempt will timeout after %d", timeout));
+                    logger.fine("connection attempt will timeout after {0,number,#}", timeout);
 
-                    final Timer timer = new Timer();
-                    timer.schedule(new TimerTask() {
+                    final On.Handle timer = HashedWheelTimer.shared().schedule(new Runnable() {
                         @Override
                         public void run() {
-                            EventThread.exec(onTimeout);
+                            self.loop.exec(onTimeout);
                         }
                     }, timeout);
 
-                    Manager.this.subs.add(new On.Handle() {
-                        @Override
-                        public void destroy() {
-                            timer.cancel();
-                        }
-                    });
+                    Manager.this.subs.add(timer);
                 }
 
                 Manager.this.subs.add(openSub);
@@ -322,10 +388,15 @@ public class Manager extends Emitter {
         this.emit(EVENT_OPEN);
 
         final io.socket.engineio.client.Socket socket = this.engine;
-        this.subs.add(On.on(socket, Engine.EVENT_DATA, new Listener() {
+        this.subs.add(On.on(socket, Engine.EVENT_DATA, this.onLoop(new Listener() {
             @Override
             public void call(Object... objects) {
                 Object data = objects[0];
+                boolean measured = Manager.this.metrics != null;
+                if (measured) {
+                    Manager.this.decodeStart = System.nanoTime();
+                    Manager.this.bytesIn += sizeOf(data);
+                }
                 try {
                     if (data instanceof String) {
                         Manager.this.decoder.add((String) data);
@@ -333,22 +404,26 @@ public class Manager extends Emitter {
                         Manager.this.decoder.add((byte[]) data);
                     }
                 } catch (DecodingException e) {
-                    logger.fine("error while decoding the packet: " + e.getMessage());
+                    logger.fine("error while decoding the packet: {0}", e.getMessage());
+                }
+                if (measured && Manager.this.bytesIn > 0) {
+                    // the packet waits for its binary attachments
+                    Manager.this.decodeTime += System.nanoTime() - Manager.this.decodeStart;
                 }
             }
-        }));
-        this.subs.add(On.on(socket, Engine.EVENT_ERROR, new Listener() {
+        })));
+        this.subs.add(On.on(socket, Engine.EVENT_ERROR, this.onLoop(new Listener() {
             @Override
             public void call(Object... objects) {
                 Manager.this.onerror((Exception)objects[0]);
             }
-        }));
-        this.subs.add(On.on(socket, Engine.EVENT_CLOSE, new Listener() {
+        })));
+        this.subs.add(On.on(socket, Engine.EVENT_CLOSE, this.onLoop(new Listener() {
             @Override
             public void call(Object... objects) {
                 Manager.this.onclose((String)objects[0]);
             }
-        }));
+        })));
         this.decoder.onDecoded(new Parser.Decoder.Callback() {
             @Override
             public void call (Packet packet) {
@@ -357,12 +432,57 @@ public class Manager extends Emitter {
         });
     }
 
-    private void ondecoded(Packet packet) {
-        this.emit(EVENT_PACKET, packet);
+    /**
+     * Wraps a listener of the engine, whose events are emitted on the EventThread, so that it runs on
+     * the loop of this manager.
+     */
+    private Listener onLoop(final Listener listener) {
+        if (this.loop == EventLoop.DEFAULT) return listener;
+
+        return new Listener() {
+            @Override
+            public void call(final Object... args) {
+                Manager.this.loop.exec(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.call(args);
+                    }
+                });
+            }
+        };
+    }
+
+    /*package*/ void ondecoded(Packet packet) {
+        long decodeTime = 0;
+        long bytes = 0;
+        MetricsRegistry.Recorder metrics = this.metrics;
+        if (metrics != null) {
+            decodeTime = this.decodeTime + System.nanoTime() - this.decodeStart;
+            bytes = this.bytesIn;
+            this.decodeTime = 0;
+            this.bytesIn = 0;
+            metrics.decodeTime(decodeTime);
+            metrics.packetIn(bytes);
+        }
+
+        if (this.hasListeners(EVENT_PACKET)) {
+            this.emit(EVENT_PACKET, packet);
+        }
+
+        Socket socket = this.nsps.get(packet.nsp);
+        if (socket != null) {
+            if (socket.metrics != null) {
+                socket.metrics.decodeTime(decodeTime);
+                socket.metrics.packetIn(bytes);
+            }
+            socket.onpacket(packet);
+        } else {
+            logger.fine("ignoring packet for namespace {0}", packet.nsp);
+        }
     }
 
     private void onerror(Exception err) {
-        logger.log(Level.FINE, "error", err);
+        logger.fine("error", err);
         this.emit(EVENT_ERROR, err);
     }
 
@@ -401,38 +521,200 @@ public class Manager extends Emitter {
         }
     }
 
+    /**
+     * Executes a task submitted by a socket from outside the event loop. The tasks submitted while the
+     * loop is busy are executed together, in a single task of the loop.
+     */
+    /*package*/ void submit(Runnable task) {
+        this.outbox.add(task);
+        if (this.outboxScheduled.compareAndSet(false, true)) {
+            this.loop.nextTick(this.drainOutbox);
+        }
+    }
+
+    private void drainOutbox() {
+        // reset before polling, so that a task added after the last poll schedules another drain
+        this.outboxScheduled.set(false);
+
+        Runnable task;
+        while ((task = this.outbox.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.warning("An error occured while emitting a packet", e);
+            }
+        }
+    }
+
     /*package*/ void packet(Packet packet) {
-        if (logger.isLoggable(Level.FINE)) {
-            logger.fine(String.format("writing packet %s", packet));
+        logger.fine("writing packet {0}", packet);
+
+        // the packets are written in batches, so that the transport can send them together
+        this.packetBuffer.add(packet);
+        if (this.packetBuffer.size() >= this._maxBatchSize) {
+            this.flushPacketQueue(this._maxBatchSize);
+        } else {
+            this.scheduleFlush();
         }
+    }
+
+    /**
+     * @return whether the volatile packets should be dropped, because too many packets wait to be
+     *     encoded.
+     */
+    /*package*/ boolean isCongested() {
+        return this.volatileThreshold > 0 && this.packetBuffer.size() >= this.volatileThreshold;
+    }
+
+    private void scheduleFlush() {
+        if (this.flushScheduled || this.packetBuffer.isEmpty()) return;
+        this.flushScheduled = true;
+
         final Manager self = this;
+        final Runnable flush = new Runnable() {
+            @Override
+            public void run() {
+                self.flushScheduled = false;
+                self.flushTimer = null;
+                self.flushPacketQueue(self._maxBatchSize);
+            }
+        };
 
-        if (!self.encoding) {
-            self.encoding = true;
-            this.encoder.encode(packet, new Parser.Encoder.Callback() {
+        if (this._maxBatchDelay > 0) {
+            this.flushTimer = HashedWheelTimer.shared().schedule(new Runnable() {
                 @Override
-                public void call(Object[] encodedPackets) {
-                    for (Object packet : encodedPackets) {
-                        if (packet instanceof String) {
-                            self.engine.write((String)packet);
-                        } else if (packet instanceof byte[]) {
-                            self.engine.write((byte[])packet);
-                        }
-                    }
-                    self.encoding = false;
-                    self.processPacketQueue();
+                public void run() {
+                    self.loop.exec(flush);
                 }
-            });
+            }, this._maxBatchDelay);
         } else {
-            self.packetBuffer.add(packet);
+            this.loop.nextTick(flush);
+        }
+    }
+
+    /**
+     * Writes the frames to the engine in a single task of the EventThread. The engine sends the first one
+     * right away, and buffers the next ones until the transport drains, so that they are sent together
+     * whatever their number.
+     */
+    private void write(List<Object> frames) {
+        if (frames.isEmpty()) return;
+
+        // the list is reused by the caller before the task runs
+        final Object[] batch = frames.toArray();
+        final io.socket.engineio.client.Socket engine = this.engine;
+        EventThread.exec(new Runnable() {
+            @Override
+            public void run() {
+                for (Object frame : batch) {
+                    if (frame instanceof String) {
+                        engine.write((String) frame);
+                    } else {
+                        engine.write((byte[]) frame);
+                    }
+                }
+            }
+        });
+    }
+
+    private void flushPacketQueue(int max) {
+        if (this.flushing) return;
+        this.flushing = true;
+
+        final Manager self = this;
+        // the frames of the packets encoded synchronously, written to the engine together
+        final List<Object> frames = new ArrayList<>();
+        int count = 0;
+        Packet packet;
+        while (!this.encoding && count < max && (packet = this.packetBuffer.poll()) != null) {
+            count++;
+            if (packet instanceof Socket.LatestPacket) {
+                // the next versions of the state cannot be merged into this one anymore
+                ((Socket.LatestPacket) packet).detach();
+            }
+            this.encoding = true;
+            final MetricsRegistry.Recorder metrics = this.metrics;
+            final long encodeStart = metrics != null ? System.nanoTime() : 0;
+            final String nsp = packet.nsp;
+            try {
+                this.encoder.encode(packet, new Parser.Encoder.Callback() {
+                    @Override
+                    public void call(Object[] encodedPackets) {
+                        if (metrics != null) {
+                            self.onencoded(metrics, nsp, encodedPackets, System.nanoTime() - encodeStart);
+                        }
+                        for (Object packet : encodedPackets) {
+                            if (packet instanceof String || packet instanceof byte[]) {
+                                frames.add(packet);
+                            }
+                        }
+                        self.encoding = false;
+                        if (!self.flushing) {
+                            // asynchronous encoder
+                            self.write(frames);
+                            frames.clear();
+                            self.scheduleFlush();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                // like a value the codec cannot serialize: the packet is dropped instead of blocking the queue
+                logger.warning("unable to encode packet {0}", packet, e);
+                this.encoding = false;
+            }
+        }
+
+        if (count > 0) {
+            logger.fine("flushed {0,number,#} packets", count);
+        }
+        this.write(frames);
+        frames.clear();
+        this.flushing = false;
+        if (!this.encoding) {
+            this.scheduleFlush();
+        }
+    }
+
+    private void onencoded(MetricsRegistry.Recorder metrics, String nsp, Object[] encodedPackets, long encodeTime) {
+        long bytes = 0;
+        for (Object packet : encodedPackets) {
+            bytes += sizeOf(packet);
+        }
+        metrics.encodeTime(encodeTime);
+        metrics.packetOut(bytes);
+
+        Socket socket = this.nsps.get(nsp);
+        if (socket != null && socket.metrics != null) {
+            socket.metrics.encodeTime(encodeTime);
+            socket.metrics.packetOut(bytes);
         }
     }
 
-    private void processPacketQueue() {
-        if (!this.packetBuffer.isEmpty() && !this.encoding) {
-            Packet pack = this.packetBuffer.remove(0);
-            this.packet(pack);
+    /**
+     * @return the size in bytes of a frame, without encoding the strings.
+     */
+    private static long sizeOf(Object data) {
+        if (data instanceof byte[]) {
+            return ((byte[]) data).length;
+        } else if (!(data instanceof String)) {
+            return 0;
+        }
+        String str = (String) data;
+        long size = 0;
+        for (int i = 0, length = str.length(); i < length; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                size++;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isSurrogate(c)) {
+                // 4 bytes for a surrogate pair
+                size += 2;
+            } else {
+                size += 3;
+            }
         }
+        return size;
     }
 
     private void cleanup() {
@@ -442,8 +724,20 @@ public class Manager extends Emitter {
         while ((sub = this.subs.poll()) != null) sub.destroy();
         this.decoder.onDecoded(null);
 
+        if (this.flushTimer != null) {
+            this.flushTimer.destroy();
+            this.flushTimer = null;
+            this.flushScheduled = false;
+        }
+        for (Packet packet : this.packetBuffer) {
+            if (packet instanceof Socket.LatestPacket) {
+                ((Socket.LatestPacket) packet).detach();
+            }
+        }
         this.packetBuffer.clear();
         this.encoding = false;
+        this.decodeTime = 0;
+        this.bytesIn = 0;
 
         this.decoder.destroy();
     }
@@ -452,7 +746,10 @@ public class Manager extends Emitter {
         logger.fine("disconnect");
         this.skipReconnect = true;
         this.reconnecting = false;
-        if (this.readyState != ReadyState.OPEN) {
+        if (this.readyState == ReadyState.OPEN) {
+            // write the pending packets (like the DISCONNECT packets) before closing the engine
+            this.flushPacketQueue(Integer.MAX_VALUE);
+        } else {
             // `onclose` will not fire because
             // an open event never happened
             this.cleanup();
@@ -462,6 +759,10 @@ public class Manager extends Emitter {
         if (this.engine != null) {
             this.engine.close();
         }
+        if (this.metrics != null) {
+            this.metrics = null;
+            this.metricsRegistry.unregister(this.metricsSource);
+        }
     }
 
     private void onclose(String reason) {
@@ -488,28 +789,34 @@ public class Manager extends Emitter {
             this.reconnecting = false;
         } else {
             long delay = this.backoff.duration();
-            logger.fine(String.format("will wait %dms before reconnect attempt", delay));
+            logger.fine("will wait {0,number,#}ms before reconnect attempt", delay);
 
             this.reconnecting = true;
-            final Timer timer = new Timer();
-            timer.schedule(new TimerTask() {
+            final On.Handle timer = HashedWheelTimer.shared().schedule(new Runnable() {
                 @Override
                 public void run() {
-                    EventThread.exec(new Runnable() {
+                    self.loop.exec(new Runnable() {
                         @Override
                         public void run() {
                             if (self.skipReconnect) return;
 
                             logger.fine("attempting reconnect");
-                            int attempts = self.backoff.getAttempts();
+                            final int attempts = self.backoff.getAttempts();
+                            if (self.metrics != null) {
+                                self.metrics.reconnectAttempt();
+                            }
                             self.emit(EVENT_RECONNECT_ATTEMPT, attempts);
 
                             // check again for the case socket closed in above events
                             if (self.skipReconnect) return;
 
+                            final Object event = FlightEvents.beginReconnect();
                             self.open(new OpenCallback() {
                                 @Override
                                 public void call(Exception err) {
+                                    if (event != null) {
+                                        FlightEvents.commitReconnect(event, self.uri, attempts, err == null);
+                                    }
                                     if (err != null) {
                                         logger.fine("reconnect attempt error");
                                         self.reconnecting = false;
@@ -526,12 +833,7 @@ public class Manager extends Emitter {
                 }
             }, delay);
 
-            this.subs.add(new On.Handle() {
-                @Override
-                public void destroy() {
-                    timer.cancel();
-                }
-            });
+            this.subs.add(timer);
         }
     }
 
@@ -549,6 +851,54 @@ public class Manager extends Emitter {
     }
 
 
+    /**
+     * Gauges of the manager, read by the metrics registry from any thread.
+     */
+    private final class MetricsSource implements MetricsRegistry.Source {
+
+        @Override
+        public URI uri() {
+            return Manager.this.uri();
+        }
+
+        @Override
+        public String namespace() {
+            return null;
+        }
+
+        @Override
+        public int packetBufferDepth() {
+            return Manager.this.packetBuffer.size();
+        }
+
+        @Override
+        public int sendBufferDepth() {
+            int depth = 0;
+            for (Socket socket : Manager.this.nsps.values()) {
+                depth += socket.sendBufferDepth();
+            }
+            return depth;
+        }
+
+        @Override
+        public int receiveBufferDepth() {
+            int depth = 0;
+            for (Socket socket : Manager.this.nsps.values()) {
+                depth += socket.receiveBufferDepth();
+            }
+            return depth;
+        }
+
+        @Override
+        public int pendingAcks() {
+            int count = 0;
+            for (Socket socket : Manager.this.nsps.values()) {
+                count += socket.pendingAcks();
+            }
+            return count;
+        }
+    }
+
     private static class Engine extends io.socket.engineio.client.Socket {
 
         Engine(URI uri, Options opts) {
@@ -565,11 +915,111 @@ public class Manager extends Emitter {
         public double randomizationFactor;
         public Parser.Encoder encoder;
         public Parser.Decoder decoder;
+
+        /**
+         * Codec used by the default encoder and decoder to convert the payloads from and to JSON, and by
+         * the typed listeners to convert their argument. Defaults to {@link OrgJSONCodec}.
+         */
+        public JSONCodec codec;
         public Map<String, String> auth;
 
         /**
          * Connection timeout (ms). Set -1 to disable.
          */
         public long timeout = 20000;
+
+        /**
+         * Maximum number of packets written to the engine at once. Defaults to no limit.
+         */
+        public int maxBatchSize;
+
+        /**
+         * Maximum delay (ms) before the queued packets are written to the engine. Defaults to 0, which
+         * means that the packets emitted during a same tick of the event loop are written together: the
+         * transport sends the first one right away, and all the others in a single write once it drains.
+         */
+        public long maxBatchDelay;
+
+        /**
+         * Number of packets waiting to be encoded above which {@link Socket#emitVolatile(String, Object...)}
+         * drops its packets. Defaults to 0, which means that they are only dropped while disconnected.
+         */
+        public int volatileThreshold;
+
+        /**
+         * Maximum number of packets buffered by each socket (while disconnected, or waiting to be sent).
+         * Defaults to 0, which means no limit.
+         */
+        public int maxBufferedPackets;
+
+        /**
+         * Maximum estimated size in bytes of the packets buffered by each socket. Defaults to 0, which
+         * means no limit.
+         */
+        public long maxBufferedBytes;
+
+        /**
+         * Size in bytes of the buffered packets above which {@link Socket#isWritable()} returns false.
+         * Defaults to 0, which means that the socket is writable as long as the buffer is not full.
+         */
+        public long highWaterMark;
+
+        /**
+         * Size in bytes of the buffered packets below which the socket becomes writable again, and
+         * emits {@link Socket#EVENT_DRAIN}.
+         */
+        public long lowWaterMark;
+
+        /**
+         * What to do when a packet is emitted while the buffer is full. Defaults to
+         * {@link Socket.OverflowPolicy#FAIL}.
+         */
+        public Socket.OverflowPolicy overflowPolicy;
+
+        /**
+         * What happens to the pending acks when the socket is disconnected. Defaults to
+         * {@link Socket.AckPolicy#FAIL}.
+         */
+        public Socket.AckPolicy ackPolicy;
+
+        /**
+         * Journal to which the acknowledged events are appended before being sent, so that they are sent
+         * again after a restart of the process until the server acknowledges them. A journal can only be
+         * used by a single namespace. Defaults to null, which means that nothing is persisted.
+         */
+        public OutboundJournal journal;
+
+        /**
+         * Group of event loops on which the manager and its sockets run. Defaults to null, which means
+         * that all the managers share the EventThread.
+         */
+        public EventLoopGroup eventLoopGroup;
+
+        /**
+         * Executor on which the listeners of each socket are called, instead of the event loop. See
+         * {@link ListenerExecutors#newDefault()}. Defaults to null, which means that the listeners are
+         * called on the event loop.
+         */
+        public Executor listenerExecutor;
+
+        /**
+         * Order in which the listeners are called on the {@link #listenerExecutor}, or on
+         * {@link ListenerExecutors#shared()} (virtual threads on JDK 21+) when no executor is set.
+         * Defaults to null, which means {@link Socket.ListenerOrdering#PER_SOCKET} with an executor, and
+         * the event loop otherwise.
+         */
+        public Socket.ListenerOrdering listenerOrdering;
+
+        /**
+         * Duration (ms) above which the execution of the listeners of an event is logged and counted in
+         * {@link Socket#listenerStats()}. Defaults to 0, which means no threshold.
+         */
+        public long slowListenerThreshold;
+
+        /**
+         * Registry to which the manager and its sockets report their metrics, like
+         * {@link JmxMetricsRegistry}. Defaults to null, which means that nothing is measured.
+         */
+        public MetricsRegistry metricsRegistry;
     }
 }
@@ -0,0 +1,92 @@
+package io.socket.client;
+
+import java.net.URI;
+
+/**
+ * Service provider interface to monitor the managers and their sockets, see
+ * {@link Manager.Options#metricsRegistry}. {@link JmxMetricsRegistry} exposes the metrics over JMX.
+ *
+ * <p>A manager registers itself when it opens, and each of its sockets when it connects. The
+ * {@link Recorder} returned by the registry is then called on the event loop with primitive values only,
+ * so an implementation can record without allocating, and must not block. Without registry, nothing is
+ * measured.</p>
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Called when a manager opens, or when a socket connects.
+     *
+     * @param source the manager or the socket.
+     * @return the recorder of the source, or null to ignore it.
+     */
+    Recorder register(Source source);
+
+    /**
+     * Called when a manager or a socket is closed.
+     *
+     * @param source the manager or the socket.
+     */
+    void unregister(Source source);
+
+    /**
+     * A manager (with a null namespace) or one of its sockets. The depths are read without
+     * synchronization from the calling thread, and are approximate.
+     */
+    interface Source {
+
+        URI uri();
+
+        /**
+         * @return the namespace of the socket, or null for the manager.
+         */
+        String namespace();
+
+        /**
+         * @return the number of packets waiting to be encoded and written by the manager (0 for a socket).
+         */
+        int packetBufferDepth();
+
+        /**
+         * @return the number of packets emitted while disconnected (the sum for the manager).
+         */
+        int sendBufferDepth();
+
+        /**
+         * @return the number of packets received before the connection to the namespace (the sum for
+         *     the manager).
+         */
+        int receiveBufferDepth();
+
+        /**
+         * @return the number of acknowledgements waiting for the server (the sum for the manager).
+         */
+        int pendingAcks();
+    }
+
+    /**
+     * Receives the measures of a source, on its event loop.
+     */
+    interface Recorder {
+
+        /**
+         * @param bytes the size of the frames of the decoded packet.
+         */
+        void packetIn(long bytes);
+
+        /**
+         * @param bytes the size of the frames of the encoded packet.
+         */
+        void packetOut(long bytes);
+
+        void decodeTime(long nanos);
+
+        void encodeTime(long nanos);
+
+        /**
+         * @param nanos the delay between the emission of a packet and its acknowledgement.
+         */
+        void ackLatency(long nanos);
+
+        void reconnectAttempt();
+    }
+}
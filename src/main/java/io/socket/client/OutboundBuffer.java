@@ -0,0 +1,235 @@
+package io.socket.client;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Accounting of the packets emitted by a {@link Socket} and not yet handed to the {@link Manager}, either
+ * because they are waiting for the event loop or because the socket is disconnected.
+ *
+ * <p>The space is reserved by the producer thread in {@link #reserve(long)}, so that the limits also
+ * apply to the tasks queued on the event loop, and released on the event loop.</p>
+ */
+/*package*/ final class OutboundBuffer {
+
+    private final int maxPackets;
+    private final long maxBytes;
+    private final long highWaterMark;
+    private final long lowWaterMark;
+    private final Socket.OverflowPolicy overflowPolicy;
+    private final boolean trackBytes;
+
+    private final Object lock = new Object();
+    private int packets;
+    private long bytes;
+    private long droppedPackets;
+    private volatile boolean writable = true;
+
+    /*package*/ OutboundBuffer(Manager.Options opts) {
+        this.maxPackets = opts != null ? opts.maxBufferedPackets : 0;
+        this.maxBytes = opts != null ? opts.maxBufferedBytes : 0;
+        this.highWaterMark = opts != null ? opts.highWaterMark : 0;
+        this.lowWaterMark = opts != null ? Math.min(opts.lowWaterMark, this.highWaterMark) : 0;
+        this.overflowPolicy = opts != null && opts.overflowPolicy != null ? opts.overflowPolicy : Socket.OverflowPolicy.FAIL;
+        this.trackBytes = this.maxBytes > 0 || this.highWaterMark > 0;
+    }
+
+    /*package*/ Socket.OverflowPolicy overflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    /**
+     * Estimates the size of the payload, if the byte limits are enabled.
+     *
+     * @param event the event name.
+     * @param args the arguments, an {@link Ack} is ignored.
+     * @return the estimated size in bytes.
+     */
+    /*package*/ long sizeOf(String event, Object[] args) {
+        if (!this.trackBytes) return 0;
+
+        long size = estimate(event);
+        if (args != null) {
+            for (Object arg : args) {
+                size += estimate(arg);
+            }
+        }
+        return size;
+    }
+
+    /*package*/ long sizeOf(JSONArray data) {
+        return this.trackBytes ? estimate(data) : 0;
+    }
+
+    /**
+     * Reserves space for a packet, applying the overflow policy if the buffer is full.
+     *
+     * @param size the estimated size of the packet.
+     * @return whether the packet was accepted.
+     * @throws IllegalStateException if the buffer is full and the policy is {@code FAIL}, or
+     *     {@code BLOCK} when called from an event loop.
+     */
+    /*package*/ boolean reserve(long size) {
+        synchronized (this.lock) {
+            while (!this.fits(size)) {
+                switch (this.overflowPolicy) {
+                    case DROP_OLDEST:
+                        // the socket drops the oldest buffered packets once on the event loop
+                        this.add(size);
+                        return true;
+                    case DROP_NEWEST:
+                        this.droppedPackets++;
+                        return false;
+                    case BLOCK:
+                        if (!EventLoop.inEventLoop()) {
+                            try {
+                                this.lock.wait();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new IllegalStateException("interrupted while waiting for the outbound buffer", e);
+                            }
+                            continue;
+                        }
+                        // blocking an event loop would prevent the buffer from ever draining
+                    default:
+                        throw new IllegalStateException("outbound buffer is full");
+                }
+            }
+            this.add(size);
+            return true;
+        }
+    }
+
+    /**
+     * Adds a packet restored from the journal, regardless of the limits.
+     *
+     * @param size the estimated size of the packet.
+     */
+    /*package*/ void restore(long size) {
+        synchronized (this.lock) {
+            this.add(size);
+        }
+    }
+
+    /**
+     * Releases the space of a packet which was handed to the manager or dropped.
+     *
+     * @param size the estimated size of the packet.
+     * @param dropped whether the packet was dropped.
+     * @return whether the buffer became writable again.
+     */
+    /*package*/ boolean release(long size, boolean dropped) {
+        synchronized (this.lock) {
+            this.packets--;
+            this.bytes -= size;
+            if (dropped) {
+                this.droppedPackets++;
+            }
+            this.lock.notifyAll();
+
+            if (this.writable || this.isFull() || (this.highWaterMark > 0 && this.bytes > this.lowWaterMark)) {
+                return false;
+            }
+            this.writable = true;
+            return true;
+        }
+    }
+
+    /*package*/ boolean isOverLimit() {
+        synchronized (this.lock) {
+            return (this.maxPackets > 0 && this.packets > this.maxPackets)
+                    || (this.maxBytes > 0 && this.bytes > this.maxBytes && this.packets > 1);
+        }
+    }
+
+    /*package*/ boolean isWritable() {
+        return this.writable;
+    }
+
+    /*package*/ int packets() {
+        synchronized (this.lock) {
+            return this.packets;
+        }
+    }
+
+    /*package*/ long bytes() {
+        synchronized (this.lock) {
+            return this.bytes;
+        }
+    }
+
+    /*package*/ long droppedPackets() {
+        synchronized (this.lock) {
+            return this.droppedPackets;
+        }
+    }
+
+    private boolean fits(long size) {
+        if (this.maxPackets > 0 && this.packets >= this.maxPackets) return false;
+        // a packet larger than the limit is accepted when the buffer is empty
+        return this.maxBytes <= 0 || this.packets == 0 || this.bytes + size <= this.maxBytes;
+    }
+
+    private boolean isFull() {
+        return (this.maxPackets > 0 && this.packets >= this.maxPackets)
+                || (this.maxBytes > 0 && this.bytes >= this.maxBytes);
+    }
+
+    private void add(long size) {
+        this.packets++;
+        this.bytes += size;
+        if (this.writable && (this.isFull() || (this.highWaterMark > 0 && this.bytes >= this.highWaterMark))) {
+            this.writable = false;
+        }
+    }
+
+    private static long estimate(Object value) {
+        if (value == null || value instanceof Ack) {
+            return 0;
+        } else if (value instanceof String) {
+            return ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            long size = 0;
+            for (int i = 0, length = array.length(); i < length; i++) {
+                size += estimate(array.opt(i));
+            }
+            return size;
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            long size = 0;
+            Iterator<?> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                size += key.length() + estimate(object.opt(key));
+            }
+            return size;
+        } else if (value instanceof Collection) {
+            long size = 0;
+            for (Object item : (Collection<?>) value) {
+                size += estimate(item);
+            }
+            return size;
+        } else if (value instanceof Map) {
+            long size = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += estimate(entry.getKey()) + estimate(entry.getValue());
+            }
+            return size;
+        } else if (value instanceof Object[]) {
+            long size = 0;
+            for (Object item : (Object[]) value) {
+                size += estimate(item);
+            }
+            return size;
+        }
+        // numbers, booleans, JSONObject.NULL...
+        return 8;
+    }
+}
@@ -0,0 +1,527 @@
+package io.socket.client;
+
+import io.socket.logging.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent journal of the acknowledged events of a {@link Socket}, for an at-least-once delivery
+ * across the restarts of the process. See {@link Manager.Options#journal}.
+ *
+ * <p>The events are appended to memory-mapped segment files, before being sent, and are trimmed once
+ * the server acknowledges them. The events which were not acknowledged when the journal is opened are
+ * sent again by the socket once connected, in order.</p>
+ *
+ * <p>Each record is written as:</p>
+ *
+ * <pre>
+ * int   size of the record after the checksum, written last (0 marks the end of the segment)
+ * int   CRC32 of the record after the checksum
+ * byte  type (1 for an event, 2 for an acknowledgement)
+ * long  sequence number of the event
+ * int   size of the JSON payload, followed by its UTF-8 bytes (event only)
+ * int   number of attachments, followed by their size and bytes (event only)
+ * </pre>
+ *
+ * <p>A segment is deleted and unmapped once all its events, and all the events of the previous segments,
+ * were acknowledged. Only used by the event loop of the socket, except {@link #close()}.</p>
+ */
+public final class OutboundJournal implements Closeable {
+
+    private static final Log logger = Log.getLog(OutboundJournal.class);
+
+    /**
+     * Default size of the segment files (16 MiB).
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String SUFFIX = ".journal";
+    private static final byte EVENT = 1;
+    private static final byte ACK = 2;
+    // size, checksum, type and sequence
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8;
+    // releases a mapping before it is garbage collected, null if not available
+    private static final Unmapper UNMAPPER = Unmapper.create();
+
+    /**
+     * When the appended records are written to the disk.
+     */
+    public enum FsyncPolicy {
+        /**
+         * Let the operating system write the pages. The records survive a crash of the process, but not a
+         * crash of the machine.
+         */
+        NEVER,
+
+        /**
+         * Write the pages every {@code fsyncInterval} milliseconds, from the timer thread.
+         */
+        PERIODIC,
+
+        /**
+         * Write the pages after each record, which costs a disk write per emitted event.
+         */
+        ALWAYS
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncInterval;
+    private final LinkedList<Segment> segments = new LinkedList<>();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+    private volatile Segment active;
+    private volatile boolean dirty;
+    private volatile boolean closed;
+    private HashedWheelTimer.Timeout fsyncTimer;
+    private long nextSeq = 1;
+    private long nextIndex;
+    private String nsp;
+    private List<Record> recovered;
+
+    /**
+     * Opens the journal with segments of {@link #DEFAULT_SEGMENT_SIZE} bytes, written by the operating
+     * system.
+     *
+     * @param directory the directory of the segment files, created if needed.
+     * @throws IOException if the segments cannot be read or created.
+     */
+    public OutboundJournal(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, FsyncPolicy.NEVER, 0);
+    }
+
+    /**
+     * Opens the journal, and reads the events which were not acknowledged.
+     *
+     * @param directory the directory of the segment files, created if needed.
+     * @param segmentSize the size of the segment files in bytes. A larger event gets its own segment.
+     * @param fsyncPolicy when the records are written to the disk.
+     * @param fsyncInterval the delay between two writes in milliseconds, with {@link FsyncPolicy#PERIODIC}.
+     * @throws IOException if the segments cannot be read or created.
+     */
+    public OutboundJournal(File directory, int segmentSize, FsyncPolicy fsyncPolicy, long fsyncInterval) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize is too small");
+        }
+        if (fsyncPolicy == FsyncPolicy.PERIODIC && fsyncInterval <= 0) {
+            throw new IllegalArgumentException("fsyncInterval must be positive");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("unable to create the directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncInterval = fsyncInterval;
+
+        this.recover();
+        if (this.fsyncPolicy == FsyncPolicy.PERIODIC) {
+            this.scheduleFsync();
+        }
+    }
+
+    /**
+     * @return the number of events which were not acknowledged yet.
+     */
+    public synchronized int pendingEvents() {
+        int count = 0;
+        for (Segment segment : this.segments) {
+            count += segment.live;
+        }
+        return count;
+    }
+
+    /**
+     * Writes the pending records to the disk, and unmaps the segments. The journal must be closed after
+     * its socket.
+     */
+    @Override
+    public void close() {
+        HashedWheelTimer.Timeout timer;
+        synchronized (this) {
+            if (this.closed) return;
+            this.closed = true;
+            timer = this.fsyncTimer;
+            if (this.fsyncPolicy != FsyncPolicy.NEVER) {
+                for (Segment segment : this.segments) {
+                    segment.buffer.force();
+                }
+            }
+            for (Segment segment : this.segments) {
+                unmap(segment.buffer);
+            }
+            this.segments.clear();
+            this.active = null;
+        }
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
+    /**
+     * Binds the journal to the namespace of a socket, since the sequence numbers are not shared.
+     *
+     * @return the events which were not acknowledged when the journal was opened, the first time.
+     */
+    /*package*/ synchronized List<Record> attach(String nsp) {
+        if (this.nsp != null && !this.nsp.equals(nsp)) {
+            throw new IllegalStateException("the journal is already used by the namespace " + this.nsp);
+        }
+        this.nsp = nsp;
+
+        List<Record> records = this.recovered;
+        this.recovered = null;
+        return records != null ? records : Collections.<Record>emptyList();
+    }
+
+    /**
+     * Appends an event.
+     *
+     * @param json the payload, where the attachments are replaced by placeholders.
+     * @param attachments the binary attachments.
+     * @return the sequence number of the event.
+     * @throws IOException if a new segment cannot be created.
+     */
+    /*package*/ synchronized long append(String json, List<byte[]> attachments) throws IOException {
+        this.checkOpen();
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        int size = 4 + payload.length + 4;
+        for (byte[] attachment : attachments) {
+            size += 4 + attachment.length;
+        }
+
+        long seq = this.nextSeq;
+        ByteBuffer body = this.body(EVENT, seq, size);
+        body.putInt(payload.length).put(payload);
+        body.putInt(attachments.size());
+        for (byte[] attachment : attachments) {
+            body.putInt(attachment.length).put(attachment);
+        }
+        // a new segment starts with this sequence number
+        this.write(body).live++;
+        this.nextSeq++;
+        return seq;
+    }
+
+    /**
+     * Records the acknowledgement of an event, and deletes the segments which are not needed anymore.
+     *
+     * @param seq the sequence number of the event.
+     * @throws IOException if a new segment cannot be created.
+     */
+    /*package*/ synchronized void ack(long seq) throws IOException {
+        this.checkOpen();
+        Segment owner = null;
+        for (Segment segment : this.segments) {
+            if (segment.firstSeq > seq) break;
+            owner = segment;
+        }
+        if (owner == null) return;
+
+        this.write(this.body(ACK, seq, 0));
+        owner.live--;
+
+        // the acknowledgements of the later segments refer to the events of the previous ones
+        while (this.segments.size() > 1 && this.segments.getFirst().live == 0) {
+            this.delete(this.segments.removeFirst());
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("the journal is closed");
+        }
+    }
+
+    private ByteBuffer body(byte type, long seq, int size) {
+        int length = 1 + 8 + size;
+        if (this.scratch.capacity() < length) {
+            this.scratch = ByteBuffer.allocate(Math.max(length, this.scratch.capacity() * 2));
+        }
+        this.scratch.clear();
+        this.scratch.put(type).putLong(seq);
+        return this.scratch;
+    }
+
+    /**
+     * @return the segment the record was written to.
+     */
+    private Segment write(ByteBuffer body) throws IOException {
+        body.flip();
+        int length = body.remaining();
+        Segment segment = this.active;
+        if (segment == null || segment.position + 8 + length > segment.buffer.capacity()) {
+            segment = this.roll(8 + length);
+        }
+
+        this.crc.reset();
+        this.crc.update(body.array(), 0, length);
+
+        MappedByteBuffer buffer = segment.buffer;
+        int position = segment.position;
+        buffer.position(position + 8);
+        buffer.put(body);
+        buffer.putInt(position + 4, (int) this.crc.getValue());
+        segment.position = position + 8 + length;
+        if (segment.position + 4 <= buffer.capacity()) {
+            // ends the segment, in case the records after a corrupted one were recovered
+            buffer.putInt(segment.position, 0);
+        }
+        // the size is written last, so that a partial record is never read back
+        buffer.putInt(position, length);
+
+        if (this.fsyncPolicy == FsyncPolicy.ALWAYS) {
+            buffer.force();
+        } else {
+            this.dirty = true;
+        }
+        return segment;
+    }
+
+    private Segment roll(int recordSize) throws IOException {
+        Segment previous = this.active;
+        if (previous != null && this.fsyncPolicy != FsyncPolicy.NEVER) {
+            previous.buffer.force();
+        }
+        if (previous != null && previous.live == 0 && this.segments.size() == 1) {
+            // nothing to keep
+            this.segments.removeFirst();
+            this.delete(previous);
+        }
+
+        File file = new File(this.directory, String.format("%020d%s", this.nextIndex++, SUFFIX));
+        Segment segment = new Segment(file, map(file, Math.max(this.segmentSize, recordSize)), this.nextSeq);
+        this.segments.add(segment);
+        this.active = segment;
+        return segment;
+    }
+
+    private void delete(Segment segment) {
+        // unmapped first, as a mapped file cannot be deleted on Windows
+        unmap(segment.buffer);
+        if (!segment.file.delete()) {
+            logger.fine("unable to delete the segment {0}", segment.file);
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = this.directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SUFFIX);
+            }
+        });
+        if (files == null) {
+            throw new IOException("unable to list the directory " + this.directory);
+        }
+        Arrays.sort(files);
+
+        Map<Long, Record> pending = new LinkedHashMap<>();
+        Map<Long, Segment> owners = new LinkedHashMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            this.nextIndex = Math.max(this.nextIndex, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())) + 1);
+
+            Segment segment = new Segment(file, map(file, (int) file.length()), this.nextSeq);
+            this.scan(segment, pending, owners);
+            this.segments.add(segment);
+        }
+
+        for (Segment segment : owners.values()) {
+            segment.live++;
+        }
+        this.active = this.segments.isEmpty() ? null : this.segments.getLast();
+        while (this.segments.size() > 1 && this.segments.getFirst().live == 0) {
+            this.delete(this.segments.removeFirst());
+        }
+        this.recovered = new ArrayList<>(pending.values());
+    }
+
+    private void scan(Segment segment, Map<Long, Record> pending, Map<Long, Segment> owners) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        boolean first = true;
+        while (position + 8 <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length < 9 || position + 8 + length > buffer.capacity()) break;
+
+            byte[] body = new byte[length];
+            buffer.position(position + 8);
+            buffer.get(body);
+            this.crc.reset();
+            this.crc.update(body, 0, length);
+            if ((int) this.crc.getValue() != buffer.getInt(position + 4)) {
+                logger.warning("corrupted record in {0} at {1,number,#}, ignoring the rest of the segment", segment.file, position);
+                break;
+            }
+
+            ByteBuffer record = ByteBuffer.wrap(body);
+            byte type = record.get();
+            long seq = record.getLong();
+            if (type == EVENT) {
+                if (first) {
+                    segment.firstSeq = seq;
+                    first = false;
+                }
+                byte[] payload = new byte[record.getInt()];
+                record.get(payload);
+                byte[][] attachments = new byte[record.getInt()][];
+                for (int i = 0; i < attachments.length; i++) {
+                    attachments[i] = new byte[record.getInt()];
+                    record.get(attachments[i]);
+                }
+                pending.put(seq, new Record(seq, new String(payload, StandardCharsets.UTF_8), attachments));
+                owners.put(seq, segment);
+            } else if (type == ACK) {
+                pending.remove(seq);
+                owners.remove(seq);
+            }
+            // a reused sequence number always follows the acknowledgements of its previous event
+            this.nextSeq = Math.max(this.nextSeq, seq + 1);
+            position += 8 + length;
+        }
+        segment.position = position;
+        if (first) {
+            segment.firstSeq = this.nextSeq;
+        }
+    }
+
+    private void scheduleFsync() {
+        this.fsyncTimer = HashedWheelTimer.shared().schedule(new Runnable() {
+            @Override
+            public void run() {
+                // under the lock, since the segments are unmapped once deleted or closed
+                synchronized (OutboundJournal.this) {
+                    if (OutboundJournal.this.closed) return;
+                    Segment segment = OutboundJournal.this.active;
+                    if (OutboundJournal.this.dirty && segment != null) {
+                        OutboundJournal.this.dirty = false;
+                        segment.buffer.force();
+                    }
+                    OutboundJournal.this.scheduleFsync();
+                }
+            }
+        }, this.fsyncInterval);
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < size) {
+                raf.setLength(size);
+            }
+            // the mapping stays valid once the file is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Releases the mapping now rather than when the buffer is garbage collected, which may never happen
+     * for a long-lived process. The buffer must not be used afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (UNMAPPER == null) return;
+        try {
+            UNMAPPER.unmap(buffer);
+        } catch (ReflectiveOperationException e) {
+            logger.fine("unable to unmap a segment", e);
+        }
+    }
+
+    /**
+     * Calls {@code Unsafe.invokeCleaner} on Java 9+, or the cleaner of the buffer before.
+     */
+    private static final class Unmapper {
+
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        private Unmapper(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        private static Unmapper create() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                return new Unmapper(field.get(null), invokeCleaner);
+            } catch (NoSuchMethodException e) {
+                // before Java 9
+                return new Unmapper(null, null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.fine("the segments are unmapped by the garbage collector", e);
+                return null;
+            }
+        }
+
+        private void unmap(MappedByteBuffer buffer) throws ReflectiveOperationException {
+            if (this.invokeCleaner != null) {
+                this.invokeCleaner.invoke(this.unsafe, buffer);
+                return;
+            }
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+    }
+
+    /**
+     * An event which was not acknowledged when the journal was opened.
+     */
+    /*package*/ static final class Record {
+
+        /*package*/ final long seq;
+        /*package*/ final String json;
+        /*package*/ final byte[][] attachments;
+
+        Record(long seq, String json, byte[][] attachments) {
+            this.seq = seq;
+            this.json = json;
+            this.attachments = attachments;
+        }
+    }
+
+    private static final class Segment {
+
+        private final File file;
+        private final MappedByteBuffer buffer;
+        // sequence number of the first event, the events of the segment are not older
+        private long firstSeq;
+        private int position;
+        // number of events not acknowledged
+        private int live;
+
+        Segment(File file, MappedByteBuffer buffer, long firstSeq) {
+            this.file = file;
+            this.buffer = buffer;
+            this.firstSeq = firstSeq;
+        }
+    }
+}
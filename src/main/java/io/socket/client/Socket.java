@@ -1,24 +1,40 @@
 package io.socket.client;
 
 import io.socket.emitter.Emitter;
+import io.socket.jfr.FlightEvents;
+import io.socket.logging.Log;
+import io.socket.parser.Binary;
+import io.socket.parser.DecodingException;
+import io.socket.parser.EncodedPayload;
+import io.socket.parser.JSONCodec;
+import io.socket.parser.OrgJSONCodec;
 import io.socket.parser.Packet;
 import io.socket.parser.Parser;
-import io.socket.thread.EventThread;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The socket class for Socket.IO Client.
  */
 public class Socket extends Emitter {
 
-    private static final Logger logger = Logger.getLogger(Socket.class.getName());
+    private static final Log logger = Log.getLog(Socket.class);
+
+    // reads the journaled events back into the org.json model of the outgoing packets, whatever the codec
+    private static final JSONCodec JOURNAL_CODEC = new OrgJSONCodec();
+
+    // number of acks whose emission time is kept to measure their latency
+    private static final int ACK_SAMPLES = 256;
 
     /**
      * Called on a connection.
@@ -40,6 +56,14 @@ public class Socket extends Emitter {
      */
     public static final String EVENT_CONNECT_ERROR = "connect_error";
 
+    /**
+     * Called when the outbound buffer, which was above its limits or high water mark, can accept
+     * packets again.
+     *
+     * @see #isWritable()
+     */
+    public static final String EVENT_DRAIN = "drain";
+
     static final String EVENT_MESSAGE = "message";
 
     protected static Map<String, Integer> RESERVED_EVENTS = new HashMap<String, Integer>() {{
@@ -55,17 +79,39 @@ public class Socket extends Emitter {
     /*package*/ String id;
 
     private volatile boolean connected;
+    private volatile boolean recovered;
+    // private session id and offset of the last event, for the connection state recovery
+    private String pid;
+    private String lastOffset;
     private int ids;
     private String nsp;
     private Manager io;
     private Map<String, String> auth;
-    private Map<Integer, Ack> acks = new HashMap<>();
+    private final IntObjectMap<Ack> acks = new IntObjectMap<>();
     private Queue<On.Handle> subs;
-    private final Queue<List<Object>> receiveBuffer = new LinkedList<>();
-    private final Queue<Packet<JSONArray>> sendBuffer = new LinkedList<>();
+    private final Queue<Packet<Object[]>> receiveBuffer = new LinkedList<>();
+    private final Queue<OutboundPacket> sendBuffer = new LinkedList<>();
+    // packets of emitLatest() not yet handed to the encoder, by event name and key
+    private final Map<String, Map<Object, LatestPacket>> latestPackets = new HashMap<>();
+    private final OutboundBuffer outboundBuffer;
+    private final ListenerDispatcher listenerDispatcher;
+    private final AckPolicy ackPolicy;
+    private final OutboundJournal journal;
+    // journaled packets not acknowledged yet, by ack id in the order of their emission
+    private final Map<Integer, JournaledPacket> journaled = new LinkedHashMap<>();
+    private final AtomicLong droppedVolatilePackets = new AtomicLong();
+    private final MetricsRegistry.Source metricsSource;
+
+    // only set when a metrics registry is configured
+    /*package*/ MetricsRegistry.Recorder metrics;
+    private int[] sampledAckIds;
+    private long[] sampledAckTimes;
 
     private ConcurrentLinkedQueue<Listener> onAnyIncomingListeners = new ConcurrentLinkedQueue<>();
     private ConcurrentLinkedQueue<Listener> onAnyOutgoingListeners = new ConcurrentLinkedQueue<>();
+    private ConcurrentMap<String, TypedHandlers> typedListeners = new ConcurrentHashMap<>();
+    private ConcurrentLinkedQueue<Batcher> batchers = new ConcurrentLinkedQueue<>();
+    private final EventPublisher.Subscriptions subscriptions = new EventPublisher.Subscriptions();
 
     public Socket(Manager io, String nsp, Manager.Options opts) {
         this.io = io;
@@ -73,12 +119,52 @@ public class Socket extends Emitter {
         if (opts != null) {
             this.auth = opts.auth;
         }
+        this.outboundBuffer = new OutboundBuffer(opts);
+        this.ackPolicy = opts != null && opts.ackPolicy != null ? opts.ackPolicy : AckPolicy.FAIL;
+        this.listenerDispatcher = ListenerDispatcher.create(this, opts);
+        this.metricsSource = io.metricsRegistry != null ? new MetricsSource() : null;
+        this.journal = opts != null ? opts.journal : null;
+        if (this.journal != null) {
+            this.restore(this.journal.attach(nsp));
+        }
+    }
+
+    /**
+     * Buffers the events of the journal which were not acknowledged, so that they are sent once connected.
+     */
+    private void restore(List<OutboundJournal.Record> records) {
+        for (OutboundJournal.Record record : records) {
+            Object data;
+            try {
+                // the data of the packet is only used by the other encoders and the outgoing listeners
+                data = JOURNAL_CODEC.decode(record.json, 0, record.json.length());
+            } catch (DecodingException e) {
+                data = null;
+            }
+            if (!(data instanceof JSONArray)) {
+                logger.warning("unable to restore the event {0,number,#} of the journal: {1}", record.seq, record.json);
+                this.trim(record.seq);
+                continue;
+            }
+
+            JournaledPacket packet = new JournaledPacket((JSONArray) data, record.seq, record.json,
+                    Arrays.asList(record.attachments));
+            Binary.reconstructPacket(packet, record.attachments);
+            packet.id = this.ids++;
+            packet.size = this.outboundBuffer.sizeOf(packet.data);
+            this.journaled.put(packet.id, packet);
+            this.sendBuffer.add(packet);
+            this.outboundBuffer.restore(packet.size);
+        }
     }
 
     private void subEvents() {
         if (this.subs != null) return;
 
         final Manager io = Socket.this.io;
+        if (io.metricsRegistry != null && this.metrics == null) {
+            this.metrics = io.metricsRegistry.register(this.metricsSource);
+        }
         Socket.this.subs = new LinkedList<On.Handle>() {{
             add(On.on(io, Manager.EVENT_OPEN, new Listener() {
                 @Override
@@ -86,17 +172,11 @@ public class Socket extends Emitter {
                     Socket.this.onopen();
                 }
             }));
-            add(On.on(io, Manager.EVENT_PACKET, new Listener() {
-                @Override
-                public void call(Object... args) {
-                    Socket.this.onpacket((Packet<?>) args[0]);
-                }
-            }));
             add(On.on(io, Manager.EVENT_ERROR, new Listener() {
                 @Override
                 public void call(Object... args) {
                     if (!Socket.this.connected) {
-                        Socket.super.emit(EVENT_CONNECT_ERROR, args[0]);
+                        Socket.this.emitReserved(EVENT_CONNECT_ERROR, args[0]);
                     }
                 }
             }));
@@ -117,7 +197,7 @@ public class Socket extends Emitter {
      * Connects the socket.
      */
     public Socket open() {
-        EventThread.exec(new Runnable() {
+        this.io.loop.exec(new Runnable() {
             @Override
             public void run() {
                 if (Socket.this.connected || Socket.this.io.isReconnecting()) return;
@@ -144,12 +224,7 @@ public class Socket extends Emitter {
      * @return a reference to this object.
      */
     public Socket send(final Object... args) {
-        EventThread.exec(new Runnable() {
-            @Override
-            public void run() {
-                Socket.this.emit(EVENT_MESSAGE, args);
-            }
-        });
+        this.emit(EVENT_MESSAGE, args);
         return this;
     }
 
@@ -166,30 +241,51 @@ public class Socket extends Emitter {
             throw new RuntimeException("'" + event + "' is a reserved event name");
         }
 
-        EventThread.exec(new Runnable() {
-            @Override
-            public void run() {
-                Ack ack;
-                Object[] _args;
-                int lastIndex = args.length - 1;
-
-                if (args.length > 0 && args[lastIndex] instanceof Ack) {
-                    _args = new Object[lastIndex];
-                    for (int i = 0; i < lastIndex; i++) {
-                        _args[i] = args[i];
-                    }
-                    ack = (Ack) args[lastIndex];
-                } else {
-                    _args = args;
-                    ack = null;
-                }
+        int length = args.length;
+        Ack ack = null;
+        if (length > 0 && args[length - 1] instanceof Ack) {
+            // the ack is skipped when the packet is built, instead of copying the arguments
+            ack = (Ack) args[--length];
+        }
 
-                emit(event, _args, ack);
-            }
-        });
+        final long size = this.outboundBuffer.sizeOf(event, args);
+        if (!this.outboundBuffer.reserve(size)) {
+            logger.fine("outbound buffer is full, dropping packet");
+            fail(ack, "outbound buffer is full");
+            return this;
+        }
+
+        this.enqueue(event, args, length, ack, size);
         return this;
     }
 
+    /**
+     * Emits an event and waits for the acknowledgement of the server.
+     *
+     * <pre>
+     * AckFuture future = socket.emitWithAck("hello", 5, TimeUnit.SECONDS, "world");
+     * Object[] response = future.get();
+     * </pre>
+     *
+     * <p>The timeout is scheduled on the timer shared by all the sockets, so that pending requests do not
+     * hold a thread.</p>
+     *
+     * @param event an event name.
+     * @param timeout the delay before the future fails if the server does not acknowledge the event.
+     * @param unit the unit of the timeout.
+     * @param args data to send.
+     * @return a future completed with the arguments of the acknowledgement.
+     */
+    public AckFuture emitWithAck(final String event, long timeout, TimeUnit unit, final Object... args) {
+        if (RESERVED_EVENTS.containsKey(event)) {
+            throw new RuntimeException("'" + event + "' is a reserved event name");
+        }
+
+        AckFuture future = new AckFuture();
+        this.emit(event, args, new FutureAck(unit.toMillis(timeout), future));
+        return future;
+    }
+
     /**
      * Emits an event with an acknowledge.
      *
@@ -199,61 +295,339 @@ public class Socket extends Emitter {
      * @return a reference to this object.
      */
     public Emitter emit(final String event, final Object[] args, final Ack ack) {
-        EventThread.exec(new Runnable() {
-            @Override
-            public void run() {
-                JSONArray jsonArgs = new JSONArray();
-                jsonArgs.put(event);
+        final long size = this.outboundBuffer.sizeOf(event, args);
+        if (!this.outboundBuffer.reserve(size)) {
+            logger.fine("outbound buffer is full, dropping packet");
+            fail(ack, "outbound buffer is full");
+            return this;
+        }
 
-                if (args != null) {
-                    for (Object arg : args) {
-                        jsonArgs.put(arg);
-                    }
+        this.enqueue(event, args, args != null ? args.length : 0, ack, size);
+        return this;
+    }
+
+    /**
+     * Emits an event which replaces the previous one with the same name and key, if that one was not
+     * sent yet. Only the newest version of each key waits in the buffers, so that the bandwidth and the
+     * replay after a reconnection depend on the number of keys rather than on the rate of the updates.
+     *
+     * <pre>
+     * socket.emitLatest("position", vehicleId, vehicleId, latitude, longitude);
+     * </pre>
+     *
+     * @param event an event name.
+     * @param key the key of the state, compared with {@link Object#equals(Object)}.
+     * @param args data to send, without acknowledgement.
+     * @return a reference to this object.
+     */
+    public Socket emitLatest(final String event, final Object key, final Object... args) {
+        if (RESERVED_EVENTS.containsKey(event)) {
+            throw new RuntimeException("'" + event + "' is a reserved event name");
+        }
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        if (args.length > 0 && args[args.length - 1] instanceof Ack) {
+            throw new IllegalArgumentException("a conflated event cannot be acknowledged");
+        }
+
+        final long size = this.outboundBuffer.sizeOf(event, args);
+        if (!this.outboundBuffer.reserve(size)) {
+            logger.fine("outbound buffer is full, dropping packet");
+            return this;
+        }
+
+        if (this.io.loop.isCurrent()) {
+            this.sendLatest(event, key, args, size);
+        } else {
+            this.io.submit(new Emission(event, key, args, args.length, null, size));
+        }
+        return this;
+    }
+
+    /**
+     * Emits an event which is dropped instead of buffered when the socket is not connected, or when the
+     * queue of the manager is above {@link Manager.Options#volatileThreshold}. Useful for presence or
+     * heartbeat-like events, which are worthless once late.
+     *
+     * @param event an event name.
+     * @param args data to send, without acknowledgement.
+     * @return a reference to this object.
+     */
+    public Socket emitVolatile(final String event, final Object... args) {
+        if (RESERVED_EVENTS.containsKey(event)) {
+            throw new RuntimeException("'" + event + "' is a reserved event name");
+        }
+        if (args.length > 0 && args[args.length - 1] instanceof Ack) {
+            throw new IllegalArgumentException("a volatile event cannot be acknowledged");
+        }
+
+        if (!this.connected) {
+            this.dropVolatile();
+        } else if (this.io.loop.isCurrent()) {
+            this.sendVolatile(event, args);
+        } else {
+            this.io.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Socket.this.sendVolatile(event, args);
                 }
+            });
+        }
+        return this;
+    }
 
-                Packet<JSONArray> packet = new Packet<>(Parser.EVENT, jsonArgs);
+    private void sendVolatile(String event, Object[] args) {
+        // the packet never reaches the outbound buffer
+        if (!this.connected || this.io.isCongested()) {
+            this.dropVolatile();
+            return;
+        }
+        this.packet(new Packet<>(Parser.EVENT, toJSONArray(event, args, args.length)));
+    }
 
-                if (ack != null) {
-                    final int ackId = Socket.this.ids;
+    private void dropVolatile() {
+        logger.fine("socket is not writable, dropping volatile packet");
+        this.droppedVolatilePackets.incrementAndGet();
+    }
+
+    /**
+     * Sends the packet right away when called from the event loop, or hands it to the manager in a
+     * single hop otherwise.
+     */
+    private void enqueue(String event, Object[] args, int length, Ack ack, long size) {
+        if (this.io.loop.isCurrent()) {
+            this.send(event, args, length, ack, size);
+        } else {
+            this.io.submit(new Emission(event, null, args, length, ack, size));
+        }
+    }
+
+    private void send(String event, Object[] args, int length, Ack ack, long size) {
+        if (ack instanceof FutureAck && ((FutureAck) ack).future.isCancelled()) {
+            // cancelled while waiting for the event loop
+            logger.fine("future cancelled before emitting event {0}", event);
+            this.release(size, false);
+            return;
+        }
+
+        OutboundPacket packet = null;
+        try {
+            packet = this.prepare(event, args, length, ack);
+        } finally {
+            if (packet == null) {
+                // the packet will never be written, like when the codec of the journal rejects the data
+                this.release(size, true);
+            }
+        }
+        this.write(packet, size);
+    }
+
+    private OutboundPacket prepare(String event, Object[] args, int length, Ack ack) {
+        JSONArray data = toJSONArray(event, args, length);
+        OutboundPacket packet = this.journal != null && ack != null
+                ? this.journal(data)
+                : new OutboundPacket(data);
 
-                    logger.fine(String.format("emitting packet with ack id %d", ackId));
+        if (ack != null) {
+            final int ackId = this.ids;
 
-                    if (ack instanceof AckWithTimeout) {
-                        final AckWithTimeout ackWithTimeout = (AckWithTimeout) ack;
-                        ackWithTimeout.schedule(new TimerTask() {
+            logger.fine("emitting packet with ack id {0,number,#}", ackId);
+
+            if (ack instanceof AckWithTimeout) {
+                final AckWithTimeout ackWithTimeout = (AckWithTimeout) ack;
+                ackWithTimeout.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        Socket.this.io.loop.exec(new Runnable() {
                             @Override
                             public void run() {
                                 // remove the ack from the map (to prevent an actual acknowledgement)
-                                acks.remove(ackId);
-
-                                // remove the packet from the buffer (if applicable)
-                                Iterator<Packet<JSONArray>> iterator = sendBuffer.iterator();
-                                while (iterator.hasNext()) {
-                                    if (iterator.next().id == ackId) {
-                                        iterator.remove();
-                                    }
-                                }
+                                if (acks.remove(ackId) == null) return;
 
+                                Socket.this.unbuffer(ackId);
                                 ackWithTimeout.onTimeout();
                             }
                         });
                     }
+                });
+            }
 
-                    Socket.this.acks.put(ackId, ack);
-                    packet.id = ids++;
-                }
+            this.acks.put(ackId, ack);
 
-                if (Socket.this.connected) {
-                    Socket.this.packet(packet);
+            if (ack instanceof FutureAck) {
+                // registered once the ack is in the map, as it runs right away if the future is already cancelled
+                final FutureAck futureAck = (FutureAck) ack;
+                futureAck.future.onCancel(new Runnable() {
+                    @Override
+                    public void run() {
+                        Socket.this.io.loop.exec(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (acks.get(ackId) == futureAck) {
+                                    acks.remove(ackId);
+                                    futureAck.cancelTimer();
+                                    Socket.this.unbuffer(ackId);
+                                }
+                            }
+                        });
+                    }
+                });
+            }
+
+            packet.id = this.ids++;
+            if (packet instanceof JournaledPacket) {
+                this.journaled.put(packet.id, (JournaledPacket) packet);
+            }
+            if (this.metrics != null || FlightEvents.isAckEnabled()) {
+                this.sampleAck(ackId);
+            }
+        }
+        return packet;
+    }
+
+    /**
+     * Appends the event to the journal before it is sent.
+     *
+     * @return the packet of the event, which is not journaled if the journal cannot be written.
+     */
+    private OutboundPacket journal(JSONArray data) {
+        StringBuilder str = new StringBuilder();
+        List<byte[]> attachments = new ArrayList<>(0);
+        this.io.codec.encode(data, str, attachments);
+        String json = str.toString();
+        try {
+            // sent as journaled, without encoding the data again
+            return new JournaledPacket(data, this.journal.append(json, attachments), json, attachments);
+        } catch (IOException e) {
+            logger.warning("unable to journal the event {0}", data.opt(0), e);
+            return new OutboundPacket(data);
+        }
+    }
+
+    private void trim(long seq) {
+        try {
+            this.journal.ack(seq);
+        } catch (IOException e) {
+            logger.warning("unable to trim the event {0,number,#} from the journal", seq, e);
+        }
+    }
+
+    private void sendLatest(String event, Object key, Object[] args, long size) {
+        JSONArray data = toJSONArray(event, args, args.length);
+
+        Map<Object, LatestPacket> packets = this.latestPackets.get(event);
+        if (packets == null) {
+            packets = new HashMap<>();
+            this.latestPackets.put(event, packets);
+        }
+
+        LatestPacket pending = packets.get(key);
+        if (pending == null) {
+            LatestPacket packet = new LatestPacket(data, packets, key);
+            packets.put(key, packet);
+            this.write(packet, size);
+            return;
+        }
+
+        // the pending packet takes the new version in place
+        if (pending.buffered) {
+            this.release(pending.size, false);
+            pending.data = data;
+            pending.size = size;
+        } else {
+            pending.data = data;
+            this.release(size, false);
+        }
+    }
+
+    /**
+     * Removes the packet of an acknowledgement which will not be awaited from the send buffer, if applicable.
+     */
+    private void unbuffer(int ackId) {
+        Iterator<OutboundPacket> iterator = this.sendBuffer.iterator();
+        while (iterator.hasNext()) {
+            OutboundPacket packet = iterator.next();
+            if (packet.id == ackId) {
+                iterator.remove();
+                this.release(packet.size, false);
+            }
+        }
+    }
+
+    private void write(OutboundPacket packet, long size) {
+        packet.size = size;
+        if (this.connected) {
+            boolean written = false;
+            try {
+                this.packet(packet);
+                written = true;
+            } finally {
+                if (written) {
+                    this.release(size, false);
                 } else {
-                    Socket.this.sendBuffer.add(packet);
+                    // like a listener of the outgoing packets which throws
+                    this.discard(packet, "unable to send the packet");
                 }
             }
-        });
-        return this;
+        } else {
+            if (packet instanceof LatestPacket) {
+                ((LatestPacket) packet).buffered = true;
+            }
+            this.sendBuffer.add(packet);
+            if (this.outboundBuffer.overflowPolicy() == OverflowPolicy.DROP_OLDEST) {
+                this.dropOldest();
+            }
+        }
+    }
+
+    private static JSONArray toJSONArray(String event, Object[] args, int length) {
+        JSONArray jsonArgs = new JSONArray();
+        jsonArgs.put(event);
+
+        for (int i = 0; i < length; i++) {
+            jsonArgs.put(args[i]);
+        }
+        return jsonArgs;
+    }
+
+    private void dropOldest() {
+        OutboundPacket packet;
+        while (this.outboundBuffer.isOverLimit() && (packet = this.sendBuffer.poll()) != null) {
+            logger.fine("outbound buffer is full, dropping packet {0}", packet);
+            this.discard(packet, "packet dropped from the outbound buffer");
+        }
+    }
+
+    /**
+     * Drops a packet which was not handed to the manager, and fails its acknowledgement.
+     */
+    private void discard(OutboundPacket packet, String reason) {
+        if (packet instanceof LatestPacket) {
+            ((LatestPacket) packet).detach();
+        }
+        if (packet.id >= 0) {
+            fail(this.acks.remove(packet.id), reason);
+        }
+        if (packet instanceof JournaledPacket) {
+            // the policy prevails over the delivery guarantee
+            this.journaled.remove(packet.id);
+            this.trim(((JournaledPacket) packet).seq);
+        }
+        this.release(packet.size, true);
+    }
+
+    private void release(long size, boolean dropped) {
+        if (this.outboundBuffer.release(size, dropped)) {
+            this.emitReserved(EVENT_DRAIN);
+        }
     }
 
     private void packet(Packet packet) {
+        if (packet instanceof LatestPacket) {
+            // from now on, the packet waits in the queue of the manager
+            ((LatestPacket) packet).buffered = false;
+        }
         if (packet.type == Parser.EVENT) {
             if (!onAnyOutgoingListeners.isEmpty()) {
                 Object[] argsAsArray = toArray((JSONArray) packet.data);
@@ -269,65 +643,118 @@ public class Socket extends Emitter {
     private void onopen() {
         logger.fine("transport is open - connecting");
 
-        if (this.auth != null) {
-            this.packet(new Packet<>(Parser.CONNECT, new JSONObject(this.auth)));
+        JSONObject data = this.auth != null ? new JSONObject(this.auth) : null;
+        if (this.pid != null) {
+            // ask the server to restore the session, and to send the events missed in the meantime
+            if (data == null) {
+                data = new JSONObject();
+            }
+            try {
+                data.put("pid", this.pid);
+                data.put("offset", this.lastOffset);
+            } catch (JSONException e) {
+                logger.fine("unable to add the session to the CONNECT packet", e);
+            }
+        }
+
+        if (data != null) {
+            this.packet(new Packet<>(Parser.CONNECT, data));
         } else {
             this.packet(new Packet<>(Parser.CONNECT));
         }
     }
 
     private void onclose(String reason) {
-        if (logger.isLoggable(Level.FINE)) {
-            logger.fine(String.format("close (%s)", reason));
-        }
+        logger.fine("close ({0})", reason);
         this.connected = false;
         this.id = null;
-        super.emit(EVENT_DISCONNECT, reason);
+        this.clearAcks();
+        this.emitReserved(EVENT_DISCONNECT, reason);
+    }
+
+    /**
+     * With {@link AckPolicy#FAIL}, removes the acks whose packet was sent, see {@link #failSentAcks()}.
+     */
+    private void clearAcks() {
+        if (this.ackPolicy == AckPolicy.RETAIN) return;
+        this.failSentAcks();
+    }
+
+    /**
+     * Removes the acks whose packet was sent, since the server will not acknowledge them: the
+     * {@link #emitWithAck(String, long, TimeUnit, Object...)} calls fail, the {@link AckWithTimeout} time
+     * out, and the other acks are dropped. The acks of the buffered and journaled packets are kept, as
+     * these packets will be sent once reconnected.
+     */
+    private void failSentAcks() {
+        if (this.acks.isEmpty()) return;
+
+        Set<Integer> buffered = this.bufferedIds();
+        for (int id : this.acks.keys()) {
+            // the journaled packets are sent again once reconnected
+            if (buffered.contains(id) || this.journaled.containsKey(id)) continue;
+
+            fail(this.acks.remove(id), "socket has been disconnected");
+        }
+    }
+
+    /**
+     * Fails the {@link #emitWithAck(String, long, TimeUnit, Object...)} call, or times out the
+     * {@link AckWithTimeout}. The other acks are dropped.
+     */
+    private static void fail(Ack ack, String reason) {
+        if (ack instanceof FutureAck) {
+            ((FutureAck) ack).cancelTimer();
+            ((FutureAck) ack).future.fail(new SocketIOException(reason));
+        } else if (ack instanceof AckWithTimeout) {
+            ((AckWithTimeout) ack).cancelTimer();
+            ((AckWithTimeout) ack).onTimeout();
+        }
+    }
+
+    private Set<Integer> bufferedIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (OutboundPacket packet : this.sendBuffer) {
+            ids.add(packet.id);
+        }
+        return ids;
     }
 
-    private void onpacket(Packet<?> packet) {
-        if (!this.nsp.equals(packet.nsp)) return;
+    /**
+     * Called by the manager with the packets of this namespace.
+     */
+    /*package*/ void onpacket(Packet<?> packet) {
+        // the socket is not open
+        if (this.subs == null) return;
 
         switch (packet.type) {
             case Parser.CONNECT: {
-                if (packet.data instanceof JSONObject && ((JSONObject) packet.data).has("sid")) {
-                    try {
-                        this.onconnect(((JSONObject) packet.data).getString("sid"));
-                        return;
-                    } catch (JSONException e) {}
+                Map<?, ?> data = this.toMap(packet.data);
+                if (data != null && data.get("sid") != null) {
+                    Object pid = data.get("pid");
+                    this.onconnect(String.valueOf(data.get("sid")), pid != null ? String.valueOf(pid) : null);
+                    return;
                 } else {
-                    super.emit(EVENT_CONNECT_ERROR, new SocketIOException("It seems you are trying to reach a Socket.IO server in v2.x with a v3.x client, which is not possible"));
+                    this.emitReserved(EVENT_CONNECT_ERROR, new SocketIOException("It seems you are trying to reach a Socket.IO server in v2.x with a v3.x client, which is not possible"));
                 }
                 break;
             }
 
-            case Parser.EVENT: {
-                @SuppressWarnings("unchecked")
-                Packet<JSONArray> p = (Packet<JSONArray>) packet;
-                this.onevent(p);
+            case Parser.EVENT:
+                this.onevent(withArguments(packet));
                 break;
-            }
 
-            case Parser.BINARY_EVENT: {
-                @SuppressWarnings("unchecked")
-                Packet<JSONArray> p = (Packet<JSONArray>) packet;
-                this.onevent(p);
+            case Parser.BINARY_EVENT:
+                this.onevent(withArguments(packet));
                 break;
-            }
 
-            case Parser.ACK: {
-                @SuppressWarnings("unchecked")
-                Packet<JSONArray> p = (Packet<JSONArray>) packet;
-                this.onack(p);
+            case Parser.ACK:
+                this.onack(withArguments(packet));
                 break;
-            }
 
-            case Parser.BINARY_ACK: {
-                @SuppressWarnings("unchecked")
-                Packet<JSONArray> p = (Packet<JSONArray>) packet;
-                this.onack(p);
+            case Parser.BINARY_ACK:
+                this.onack(withArguments(packet));
                 break;
-            }
 
             case Parser.DISCONNECT:
                 this.ondisconnect();
@@ -335,34 +762,121 @@ public class Socket extends Emitter {
 
             case Parser.CONNECT_ERROR:
                 this.destroy();
-                super.emit(EVENT_CONNECT_ERROR, packet.data);
+                this.emitReserved(EVENT_CONNECT_ERROR, packet.data);
                 break;
         }
     }
 
-    private void onevent(Packet<JSONArray> packet) {
-        List<Object> args = new ArrayList<>(Arrays.asList(toArray(packet.data)));
-        if (logger.isLoggable(Level.FINE)) {
-            logger.fine(String.format("emitting event %s", args));
+    /**
+     * Converts the payload of the connection to a map, whatever the object model of the codec.
+     */
+    private Map<?, ?> toMap(Object data) {
+        if (data == null) return null;
+        try {
+            return this.io.codec.convert(data, Map.class);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
+    }
 
-        if (packet.id >= 0) {
-            logger.fine("attaching ack callback to event");
-            args.add(this.ack(packet.id));
+    /**
+     * The arguments of an event or of an acknowledgement, also found in an {@code org.json} array when the
+     * packet comes from another decoder than {@link io.socket.parser.IOParser.Decoder}.
+     */
+    @SuppressWarnings("unchecked")
+    private static Packet<Object[]> withArguments(Packet<?> packet) {
+        Packet<Object> p = (Packet<Object>) packet;
+        if (p.data instanceof JSONArray) {
+            p.data = toArray((JSONArray) p.data);
+        } else if (!(p.data instanceof Object[])) {
+            p.data = new Object[0];
+        }
+        return (Packet<Object[]>) (Packet<?>) p;
+    }
+
+    private void onevent(Packet<Object[]> packet) {
+        logger.fine("emitting event {0}", packet);
+
+        if (this.pid != null) {
+            // with the connection state recovery, the server appends an offset to the broadcasted events
+            int length = packet.data.length;
+            Object offset = length > 0 ? packet.data[length - 1] : null;
+            if (offset instanceof String) {
+                this.lastOffset = (String) offset;
+            }
         }
 
         if (this.connected) {
-            if (args.isEmpty()) return;
-            if (!this.onAnyIncomingListeners.isEmpty()) {
-                Object[] argsAsArray = args.toArray();
-                for (Listener listener : this.onAnyIncomingListeners) {
-                    listener.call(argsAsArray);
+            Object event = FlightEvents.beginDispatch();
+            this.dispatch(packet);
+            if (event != null) {
+                FlightEvents.commitDispatch(event, packet);
+            }
+        } else {
+            this.receiveBuffer.add(packet);
+        }
+    }
+
+    private void dispatch(final Packet<Object[]> packet) {
+        if (packet.data.length == 0) return;
+
+        final String event = String.valueOf(packet.data[0]);
+        if (this.listenerDispatcher != null) {
+            this.listenerDispatcher.dispatch(event, new Runnable() {
+                @Override
+                public void run() {
+                    Socket.this.callListeners(event, packet);
                 }
+            });
+        } else {
+            this.callListeners(event, packet);
+        }
+    }
+
+    private void callListeners(String event, Packet<Object[]> packet) {
+        Object[] data = packet.data;
+        int length = data.length;
+        boolean hasListeners = this.hasListeners(event);
+        TypedHandlers handlers = this.typedListeners.get(event);
+
+        // shared by all the listeners, so that the server only gets the first reply
+        Ack ack = null;
+        if (packet.id >= 0) {
+            logger.fine("attaching ack callback to event");
+            ack = this.ack(packet.id);
+        }
+
+        if (!this.onAnyIncomingListeners.isEmpty()) {
+            Object[] args = data;
+            if (ack != null) {
+                args = Arrays.copyOf(data, length + 1);
+                args[length] = ack;
+            }
+            for (Listener listener : this.onAnyIncomingListeners) {
+                listener.call(args);
+            }
+        }
+        if (hasListeners) {
+            Object[] eventArgs = new Object[length - 1 + (ack != null ? 1 : 0)];
+            System.arraycopy(data, 1, eventArgs, 0, length - 1);
+            if (ack != null) {
+                eventArgs[length - 1] = ack;
+            }
+            super.emit(event, eventArgs);
+        }
+
+        if (handlers != null) {
+            for (TypedHandler handler : handlers.queue) {
+                handler.call(this.io.codec, event, data, ack);
             }
-            String event = args.remove(0).toString();
-            super.emit(event, args.toArray());
+        }
+    }
+
+    private void execute(Runnable task) {
+        if (this.io.loop.isCurrent()) {
+            task.run();
         } else {
-            this.receiveBuffer.add(args);
+            this.io.submit(task);
         }
     }
 
@@ -372,14 +886,12 @@ public class Socket extends Emitter {
         return new Ack() {
             @Override
             public void call(final Object... args) {
-                EventThread.exec(new Runnable() {
+                Socket.this.execute(new Runnable() {
                     @Override
                     public void run() {
                         if (sent[0]) return;
                         sent[0] = true;
-                        if (logger.isLoggable(Level.FINE)) {
-                            logger.fine(String.format("sending ack %s", args.length != 0 ? args : null));
-                        }
+                        logger.fine("sending ack {0}", args.length != 0 ? args : null);
 
                         JSONArray jsonArgs = new JSONArray();
                         for (Object arg : args) {
@@ -395,46 +907,122 @@ public class Socket extends Emitter {
         };
     }
 
-    private void onack(Packet<JSONArray> packet) {
-        Ack fn = this.acks.remove(packet.id);
-        if (fn != null) {
-            if (logger.isLoggable(Level.FINE)) {
-                logger.fine(String.format("calling ack %s with %s", packet.id, packet.data));
+    private void onack(Packet<Object[]> packet) {
+        if (!this.journaled.isEmpty()) {
+            // trimmed even if the ack timed out in the meantime
+            JournaledPacket journaled = this.journaled.remove(packet.id);
+            if (journaled != null) {
+                this.trim(journaled.seq);
             }
-            fn.call(toArray(packet.data));
-        } else {
-            if (logger.isLoggable(Level.FINE)) {
-                logger.fine(String.format("bad ack %s", packet.id));
+        }
+
+        final Ack fn = this.acks.remove(packet.id);
+        if (fn != null) {
+            Object event = FlightEvents.beginAck();
+            long roundTrip = this.sampledAckIds != null ? this.sampledRoundTrip(packet.id) : -1;
+            if (this.metrics != null && roundTrip >= 0) {
+                this.metrics.ackLatency(roundTrip);
+            }
+            if (logger.isFineEnabled()) {
+                logger.fine("calling ack {0,number,#} with {1}", packet.id, Arrays.toString(packet.data));
+            }
+            final Object[] args = packet.data;
+            if (this.listenerDispatcher != null) {
+                this.listenerDispatcher.dispatchReserved(null, new Runnable() {
+                    @Override
+                    public void run() {
+                        fn.call(args);
+                    }
+                });
+            } else {
+                fn.call(args);
             }
+            if (event != null) {
+                FlightEvents.commitAck(event, packet, roundTrip);
+            }
+        } else {
+            logger.fine("bad ack {0,number,#}", packet.id);
         }
     }
 
-    private void onconnect(String id) {
+    /**
+     * Keeps the emission time of the packet, in a ring indexed by the ack id so that measuring the
+     * latency does not allocate.
+     */
+    private void sampleAck(int ackId) {
+        if (this.sampledAckIds == null) {
+            this.sampledAckIds = new int[ACK_SAMPLES];
+            this.sampledAckTimes = new long[ACK_SAMPLES];
+            Arrays.fill(this.sampledAckIds, -1);
+        }
+        int slot = ackId & (ACK_SAMPLES - 1);
+        this.sampledAckIds[slot] = ackId;
+        this.sampledAckTimes[slot] = System.nanoTime();
+    }
+
+    /**
+     * @return the delay since the emission of the packet in nanoseconds, or -1 if it was not sampled.
+     */
+    private long sampledRoundTrip(int ackId) {
+        int slot = ackId & (ACK_SAMPLES - 1);
+        // the slot may have been reused if more acks were pending
+        if (this.sampledAckIds[slot] != ackId) return -1;
+        this.sampledAckIds[slot] = -1;
+        return System.nanoTime() - this.sampledAckTimes[slot];
+    }
+
+    /**
+     * Emits a reserved event to the listeners, in order with the incoming events.
+     */
+    private void emitReserved(final String event, final Object... args) {
+        if (this.listenerDispatcher != null) {
+            this.listenerDispatcher.dispatchReserved(event, new Runnable() {
+                @Override
+                public void run() {
+                    Socket.super.emit(event, args);
+                }
+            });
+        } else {
+            super.emit(event, args);
+        }
+    }
+
+    private void onconnect(String id, String pid) {
         this.connected = true;
         this.id = id;
+        this.recovered = pid != null && pid.equals(this.pid);
+        this.pid = pid;
         this.emitBuffered();
-        super.emit(EVENT_CONNECT);
+        this.emitReserved(EVENT_CONNECT);
     }
 
     private void emitBuffered() {
-        List<Object> data;
+        Packet<Object[]> data;
         while ((data = this.receiveBuffer.poll()) != null) {
-            String event = (String)data.get(0);
-            super.emit(event, data.toArray());
+            this.dispatch(data);
         }
         this.receiveBuffer.clear();
 
-        Packet<JSONArray> packet;
+        if (!this.journaled.isEmpty()) {
+            // the journaled packets sent before the disconnection may not have reached the server
+            Set<Integer> buffered = this.bufferedIds();
+            for (JournaledPacket packet : this.journaled.values()) {
+                if (!buffered.contains(packet.id)) {
+                    this.packet(packet);
+                }
+            }
+        }
+
+        OutboundPacket packet;
         while ((packet = this.sendBuffer.poll()) != null) {
             this.packet(packet);
+            this.release(packet.size, false);
         }
         this.sendBuffer.clear();
     }
 
     private void ondisconnect() {
-        if (logger.isLoggable(Level.FINE)) {
-            logger.fine(String.format("server disconnect (%s)", this.nsp));
-        }
+        logger.fine("server disconnect ({0})", this.nsp);
         this.destroy();
         this.onclose("io server disconnect");
     }
@@ -448,7 +1036,16 @@ public class Socket extends Emitter {
             this.subs = null;
         }
 
-        for (Ack ack : acks.values()) {
+        if (this.metrics != null) {
+            this.metrics = null;
+            this.io.metricsRegistry.unregister(this.metricsSource);
+        }
+
+        // the acks are only retained across the drops of the transport, not once the socket is closed
+        this.failSentAcks();
+        this.subscriptions.complete(null);
+        for (int id : this.acks.keys()) {
+            Ack ack = this.acks.get(id);
             if (ack instanceof AckWithTimeout) {
                 ((AckWithTimeout) ack).cancelTimer();
             }
@@ -463,13 +1060,11 @@ public class Socket extends Emitter {
      * @return a reference to this object.
      */
     public Socket close() {
-        EventThread.exec(new Runnable() {
+        this.io.loop.exec(new Runnable() {
             @Override
             public void run() {
                 if (Socket.this.connected) {
-                    if (logger.isLoggable(Level.FINE)) {
-                        logger.fine(String.format("performing disconnect (%s)", Socket.this.nsp));
-                    }
+                    logger.fine("performing disconnect ({0})", Socket.this.nsp);
                     Socket.this.packet(new Packet(Parser.DISCONNECT));
                 }
 
@@ -500,6 +1095,87 @@ public class Socket extends Emitter {
         return this.connected;
     }
 
+    /**
+     * Whether the state of the connection was recovered after a temporary disconnection, in which case
+     * the server has restored the id and the rooms of the socket, and has sent the missed events.
+     *
+     * <p>Requires the {@code connectionStateRecovery} option on the server (Socket.IO v4.6+).</p>
+     *
+     * @return whether the connection state was recovered.
+     */
+    public boolean recovered() {
+        return this.recovered;
+    }
+
+    /**
+     * Whether the outbound buffer can accept packets without reaching its limits. Once it returns
+     * {@code false}, producers should wait for the {@link #EVENT_DRAIN} event before emitting again.
+     *
+     * @return whether the socket is writable.
+     */
+    public boolean isWritable() {
+        return this.outboundBuffer.isWritable();
+    }
+
+    /**
+     * @return the number of emitted packets which were not handed to the manager yet.
+     */
+    public int bufferedPackets() {
+        return this.outboundBuffer.packets();
+    }
+
+    /**
+     * @return the estimated size in bytes of the emitted packets which were not handed to the manager yet
+     *     (only tracked when a byte limit or a high water mark is set).
+     */
+    public long bufferedBytes() {
+        return this.outboundBuffer.bytes();
+    }
+
+    /**
+     * @return the number of packets dropped because the outbound buffer was full.
+     */
+    public long droppedPackets() {
+        return this.outboundBuffer.droppedPackets();
+    }
+
+    /**
+     * @return the number of {@link #emitVolatile(String, Object...)} packets dropped because the socket
+     *     was not connected or the queue of the manager was above the threshold.
+     */
+    public long droppedVolatilePackets() {
+        return this.droppedVolatilePackets.get();
+    }
+
+    /*package*/ int sendBufferDepth() {
+        return this.sendBuffer.size();
+    }
+
+    /*package*/ int receiveBufferDepth() {
+        return this.receiveBuffer.size();
+    }
+
+    /**
+     * @return the number of acks waiting for their acknowledgement, including those of the buffered
+     *     packets.
+     */
+    public int pendingAcks() {
+        return this.acks.size();
+    }
+
+    /**
+     * Execution time of the listeners, by event name. Only measured when
+     * {@link Manager.Options#listenerExecutor}, {@link Manager.Options#listenerOrdering} or
+     * {@link Manager.Options#slowListenerThreshold} is set.
+     *
+     * @return a live view of the statistics.
+     */
+    public Map<String, ListenerStats> listenerStats() {
+        return this.listenerDispatcher != null
+                ? this.listenerDispatcher.stats()
+                : Collections.<String, ListenerStats>emptyMap();
+    }
+
     /**
      * A property on the socket instance that is equal to the underlying engine.io socket id.
      *
@@ -519,7 +1195,7 @@ public class Socket extends Emitter {
             try {
                 v = array.get(i);
             } catch (JSONException e) {
-                logger.log(Level.WARNING, "An error occured while retrieving data from JSONArray", e);
+                logger.warning("An error occured while retrieving data from JSONArray", e);
                 v = null;
             }
             data[i] = JSONObject.NULL.equals(v) ? null : v;
@@ -527,6 +1203,268 @@ public class Socket extends Emitter {
         return data;
     }
 
+    /**
+     * Listens on the event, and converts its first argument to the given type before calling the
+     * listener. The supported types depend on the {@link Manager.Options#codec}: only the {@code org.json}
+     * types, strings, numbers and booleans with the default one, and POJOs with a data binding codec. The
+     * other arguments are ignored, except the {@link Ack} expected by the server.
+     *
+     * <p>When the event has no other listeners, and no {@link #onAnyIncoming(Listener)} listener is
+     * registered, the codec binds the argument while decoding the packet, without going through its
+     * object model.</p>
+     *
+     * @param event an event name.
+     * @param type the expected type of the first argument.
+     * @param fn the listener.
+     * @param <T> the type of the argument.
+     * @return a reference to this object.
+     * @throws IllegalArgumentException if the codec cannot convert the arguments to the given type.
+     */
+    public <T> Socket onTyped(String event, Class<T> type, TypedListener<T> fn) {
+        return this.onTyped(event, new TypedHandler(new Class<?>[] {type}, fn));
+    }
+
+    /**
+     * Listens on the event, and converts each of its arguments to the type found at the same index before
+     * calling the listener, like {@link #onTyped(String, Class, TypedListener)}. The listener receives as
+     * many arguments as given types, followed by the {@link Ack} expected by the server, if any.
+     *
+     * <pre>
+     * socket.onTyped("trade", new Class&lt;?&gt;[] {Trade.class, Long.class}, new Emitter.Listener() {
+     *     &#64;Override
+     *     public void call(Object... args) {
+     *         Trade trade = (Trade) args[0];
+     *         Long timestamp = (Long) args[1];
+     *     }
+     * });
+     * </pre>
+     *
+     * @param event an event name.
+     * @param types the expected types of the arguments.
+     * @param fn the listener.
+     * @return a reference to this object.
+     * @throws IllegalArgumentException if the codec cannot convert the arguments to one of the given types.
+     */
+    public Socket onTyped(String event, Class<?>[] types, Listener fn) {
+        return this.onTyped(event, new TypedHandler(types.clone(), fn));
+    }
+
+    private Socket onTyped(String event, TypedHandler handler) {
+        for (Class<?> type : handler.types) {
+            if (!this.io.codec.canConvert(type)) {
+                throw new IllegalArgumentException("the codec " + this.io.codec.getClass().getName()
+                        + " cannot convert the arguments to " + type.getName());
+            }
+        }
+        TypedHandlers handlers = this.typedListeners.get(event);
+        if (handlers == null) {
+            TypedHandlers newHandlers = new TypedHandlers();
+            handlers = this.typedListeners.putIfAbsent(event, newHandlers);
+            if (handlers == null) {
+                handlers = newHandlers;
+            }
+        }
+        handlers.add(handler);
+        return this;
+    }
+
+    /**
+     * Removes the listener registered with {@link #onTyped(String, Class, TypedListener)}.
+     *
+     * @param event an event name.
+     * @param fn the listener.
+     * @return a reference to this object.
+     */
+    public Socket offTyped(String event, TypedListener<?> fn) {
+        return this.offTyped(event, (Object) fn);
+    }
+
+    /**
+     * Removes the listener registered with {@link #onTyped(String, Class[], Listener)}.
+     *
+     * @param event an event name.
+     * @param fn the listener.
+     * @return a reference to this object.
+     */
+    public Socket offTyped(String event, Listener fn) {
+        return this.offTyped(event, (Object) fn);
+    }
+
+    private Socket offTyped(String event, Object fn) {
+        TypedHandlers handlers = this.typedListeners.get(event);
+        if (handlers != null) {
+            handlers.remove(fn);
+        }
+        this.releaseMailbox(event);
+        return this;
+    }
+
+    /**
+     * Listens on the event, and calls the listener with batches of at most {@code maxSize} events. A
+     * batch is delivered once full, or {@code maxDelay} milliseconds after its first event.
+     *
+     * <p>The batches are called like the other listeners, on the event loop or on the
+     * {@link Manager.Options#listenerExecutor}, and in order with the events.</p>
+     *
+     * @param event an event name.
+     * @param maxSize the maximum number of events of a batch.
+     * @param maxDelay the maximum delay (ms) before a batch is delivered. With 0, the batch holds the
+     *     events received during a same tick of the event loop.
+     * @param fn the listener.
+     * @return a reference to this object.
+     */
+    public Socket onBatch(String event, int maxSize, long maxDelay, BatchListener fn) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("maxDelay must not be negative");
+        }
+        Batcher batcher = new Batcher(event, maxSize, maxDelay, fn);
+        this.batchers.add(batcher);
+        super.on(event, batcher);
+        return this;
+    }
+
+    /**
+     * Removes the listener registered with {@link #onBatch(String, int, long, BatchListener)}, after
+     * delivering its pending events.
+     *
+     * @param event an event name.
+     * @param fn the listener.
+     * @return a reference to this object.
+     */
+    public Socket offBatch(String event, BatchListener fn) {
+        Iterator<Batcher> it = this.batchers.iterator();
+        while (it.hasNext()) {
+            Batcher batcher = it.next();
+            if (batcher.event.equals(event) && batcher.fn == fn) {
+                it.remove();
+                super.off(event, batcher);
+                batcher.flush();
+                break;
+            }
+        }
+        this.releaseMailbox(event);
+        return this;
+    }
+
+    /**
+     * Removes all the listeners of the event, including the typed and batched ones, and completes the
+     * subscriptions to its {@link #events(String) publishers}. The pending events of the batched
+     * listeners are delivered first.
+     *
+     * @param event an event name.
+     * @return a reference to this object.
+     */
+    @Override
+    public Emitter off(String event) {
+        this.typedListeners.remove(event);
+        this.offBatches(event);
+        this.subscriptions.complete(event);
+        super.off(event);
+        this.releaseMailbox(event);
+        return this;
+    }
+
+    @Override
+    public Emitter off(String event, Listener fn) {
+        super.off(event, fn);
+        this.releaseMailbox(event);
+        return this;
+    }
+
+    /**
+     * Removes all the listeners, including the typed and batched ones, and completes the subscriptions to
+     * the {@link #events(String) publishers}. The pending events of the batched listeners are delivered
+     * first.
+     *
+     * @return a reference to this object.
+     */
+    @Override
+    public Emitter off() {
+        this.typedListeners.clear();
+        this.offBatches(null);
+        this.subscriptions.complete(null);
+        super.off();
+        this.releaseMailbox(null);
+        return this;
+    }
+
+    /**
+     * @return whether the event has listeners, typed or not.
+     */
+    /*package*/ boolean hasEventListeners(String event) {
+        if (this.hasListeners(event)) return true;
+        TypedHandlers handlers = this.typedListeners.get(event);
+        return handlers != null && !handlers.queue.isEmpty();
+    }
+
+    /**
+     * Called by the decoder, possibly on another thread than the listeners. A listener registered while the
+     * packet is dispatched may receive the bound arguments.
+     *
+     * @return the types the arguments of the event are bound to while decoding, indexed like the elements
+     *     of the packet (the event name first), or {@code null}.
+     */
+    /*package*/ Class<?>[] argumentTypes(String event) {
+        TypedHandlers handlers = this.typedListeners.get(event);
+        if (handlers == null || !this.onAnyIncomingListeners.isEmpty() || this.hasListeners(event)) {
+            // the other listeners receive the arguments in the object model of the codec
+            return null;
+        }
+        return handlers.types;
+    }
+
+    private void releaseMailbox(String event) {
+        if (this.listenerDispatcher != null) {
+            this.listenerDispatcher.release(event);
+        }
+    }
+
+    /**
+     * @param event an event name, or {@code null} for all the events.
+     */
+    private void offBatches(String event) {
+        Iterator<Batcher> it = this.batchers.iterator();
+        while (it.hasNext()) {
+            Batcher batcher = it.next();
+            if (event == null || batcher.event.equals(event)) {
+                it.remove();
+                super.off(batcher.event, batcher);
+                batcher.flush();
+            }
+        }
+    }
+
+    /**
+     * Publishes the event to subscribers which request it, with buffers of
+     * {@link EventPublisher#DEFAULT_BUFFER_SIZE} events which fail once full.
+     *
+     * @param event an event name.
+     * @return a publisher of the arguments of the event.
+     */
+    public EventPublisher events(String event) {
+        return this.events(event, EventPublisher.DEFAULT_BUFFER_SIZE, EventPublisher.Overflow.ERROR);
+    }
+
+    /**
+     * Publishes the event to subscribers which request it. Unlike the listeners, a slow subscriber does
+     * not hold more than {@code bufferSize} events.
+     *
+     * <pre>
+     * socket.events("tick", 1024, EventPublisher.Overflow.LATEST).subscribe(subscriber);
+     * </pre>
+     *
+     * @param event an event name.
+     * @param bufferSize the maximum number of events held for each subscriber beyond its demand.
+     * @param overflow what happens to the events received while the buffer is full.
+     * @return a publisher of the arguments of the event.
+     */
+    public EventPublisher events(String event, int bufferSize, EventPublisher.Overflow overflow) {
+        return new EventPublisher(this, event, bufferSize, overflow, this.subscriptions);
+    }
+
     public Socket onAnyIncoming(Listener fn) {
         this.onAnyIncomingListeners.add(fn);
         return this;
@@ -570,5 +1508,477 @@ public class Socket extends Emitter {
         }
         return this;
     }
-}
 
+    /**
+     * What to do when a packet is emitted while the outbound buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Block the producer thread until there is enough space. When called from the event loop
+         * (for example, from a listener), this behaves like {@link #FAIL}.
+         */
+        BLOCK,
+
+        /**
+         * Drop the oldest packets, either buffered while disconnected or emitted from another thread and
+         * still waiting for the event loop, and fail their acks like {@link AckPolicy#FAIL}.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Drop the packet being emitted, and fail its ack like {@link #DROP_OLDEST}.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Throw an {@link IllegalStateException}.
+         */
+        FAIL
+    }
+
+    /**
+     * What happens to the acks of the sent packets when the socket is disconnected.
+     */
+    public enum AckPolicy {
+        /**
+         * Remove them, since the server will not acknowledge the packets of a previous connection: the
+         * {@link #emitWithAck(String, long, TimeUnit, Object...)} calls fail, {@link AckWithTimeout#onTimeout()}
+         * is called, and the other acks are dropped.
+         */
+        FAIL,
+
+        /**
+         * Keep them until they are acknowledged or time out, across the drops of the connection and the
+         * reconnections. They are still removed like with {@link #FAIL} when the socket is closed by
+         * {@link Socket#close()} or by the server.
+         */
+        RETAIN
+    }
+
+    /**
+     * Order in which the listeners are called off the event loop. See
+     * {@link Manager.Options#listenerOrdering}.
+     */
+    public enum ListenerOrdering {
+        /**
+         * The listeners of a socket are called one at a time, in the order of the packets.
+         */
+        PER_SOCKET,
+
+        /**
+         * The listeners of a same event are called one at a time, in the order of the packets, while
+         * the listeners of different events may run in parallel. The listeners of a reserved event
+         * (connect, disconnect...) run after those of all the events received before it, and before
+         * those of all the events received after it. The acknowledgements are ordered with the
+         * reserved events.
+         */
+        PER_EVENT
+    }
+
+    /**
+     * Execution time of the listeners of an event.
+     */
+    public static final class ListenerStats {
+
+        private long count;
+        private long slowCount;
+        private long totalTime;
+        private long maxTime;
+
+        /*package*/ ListenerStats() {}
+
+        /*package*/ synchronized void record(long duration, boolean slow) {
+            this.count++;
+            if (slow) {
+                this.slowCount++;
+            }
+            this.totalTime += duration;
+            if (duration > this.maxTime) {
+                this.maxTime = duration;
+            }
+        }
+
+        /**
+         * @return the number of packets handled.
+         */
+        public synchronized long count() {
+            return this.count;
+        }
+
+        /**
+         * @return the number of packets whose listeners took longer than
+         *     {@link Manager.Options#slowListenerThreshold}.
+         */
+        public synchronized long slowCount() {
+            return this.slowCount;
+        }
+
+        public synchronized long totalTime(TimeUnit unit) {
+            return unit.convert(this.totalTime, TimeUnit.NANOSECONDS);
+        }
+
+        public synchronized long maxTime(TimeUnit unit) {
+            return unit.convert(this.maxTime, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("ListenerStats{count=%d, slowCount=%d, totalTime=%dns, maxTime=%dns}",
+                    this.count, this.slowCount, this.totalTime, this.maxTime);
+        }
+    }
+
+    /**
+     * Gauges of the socket, read by the metrics registry from any thread.
+     */
+    private final class MetricsSource implements MetricsRegistry.Source {
+
+        @Override
+        public URI uri() {
+            return Socket.this.io.uri();
+        }
+
+        @Override
+        public String namespace() {
+            return Socket.this.nsp;
+        }
+
+        @Override
+        public int packetBufferDepth() {
+            return 0;
+        }
+
+        @Override
+        public int sendBufferDepth() {
+            return Socket.this.sendBufferDepth();
+        }
+
+        @Override
+        public int receiveBufferDepth() {
+            return Socket.this.receiveBufferDepth();
+        }
+
+        @Override
+        public int pendingAcks() {
+            return Socket.this.pendingAcks();
+        }
+    }
+
+    /**
+     * An event emitted from outside the event loop.
+     */
+    private final class Emission implements Runnable {
+
+        private final String event;
+        // only set for emitLatest()
+        private final Object key;
+        private final Object[] args;
+        private final int length;
+        private final Ack ack;
+        private final long size;
+
+        Emission(String event, Object key, Object[] args, int length, Ack ack, long size) {
+            this.event = event;
+            this.key = key;
+            this.args = args;
+            this.length = length;
+            this.ack = ack;
+            this.size = size;
+        }
+
+        @Override
+        public void run() {
+            if (this.key != null) {
+                Socket.this.sendLatest(this.event, this.key, this.args, this.size);
+            } else if (Socket.this.connected
+                    && Socket.this.outboundBuffer.overflowPolicy() == OverflowPolicy.DROP_OLDEST
+                    && Socket.this.outboundBuffer.isOverLimit()) {
+                // the emissions run in order, so this one is the oldest packet of the buffer
+                logger.fine("outbound buffer is full, dropping packet of event {0}", this.event);
+                fail(this.ack, "packet dropped from the outbound buffer");
+                Socket.this.release(this.size, true);
+            } else {
+                Socket.this.send(this.event, this.args, this.length, this.ack, this.size);
+            }
+        }
+    }
+
+    /**
+     * Packet of an emitted event, which holds the size reserved in the {@link OutboundBuffer} while it
+     * waits in the send buffer, so that the same size is released whatever happens to its data.
+     */
+    /*package*/ static class OutboundPacket extends Packet<JSONArray> {
+
+        /*package*/ long size;
+
+        OutboundPacket(JSONArray data) {
+            super(Parser.EVENT, data);
+        }
+    }
+
+    /**
+     * Packet of {@link #emitLatest(String, Object, Object...)}, whose data is replaced by the newer
+     * versions until the manager hands it to the encoder.
+     */
+    /*package*/ static final class LatestPacket extends OutboundPacket {
+
+        private final Map<Object, LatestPacket> packets;
+        private final Object key;
+        // whether the packet is in the send buffer of the socket, or in the queue of the manager
+        private boolean buffered;
+
+        LatestPacket(JSONArray data, Map<Object, LatestPacket> packets, Object key) {
+            super(data);
+            this.packets = packets;
+            this.key = key;
+        }
+
+        /**
+         * Called once the packet leaves the buffers, so that the next version gets its own packet.
+         */
+        /*package*/ void detach() {
+            if (this.packets.get(this.key) == this) {
+                this.packets.remove(this.key);
+            }
+        }
+    }
+
+    /**
+     * Packet of an acknowledged event appended to the {@link OutboundJournal}, which is sent again after a
+     * reconnection until the server acknowledges it.
+     */
+    private static final class JournaledPacket extends OutboundPacket implements EncodedPayload {
+
+        private final long seq;
+        private final String json;
+        private final List<byte[]> buffers;
+
+        JournaledPacket(JSONArray data, long seq, String json, List<byte[]> buffers) {
+            super(data);
+            this.seq = seq;
+            this.json = json;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public String json() {
+            return this.json;
+        }
+
+        @Override
+        public List<byte[]> attachments() {
+            return this.buffers;
+        }
+    }
+
+    private static final class FutureAck extends AckWithTimeout {
+
+        private final AckFuture future;
+
+        FutureAck(long timeout, AckFuture future) {
+            super(timeout);
+            this.future = future;
+        }
+
+        @Override
+        public void onSuccess(Object... args) {
+            this.future.complete(args);
+        }
+
+        @Override
+        public void onTimeout() {
+            this.future.fail(new SocketIOException("operation has timed out"));
+        }
+    }
+
+    /**
+     * Gathers the occurrences of an event into a list, handed to the listener as a whole.
+     */
+    private final class Batcher implements Listener {
+
+        private final String event;
+        private final int maxSize;
+        private final long maxDelay;
+        private final BatchListener fn;
+        // guarded by this, as off() may be called from any thread
+        private List<Object[]> events;
+        // incremented by each flush, so that a late timeout does not flush the next batch
+        private int generation;
+        private HashedWheelTimer.Timeout timeout;
+
+        Batcher(String event, int maxSize, long maxDelay, BatchListener fn) {
+            this.event = event;
+            this.maxSize = maxSize;
+            this.maxDelay = maxDelay;
+            this.fn = fn;
+        }
+
+        @Override
+        public void call(Object... args) {
+            List<Object[]> batch = null;
+            synchronized (this) {
+                if (this.events == null) {
+                    // grown as needed, since most batches are flushed by the delay
+                    this.events = new ArrayList<>(Math.min(this.maxSize, 16));
+                    this.schedule(this.generation);
+                }
+                this.events.add(args);
+                if (this.events.size() == this.maxSize) {
+                    batch = this.take();
+                }
+            }
+            if (batch != null) {
+                this.fn.call(batch);
+            }
+        }
+
+        private void flush() {
+            List<Object[]> batch;
+            synchronized (this) {
+                if (this.events == null) return;
+                batch = this.take();
+            }
+            this.fn.call(batch);
+        }
+
+        /**
+         * Flushes the batch, unless it was already flushed since the given generation.
+         */
+        private void flush(int generation) {
+            List<Object[]> batch;
+            synchronized (this) {
+                if (this.generation != generation || this.events == null) return;
+                batch = this.take();
+            }
+            this.fn.call(batch);
+        }
+
+        private void schedule(final int generation) {
+            final Runnable flush = new Runnable() {
+                @Override
+                public void run() {
+                    Batcher.this.flush(generation);
+                }
+            };
+            // the flush is queued behind the events, like a listener
+            final Runnable dispatch = new Runnable() {
+                @Override
+                public void run() {
+                    if (Socket.this.listenerDispatcher != null) {
+                        Socket.this.listenerDispatcher.dispatch(Batcher.this.event, flush);
+                    } else {
+                        flush.run();
+                    }
+                }
+            };
+
+            if (this.maxDelay > 0) {
+                this.timeout = HashedWheelTimer.shared().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        Socket.this.io.loop.exec(dispatch);
+                    }
+                }, this.maxDelay);
+            } else {
+                Socket.this.io.loop.nextTick(dispatch);
+            }
+        }
+
+        private List<Object[]> take() {
+            List<Object[]> batch = this.events;
+            this.events = null;
+            this.generation++;
+            if (this.timeout != null) {
+                this.timeout.cancel();
+                this.timeout = null;
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * The typed listeners of an event, with the types their arguments have in common.
+     */
+    private static final class TypedHandlers {
+
+        private final Queue<TypedHandler> queue = new ConcurrentLinkedQueue<>();
+
+        // indexed like the elements of the packet, the event name first; null where the listeners disagree
+        private volatile Class<?>[] types;
+
+        synchronized void add(TypedHandler handler) {
+            this.queue.add(handler);
+            this.update();
+        }
+
+        synchronized void remove(Object fn) {
+            Iterator<TypedHandler> it = this.queue.iterator();
+            while (it.hasNext()) {
+                if (it.next().fn == fn) {
+                    it.remove();
+                    break;
+                }
+            }
+            this.update();
+        }
+
+        private void update() {
+            Class<?>[] types = null;
+            for (TypedHandler handler : this.queue) {
+                if (types == null) {
+                    types = new Class<?>[handler.types.length + 1];
+                    System.arraycopy(handler.types, 0, types, 1, handler.types.length);
+                    continue;
+                }
+                if (types.length < handler.types.length + 1) {
+                    Class<?>[] longer = Arrays.copyOf(types, handler.types.length + 1);
+                    System.arraycopy(handler.types, types.length - 1, longer, types.length,
+                            handler.types.length + 1 - types.length);
+                    types = longer;
+                }
+                for (int i = 0; i < handler.types.length && i + 1 < types.length; i++) {
+                    if (types[i + 1] != handler.types[i]) {
+                        types[i + 1] = null;
+                    }
+                }
+            }
+            this.types = types;
+        }
+    }
+
+    private static final class TypedHandler {
+
+        private final Class<?>[] types;
+        // a TypedListener, or a Listener receiving all the arguments
+        private final Object fn;
+
+        TypedHandler(Class<?>[] types, Object fn) {
+            this.types = types;
+            this.fn = fn;
+        }
+
+        @SuppressWarnings("unchecked")
+        void call(JSONCodec codec, String event, Object[] data, Ack ack) {
+            Object[] args = new Object[this.types.length];
+            for (int i = 0; i < args.length; i++) {
+                Object arg = i + 1 < data.length ? data[i + 1] : null;
+                try {
+                    // already bound by the codec when the event has no other listeners
+                    args[i] = this.types[i].isInstance(arg) ? arg : codec.convert(arg, this.types[i]);
+                } catch (IllegalArgumentException e) {
+                    logger.warning("unable to convert the arguments of event ''{0}''", event, e);
+                    return;
+                }
+            }
+            if (this.fn instanceof TypedListener) {
+                ((TypedListener<Object>) this.fn).call(args[0], ack);
+            } else {
+                if (ack != null) {
+                    args = Arrays.copyOf(args, args.length + 1);
+                    args[args.length - 1] = ack;
+                }
+                ((Listener) this.fn).call(args);
+            }
+        }
+    }
+}
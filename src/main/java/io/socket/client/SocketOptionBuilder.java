@@ -1,7 +1,10 @@
 package io.socket.client;
 
+import io.socket.parser.JSONCodec;
+
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 
 /**
@@ -68,6 +71,9 @@ public class SocketOptionBuilder {
                 .setReconnectionDelayMax(options.reconnectionDelayMax)
                 .setRandomizationFactor(options.randomizationFactor)
                 .setTimeout(options.timeout)
+                .setMaxBatchSize(options.maxBatchSize)
+                .setMaxBatchDelay(options.maxBatchDelay)
+                .setVolatileThreshold(options.volatileThreshold)
                 .setTransports(options.transports)
                 .setUpgrade(options.upgrade)
                 .setRememberUpgrade(options.rememberUpgrade)
@@ -79,6 +85,18 @@ public class SocketOptionBuilder {
                 .setPath(options.path)
                 .setQuery(options.query)
                 .setAuth(options.auth)
+                .setCodec(options.codec)
+                .setMaxBufferedPackets(options.maxBufferedPackets)
+                .setMaxBufferedBytes(options.maxBufferedBytes)
+                .setWaterMarks(options.lowWaterMark, options.highWaterMark)
+                .setOverflowPolicy(options.overflowPolicy)
+                .setAckPolicy(options.ackPolicy)
+                .setJournal(options.journal)
+                .setEventLoopGroup(options.eventLoopGroup)
+                .setListenerExecutor(options.listenerExecutor)
+                .setListenerOrdering(options.listenerOrdering)
+                .setSlowListenerThreshold(options.slowListenerThreshold)
+                .setMetricsRegistry(options.metricsRegistry)
                 .setExtraHeaders(options.extraHeaders);
         }
     }
@@ -124,6 +142,21 @@ public class SocketOptionBuilder {
         return this;
     }
 
+    public SocketOptionBuilder setMaxBatchSize(int maxBatchSize) {
+        this.options.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public SocketOptionBuilder setMaxBatchDelay(long maxBatchDelay) {
+        this.options.maxBatchDelay = maxBatchDelay;
+        return this;
+    }
+
+    public SocketOptionBuilder setVolatileThreshold(int volatileThreshold) {
+        this.options.volatileThreshold = volatileThreshold;
+        return this;
+    }
+
     public SocketOptionBuilder setTransports(String[] transports) {
         this.options.transports = transports;
         return this;
@@ -179,6 +212,67 @@ public class SocketOptionBuilder {
         return this;
     }
 
+    public SocketOptionBuilder setCodec(JSONCodec codec) {
+        this.options.codec = codec;
+        return this;
+    }
+
+    public SocketOptionBuilder setMaxBufferedPackets(int maxBufferedPackets) {
+        this.options.maxBufferedPackets = maxBufferedPackets;
+        return this;
+    }
+
+    public SocketOptionBuilder setMaxBufferedBytes(long maxBufferedBytes) {
+        this.options.maxBufferedBytes = maxBufferedBytes;
+        return this;
+    }
+
+    public SocketOptionBuilder setWaterMarks(long lowWaterMark, long highWaterMark) {
+        this.options.lowWaterMark = lowWaterMark;
+        this.options.highWaterMark = highWaterMark;
+        return this;
+    }
+
+    public SocketOptionBuilder setOverflowPolicy(Socket.OverflowPolicy overflowPolicy) {
+        this.options.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    public SocketOptionBuilder setAckPolicy(Socket.AckPolicy ackPolicy) {
+        this.options.ackPolicy = ackPolicy;
+        return this;
+    }
+
+    public SocketOptionBuilder setJournal(OutboundJournal journal) {
+        this.options.journal = journal;
+        return this;
+    }
+
+    public SocketOptionBuilder setEventLoopGroup(EventLoopGroup eventLoopGroup) {
+        this.options.eventLoopGroup = eventLoopGroup;
+        return this;
+    }
+
+    public SocketOptionBuilder setListenerExecutor(Executor listenerExecutor) {
+        this.options.listenerExecutor = listenerExecutor;
+        return this;
+    }
+
+    public SocketOptionBuilder setListenerOrdering(Socket.ListenerOrdering listenerOrdering) {
+        this.options.listenerOrdering = listenerOrdering;
+        return this;
+    }
+
+    public SocketOptionBuilder setSlowListenerThreshold(long slowListenerThreshold) {
+        this.options.slowListenerThreshold = slowListenerThreshold;
+        return this;
+    }
+
+    public SocketOptionBuilder setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.options.metricsRegistry = metricsRegistry;
+        return this;
+    }
+
     public SocketOptionBuilder setExtraHeaders(Map<String, List<String>> extraHeaders) {
         this.options.extraHeaders = extraHeaders;
         return this;
@@ -0,0 +1,16 @@
+package io.socket.client;
+
+/**
+ * Listener receiving the first argument of an event, converted to the type it was registered with.
+ *
+ * @param <T> the type of the argument.
+ * @see Socket#onTyped(String, Class, TypedListener)
+ */
+public interface TypedListener<T> {
+
+    /**
+     * @param arg the converted argument.
+     * @param ack the acknowledgement expected by the server, or {@code null}.
+     */
+    void call(T arg, Ack ack);
+}
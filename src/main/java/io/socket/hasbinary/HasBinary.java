@@ -1,16 +1,15 @@
 package io.socket.hasbinary;
 
+import io.socket.logging.Log;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import java.util.Iterator;
 
 public class HasBinary {
 	
-    private static final Logger logger = Logger.getLogger(HasBinary.class.getName());
+    private static final Log logger = Log.getLog(HasBinary.class);
 	
     private HasBinary() {}
 
@@ -33,7 +32,7 @@ public class HasBinary {
                 try {
                     v = _obj.isNull(i) ? null : _obj.get(i);
                 } catch (JSONException e) {
-                    logger.log(Level.WARNING, "An error occured while retrieving data from JSONArray", e);
+                    logger.warning("An error occured while retrieving data from JSONArray", e);
                     return false;
                 }
                 if (_hasBinary(v)) {
@@ -49,7 +48,7 @@ public class HasBinary {
                 try {
                     v = _obj.get(key);
                 } catch (JSONException e) {
-                    logger.log(Level.WARNING, "An error occured while retrieving data from JSONObject", e);
+                    logger.warning("An error occured while retrieving data from JSONObject", e);
                     return false;       
                 }
                 if (_hasBinary(v)) {
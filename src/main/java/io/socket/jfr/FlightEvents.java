@@ -0,0 +1,68 @@
+package io.socket.jfr;
+
+import io.socket.parser.Packet;
+
+import java.net.URI;
+
+/**
+ * Hooks emitting Java Flight Recorder events for the encoding, the decoding and the dispatch of the
+ * packets, the acknowledgements and the reconnection attempts.
+ *
+ * <p>This version does nothing: on Java 11+, it is replaced by the one in {@code META-INF/versions/11}
+ * of the multi-release jar. A {@code begin} method returns null when its event is disabled, so that the
+ * caller can skip the corresponding {@code commit}.</p>
+ *
+ * <p>Internal API, used by the parser and the client.</p>
+ */
+public final class FlightEvents {
+
+    private FlightEvents() {}
+
+    public static Object beginEncode() {
+        return null;
+    }
+
+    /**
+     * @param size the number of characters of the text frame plus the bytes of the attachments.
+     */
+    public static void commitEncode(Object event, Packet<?> packet, long size) {}
+
+    public static Object beginDecode() {
+        return null;
+    }
+
+    /**
+     * @param packet the decoded packet, or the packet waiting for its attachments.
+     * @param size the number of characters or bytes of the frame.
+     */
+    public static void commitDecode(Object event, Packet<?> packet, long size) {}
+
+    public static Object beginDispatch() {
+        return null;
+    }
+
+    public static void commitDispatch(Object event, Packet<?> packet) {}
+
+    /**
+     * @return whether the round trip of the acknowledgements should be measured.
+     */
+    public static boolean isAckEnabled() {
+        return false;
+    }
+
+    public static Object beginAck() {
+        return null;
+    }
+
+    /**
+     * @param roundTrip the delay between the emission of the packet and its acknowledgement, in
+     *     nanoseconds, or -1 if unknown.
+     */
+    public static void commitAck(Object event, Packet<?> packet, long roundTrip) {}
+
+    public static Object beginReconnect() {
+        return null;
+    }
+
+    public static void commitReconnect(Object event, URI uri, int attempt, boolean success) {}
+}
@@ -0,0 +1,161 @@
+package io.socket.logging;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Logger of the library, on top of JUL.
+ *
+ * <p>The messages are {@link java.text.MessageFormat} patterns (like {@code "writing packet {0}"}),
+ * formatted with their arguments by the handler only when the record is actually published. The
+ * overloads with a fixed number of arguments, and the primitive ones, check the level first, so that a
+ * disabled call allocates nothing (no varargs array, no boxing, no string).</p>
+ *
+ * <p>Used by the parser and the client, and exported so that the codecs and the other extensions can log
+ * the same way, see the "Logging" page of the documentation.</p>
+ */
+public final class Log {
+
+    private final Logger logger;
+
+    private Log(Logger logger) {
+        this.logger = logger;
+    }
+
+    public static Log getLog(Class<?> type) {
+        return new Log(Logger.getLogger(type.getName()));
+    }
+
+    public boolean isFineEnabled() {
+        return this.logger.isLoggable(Level.FINE);
+    }
+
+    public void fine(String msg) {
+        if (this.logger.isLoggable(Level.FINE)) {
+            this.log(Level.FINE, msg, null, null);
+        }
+    }
+
+    public void fine(String format, Object arg) {
+        if (this.logger.isLoggable(Level.FINE)) {
+            this.log(Level.FINE, format, new Object[] {arg}, null);
+        }
+    }
+
+    public void fine(String format, int arg) {
+        if (this.logger.isLoggable(Level.FINE)) {
+            this.log(Level.FINE, format, new Object[] {arg}, null);
+        }
+    }
+
+    public void fine(String format, long arg) {
+        if (this.logger.isLoggable(Level.FINE)) {
+            this.log(Level.FINE, format, new Object[] {arg}, null);
+        }
+    }
+
+    public void fine(String format, Object arg1, Object arg2) {
+        if (this.logger.isLoggable(Level.FINE)) {
+            this.log(Level.FINE, format, new Object[] {arg1, arg2}, null);
+        }
+    }
+
+    public void fine(String msg, Throwable thrown) {
+        if (this.logger.isLoggable(Level.FINE)) {
+            this.log(Level.FINE, msg, null, thrown);
+        }
+    }
+
+    public void fine(String format, Object arg, Throwable thrown) {
+        if (this.logger.isLoggable(Level.FINE)) {
+            this.log(Level.FINE, format, new Object[] {arg}, thrown);
+        }
+    }
+
+    public void warning(String format, Object arg1, Object arg2) {
+        if (this.logger.isLoggable(Level.WARNING)) {
+            this.log(Level.WARNING, format, new Object[] {arg1, arg2}, null);
+        }
+    }
+
+    public void warning(String msg, Throwable thrown) {
+        if (this.logger.isLoggable(Level.WARNING)) {
+            this.log(Level.WARNING, msg, null, thrown);
+        }
+    }
+
+    public void warning(String format, Object arg, Throwable thrown) {
+        if (this.logger.isLoggable(Level.WARNING)) {
+            this.log(Level.WARNING, format, new Object[] {arg}, thrown);
+        }
+    }
+
+    public void severe(String msg, Throwable thrown) {
+        if (this.logger.isLoggable(Level.SEVERE)) {
+            this.log(Level.SEVERE, msg, null, thrown);
+        }
+    }
+
+    private void log(Level level, String format, Object[] params, Throwable thrown) {
+        Record record = new Record(level, format);
+        record.setLoggerName(this.logger.getName());
+        record.setParameters(params);
+        record.setThrown(thrown);
+        this.logger.log(record);
+    }
+
+    /**
+     * Record whose source is the caller of the {@link Log}, instead of the {@link Log} itself. Like the
+     * JUL records, the source is only looked up if a handler asks for it.
+     */
+    private static final class Record extends LogRecord {
+
+        private boolean inferred;
+
+        Record(Level level, String msg) {
+            super(level, msg);
+        }
+
+        @Override
+        public String getSourceClassName() {
+            this.inferCaller();
+            return super.getSourceClassName();
+        }
+
+        @Override
+        public String getSourceMethodName() {
+            this.inferCaller();
+            return super.getSourceMethodName();
+        }
+
+        @Override
+        public void setSourceClassName(String sourceClassName) {
+            this.inferred = true;
+            super.setSourceClassName(sourceClassName);
+        }
+
+        @Override
+        public void setSourceMethodName(String sourceMethodName) {
+            this.inferred = true;
+            super.setSourceMethodName(sourceMethodName);
+        }
+
+        private void inferCaller() {
+            if (this.inferred) return;
+            this.inferred = true;
+
+            String log = Log.class.getName();
+            boolean inLog = false;
+            for (StackTraceElement frame : new Throwable().getStackTrace()) {
+                if (log.equals(frame.getClassName())) {
+                    inLog = true;
+                } else if (inLog) {
+                    super.setSourceClassName(frame.getClassName());
+                    super.setSourceMethodName(frame.getMethodName());
+                    return;
+                }
+            }
+        }
+    }
+}
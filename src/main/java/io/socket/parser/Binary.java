@@ -1,5 +1,6 @@
 package io.socket.parser;
 
+import io.socket.logging.Log;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -7,8 +8,6 @@ import org.json.JSONObject;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 public class Binary {
 
@@ -16,7 +15,7 @@ public class Binary {
 
     private static final String KEY_NUM = "num";
     
-    private static final Logger logger = Logger.getLogger(Binary.class.getName());
+    private static final Log logger = Log.getLog(Binary.class);
 
     @SuppressWarnings("unchecked")
     public static DeconstructedPacket deconstructPacket(Packet packet) {
@@ -40,7 +39,7 @@ public class Binary {
                 placeholder.put(KEY_PLACEHOLDER, true);
                 placeholder.put(KEY_NUM, buffers.size());
             } catch (JSONException e) {
-                logger.log(Level.WARNING, "An error occured while putting data to JSONObject", e);
+                logger.warning("An error occured while putting data to JSONObject", e);
                 return null;
             }
             buffers.add((byte[])data);
@@ -53,7 +52,7 @@ public class Binary {
                 try {
                     newData.put(i, _deconstructPacket(_data.get(i), buffers));
                 } catch (JSONException e) {
-                    logger.log(Level.WARNING, "An error occured while putting packet data to JSONObject", e);
+                    logger.warning("An error occured while putting packet data to JSONObject", e);
                     return null;
                 }
             }
@@ -67,7 +66,7 @@ public class Binary {
                 try {
                     newData.put(key, _deconstructPacket(_data.get(key), buffers));
                 } catch (JSONException e) {
-                    logger.log(Level.WARNING, "An error occured while putting data to JSONObject", e);
+                    logger.warning("An error occured while putting data to JSONObject", e);
                     return null;
                 }
             }
@@ -91,7 +90,7 @@ public class Binary {
                 try {
                     _data.put(i, _reconstructPacket(_data.get(i), buffers));
                 } catch (JSONException e) {
-                    logger.log(Level.WARNING, "An error occured while putting packet data to JSONObject", e);
+                    logger.warning("An error occured while putting packet data to JSONObject", e);
                     return null;
                 }
             }
@@ -108,7 +107,7 @@ public class Binary {
                 try {
                     _data.put(key, _reconstructPacket(_data.get(key), buffers));
                 } catch (JSONException e) {
-                    logger.log(Level.WARNING, "An error occured while putting data to JSONObject", e);
+                    logger.warning("An error occured while putting data to JSONObject", e);
                     return null;
                 }
             }
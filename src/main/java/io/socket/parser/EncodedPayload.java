@@ -0,0 +1,21 @@
+package io.socket.parser;
+
+import java.util.List;
+
+/**
+ * Implemented by the packets whose payload was already serialized by a {@link JSONCodec}, like the events
+ * written to a journal before being sent. {@link IOParser.Encoder} writes this form as is, instead of
+ * serializing {@link Packet#data} again; the other encoders use the data.
+ */
+public interface EncodedPayload {
+
+    /**
+     * @return the JSON of the payload, where the binary attachments are replaced by placeholders.
+     */
+    String json();
+
+    /**
+     * @return the binary attachments, in the order of their placeholders.
+     */
+    List<byte[]> attachments();
+}
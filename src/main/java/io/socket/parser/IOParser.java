@@ -1,53 +1,98 @@
 package io.socket.parser;
 
-import io.socket.hasbinary.HasBinary;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONTokener;
+import io.socket.jfr.FlightEvents;
+import io.socket.logging.Log;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 final public class IOParser implements Parser {
 
-    private static final Logger logger = Logger.getLogger(IOParser.class.getName());
+    private static final Log logger = Log.getLog(IOParser.class);
+
+    private static final JSONCodec DEFAULT_CODEC = new OrgJSONCodec();
 
     private IOParser() {}
 
     final public static class Encoder implements Parser.Encoder {
 
-        public Encoder() {}
+        // the type, the number of attachments (at most 10 digits) and the dash of a binary packet
+        private static final int MAX_TYPE_LENGTH = 12;
+
+        private final JSONCodec codec;
+
+        // length of the last packet, to size the buffer of the next one
+        private int sizeHint;
+
+        public Encoder() {
+            this(DEFAULT_CODEC);
+        }
+
+        public Encoder(JSONCodec codec) {
+            this.codec = codec;
+        }
 
+        /**
+         * Serializes the payload and extracts its binary attachments in a single traversal. The type and
+         * the number of attachments, only known once the payload is serialized, are written in a room
+         * reserved at the start of the buffer, so that the payload is never shifted.
+         */
         @Override
         public void encode(Packet obj, Callback callback) {
-            if ((obj.type == EVENT || obj.type == ACK) && HasBinary.hasBinary(obj.data)) {
-                obj.type = obj.type == EVENT ? BINARY_EVENT : BINARY_ACK;
+            Object event = FlightEvents.beginEncode();
+            boolean supportsBinary = obj.type == EVENT || obj.type == ACK
+                    || obj.type == BINARY_EVENT || obj.type == BINARY_ACK;
+            List<byte[]> attachments = supportsBinary ? new ArrayList<byte[]>(0) : null;
+
+            int reserved = supportsBinary ? MAX_TYPE_LENGTH : 1;
+            StringBuilder str = new StringBuilder(reserved + this.sizeHint);
+            str.setLength(reserved);
+            appendNamespaceAndId(obj, str);
+            if (supportsBinary && obj instanceof EncodedPayload) {
+                EncodedPayload payload = (EncodedPayload) obj;
+                str.append(payload.json());
+                attachments.addAll(payload.attachments());
+            } else if (obj.data != null) {
+                this.codec.encode(obj.data, str, attachments);
             }
+            this.sizeHint = str.length() - reserved;
 
-            if (logger.isLoggable(Level.FINE)) {
-                logger.fine(String.format("encoding packet %s", obj));
+            if (attachments != null && !attachments.isEmpty()) {
+                if (obj.type == EVENT) obj.type = BINARY_EVENT;
+                if (obj.type == ACK) obj.type = BINARY_ACK;
             }
 
-            if (BINARY_EVENT == obj.type || BINARY_ACK == obj.type) {
-                encodeAsBinary(obj, callback);
-            } else {
-                String encoding = encodeAsString(obj);
-                callback.call(new String[] {encoding});
+            logger.fine("encoding packet {0}", obj);
+
+            boolean binary = BINARY_EVENT == obj.type || BINARY_ACK == obj.type;
+            if (binary) {
+                obj.attachments = attachments.size();
             }
-        }
+            String encoding = str.substring(writeType(obj, str, reserved));
 
-        private String encodeAsString(Packet obj) {
-            StringBuilder str = new StringBuilder("" + obj.type);
+            logger.fine("encoded {0} as {1}", obj, encoding);
 
-            if (BINARY_EVENT == obj.type || BINARY_ACK == obj.type) {
-                str.append(obj.attachments);
-                str.append("-");
+            if (binary) {
+                Object[] frames = new Object[1 + attachments.size()];
+                frames[0] = encoding;
+                long size = encoding.length();
+                for (int i = 0; i < attachments.size(); i++) {
+                    frames[i + 1] = attachments.get(i);
+                    size += attachments.get(i).length;
+                }
+                if (event != null) {
+                    FlightEvents.commitEncode(event, obj, size);
+                }
+                callback.call(frames);
+            } else {
+                if (event != null) {
+                    FlightEvents.commitEncode(event, obj, encoding.length());
+                }
+                callback.call(new String[] {encoding});
             }
+        }
 
+        private static void appendNamespaceAndId(Packet obj, StringBuilder str) {
             if (obj.nsp != null && obj.nsp.length() != 0 && !"/".equals(obj.nsp)) {
                 str.append(obj.nsp);
                 str.append(",");
@@ -56,53 +101,96 @@ final public class IOParser implements Parser {
             if (obj.id >= 0) {
                 str.append(obj.id);
             }
+        }
 
-            if (obj.data != null) {
-                str.append(obj.data);
-            }
-
-            if (logger.isLoggable(Level.FINE)) {
-                logger.fine(String.format("encoded %s as %s", obj, str));
+        /**
+         * Writes the type, and the number of attachments of a binary packet, backwards from the end of
+         * the reserved room.
+         *
+         * @return the index of the first character of the packet.
+         */
+        private static int writeType(Packet obj, StringBuilder str, int reserved) {
+            int i = reserved;
+            if (BINARY_EVENT == obj.type || BINARY_ACK == obj.type) {
+                str.setCharAt(--i, '-');
+                int attachments = obj.attachments;
+                do {
+                    str.setCharAt(--i, (char) ('0' + attachments % 10));
+                    attachments /= 10;
+                } while (attachments > 0);
             }
-            return str.toString();
+            str.setCharAt(--i, (char) ('0' + obj.type));
+            return i;
         }
+    }
 
-        private void encodeAsBinary(Packet obj, Callback callback) {
-            Binary.DeconstructedPacket deconstruction = Binary.deconstructPacket(obj);
-            String pack = encodeAsString(deconstruction.packet);
-            List<Object> buffers = new ArrayList<Object>(Arrays.asList(deconstruction.buffers));
+    final public static class Decoder implements Parser.Decoder {
 
-            buffers.add(0, pack);
-            callback.call(buffers.toArray());
+        /**
+         * Resolves the types the arguments of an event are bound to while decoding its payload.
+         */
+        public interface ArgumentTypes {
+
+            /**
+             * @param nsp the namespace of the packet.
+             * @param event the name of the event.
+             * @return the types of the elements of the payload, the event name included (usually with a
+             *     {@code null} type), or {@code null} to keep the arguments in the object model of the
+             *     codec.
+             * @see JSONCodec#decodeArguments(String, int, int, byte[][], Class[])
+             */
+            Class<?>[] get(String nsp, String event);
         }
-    }
 
-    final public static class Decoder implements Parser.Decoder {
+        private static final int MAX_CACHED_NAMESPACES = 16;
 
         /*package*/ BinaryReconstructor reconstructor;
 
         private Decoder.Callback onDecodedCallback;
 
+        private final String[] namespaces = new String[MAX_CACHED_NAMESPACES];
+        private int namespaceCount;
+
+        private final JSONCodec codec;
+
+        private ArgumentTypes argumentTypes;
+
         public Decoder() {
+            this(DEFAULT_CODEC);
+        }
+
+        public Decoder(JSONCodec codec) {
             this.reconstructor = null;
+            this.codec = codec;
+        }
+
+        /**
+         * @param argumentTypes the types the arguments of the events are bound to, or {@code null}.
+         */
+        public void setArgumentTypes(ArgumentTypes argumentTypes) {
+            this.argumentTypes = argumentTypes;
         }
 
         @Override
         public void add(String obj) {
-            Packet packet = decodeString(obj);
+            Object event = FlightEvents.beginDecode();
+            Packet packet = this.decodeString(obj);
+            boolean pending = false;
             if (BINARY_EVENT == packet.type || BINARY_ACK == packet.type) {
-                this.reconstructor = new BinaryReconstructor(packet);
-
-                if (this.reconstructor.reconPack.attachments == 0) {
-                    if (this.onDecodedCallback != null) {
-                        this.onDecodedCallback.call(packet);
-                    }
-                }
-            } else {
-                if (this.onDecodedCallback != null) {
-                    this.onDecodedCallback.call(packet);
+                if (packet.attachments == 0) {
+                    BinaryReconstructor reconstructor = this.reconstructor;
+                    this.reconstructor = null;
+                    packet = reconstructor.reconstruct();
+                } else {
+                    pending = true;
                 }
             }
+            if (event != null) {
+                FlightEvents.commitDecode(event, packet, obj.length());
+            }
+            if (!pending && this.onDecodedCallback != null) {
+                this.onDecodedCallback.call(packet);
+            }
         }
 
         @Override
@@ -110,7 +198,18 @@ final public class IOParser implements Parser {
             if (this.reconstructor == null) {
                 throw new RuntimeException("got binary data when not reconstructing a packet");
             } else {
-                Packet packet = this.reconstructor.takeBinaryData(obj);
+                Object event = FlightEvents.beginDecode();
+                Packet pending = this.reconstructor.reconPack;
+                Packet packet;
+                try {
+                    packet = this.reconstructor.takeBinaryData(obj);
+                } catch (DecodingException e) {
+                    this.reconstructor = null;
+                    throw e;
+                }
+                if (event != null) {
+                    FlightEvents.commitDecode(event, packet != null ? packet : pending, obj.length);
+                }
                 if (packet != null) {
                     this.reconstructor = null;
                     if (this.onDecodedCallback != null) {
@@ -120,102 +219,176 @@ final public class IOParser implements Parser {
             }
         }
 
-        private static Packet decodeString(String str) {
-            int i = 0;
+        private Packet decodeString(String str) {
             int length = str.length();
+            if (length == 0) {
+                throw new DecodingException("unknown packet type -1");
+            }
 
-            Packet<Object> p = new Packet<>(Character.getNumericValue(str.charAt(0)));
+            Packet<Object> p = new Packet<>(str.charAt(0) - '0');
 
             if (p.type < 0 || p.type > types.length - 1) {
                 throw new DecodingException("unknown packet type " + p.type);
             }
 
+            int i = 1;
+
             if (BINARY_EVENT == p.type || BINARY_ACK == p.type) {
-                if (!str.contains("-") || length <= i + 1) {
-                    throw new DecodingException("illegal attachments");
+                int attachments = 0;
+                int start = i;
+                while (i < length && str.charAt(i) != '-') {
+                    int digit = str.charAt(i) - '0';
+                    if (digit < 0 || digit > 9 || attachments > (Integer.MAX_VALUE - digit) / 10) {
+                        throw new DecodingException("illegal attachments");
+                    }
+                    attachments = attachments * 10 + digit;
+                    i++;
                 }
-                StringBuilder attachments = new StringBuilder();
-                while (str.charAt(++i) != '-') {
-                    attachments.append(str.charAt(i));
+                if (i == start || i == length) {
+                    throw new DecodingException("illegal attachments");
                 }
-                p.attachments = Integer.parseInt(attachments.toString());
+                p.attachments = attachments;
+                i++;
             }
 
-            if (length > i + 1 && '/' == str.charAt(i + 1)) {
-                StringBuilder nsp = new StringBuilder();
-                while (true) {
-                    ++i;
-                    char c = str.charAt(i);
-                    if (',' == c) break;
-                    nsp.append(c);
-                    if (i + 1 == length) break;
+            if (i < length && '/' == str.charAt(i)) {
+                int start = i;
+                while (i < length && str.charAt(i) != ',') {
+                    i++;
+                }
+                p.nsp = this.namespace(str, start, i);
+                if (i < length) {
+                    // skip the separator
+                    i++;
                 }
-                p.nsp = nsp.toString();
             } else {
                 p.nsp = "/";
             }
 
-            if (length > i + 1){
-                Character next = str.charAt(i + 1);
-                if (Character.getNumericValue(next) > -1) {
-                    StringBuilder id = new StringBuilder();
-                    while (true) {
-                        ++i;
-                        char c = str.charAt(i);
-                        if (Character.getNumericValue(c) < 0) {
-                            --i;
-                            break;
-                        }
-                        id.append(c);
-                        if (i + 1 == length) break;
-                    }
-                    try {
-                        p.id = Integer.parseInt(id.toString());
-                    } catch (NumberFormatException e){
+            if (i < length && isDigit(str.charAt(i))) {
+                long id = 0;
+                while (i < length && isDigit(str.charAt(i))) {
+                    id = id * 10 + (str.charAt(i) - '0');
+                    if (id > Integer.MAX_VALUE) {
                         throw new DecodingException("invalid payload");
                     }
+                    i++;
                 }
+                p.id = (int) id;
             }
 
-            if (length > i + 1){
-                try {
-                    str.charAt(++i);
-                    p.data = new JSONTokener(str.substring(i)).nextValue();
-                } catch (JSONException e) {
-                    logger.log(Level.WARNING, "An error occured while retrieving data from JSONTokener", e);
-                    throw new DecodingException("invalid payload");
-                }
-                if (!isPayloadValid(p.type, p.data)) {
-                    throw new DecodingException("invalid payload");
-                }
+            Class<?>[] types = null;
+            if ((EVENT == p.type || BINARY_EVENT == p.type) && this.argumentTypes != null) {
+                types = this.argumentTypes(p.nsp, str, i, length);
             }
 
-            if (logger.isLoggable(Level.FINE)) {
-                logger.fine(String.format("decoded %s as %s", str, p));
+            if (BINARY_EVENT == p.type || BINARY_ACK == p.type) {
+                // parsed once the attachments are received, to replace their placeholders
+                this.reconstructor = new BinaryReconstructor(p, str, i, this.codec, types);
+            } else if (i < length) {
+                p.data = decodePayload(this.codec, p.type, str, i, length, null, types);
             }
+
+            logger.fine("decoded {0} as {1}", str, p);
             return p;
         }
 
-        private static boolean isPayloadValid(int type, Object payload) {
+        private static Object decodePayload(JSONCodec codec, int type, String str, int start, int end,
+                                            byte[][] attachments, Class<?>[] types) {
             switch (type) {
                 case Parser.CONNECT:
                 case Parser.CONNECT_ERROR:
-                    return payload instanceof JSONObject;
-                case Parser.DISCONNECT:
-                    return payload == null;
+                    if (firstChar(str, start, end) != '{') {
+                        throw new DecodingException("invalid payload");
+                    }
+                    return codec.decode(str, start, end);
                 case Parser.EVENT:
-                case Parser.BINARY_EVENT:
-                    return payload instanceof JSONArray
-                            && ((JSONArray) payload).length() > 0
-                            && !((JSONArray) payload).isNull(0);
+                case Parser.BINARY_EVENT: {
+                    Object[] args = codec.decodeArguments(str, start, end, attachments, types);
+                    if (args.length == 0 || args[0] == null) {
+                        throw new DecodingException("invalid payload");
+                    }
+                    return args;
+                }
                 case Parser.ACK:
                 case Parser.BINARY_ACK:
-                    return payload instanceof JSONArray;
+                    return codec.decodeArguments(str, start, end, attachments, null);
                 default:
-                    return false;
+                    // DISCONNECT has no payload
+                    throw new DecodingException("invalid payload");
             }
         }
 
+        private static char firstChar(String str, int start, int end) {
+            int i = skipWhitespace(str, start, end);
+            return i < end ? str.charAt(i) : 0;
+        }
+
+        private static int skipWhitespace(String str, int start, int end) {
+            int i = start;
+            while (i < end) {
+                char c = str.charAt(i);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    break;
+                }
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Looks up the types of the arguments with the event name, read from the payload without parsing
+         * it. The names with escape sequences are not looked up, their arguments are not bound.
+         */
+        private Class<?>[] argumentTypes(String nsp, String str, int start, int end) {
+            int i = skipWhitespace(str, start, end);
+            if (i == end || str.charAt(i) != '[') {
+                return null;
+            }
+            i = skipWhitespace(str, i + 1, end);
+            if (i == end || str.charAt(i) != '"') {
+                return null;
+            }
+            int nameStart = ++i;
+            while (i < end) {
+                char c = str.charAt(i);
+                if (c == '"') {
+                    return this.argumentTypes.get(nsp, str.substring(nameStart, i));
+                }
+                if (c == '\\') {
+                    return null;
+                }
+                i++;
+            }
+            return null;
+        }
+
+        /**
+         * Returns the namespace found between {@code start} and {@code end}, reusing a previously
+         * decoded instance when possible so that the hot path does not allocate a new string per packet.
+         */
+        private String namespace(String str, int start, int end) {
+            int length = end - start;
+            if (length == 1) {
+                return "/";
+            }
+            for (int n = 0; n < this.namespaceCount; n++) {
+                String nsp = this.namespaces[n];
+                if (nsp.length() == length && str.regionMatches(start, nsp, 0, length)) {
+                    return nsp;
+                }
+            }
+            String nsp = str.substring(start, end);
+            if (this.namespaceCount < this.namespaces.length) {
+                this.namespaces[this.namespaceCount++] = nsp;
+            }
+            return nsp;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
         @Override
         public void destroy() {
             if (this.reconstructor != null) {
@@ -237,27 +410,46 @@ final public class IOParser implements Parser {
 
         /*package*/ List<byte[]> buffers;
 
-        BinaryReconstructor(Packet packet) {
+        private final String str;
+        private final int start;
+        private final JSONCodec codec;
+        private final Class<?>[] types;
+
+        BinaryReconstructor(Packet packet, String str, int start, JSONCodec codec, Class<?>[] types) {
             this.reconPack = packet;
             this.buffers = new ArrayList<>();
+            this.str = str;
+            this.start = start;
+            this.codec = codec;
+            this.types = types;
         }
 
         public Packet takeBinaryData(byte[] binData) {
             this.buffers.add(binData);
             if (this.buffers.size() == this.reconPack.attachments) {
-                Packet packet = Binary.reconstructPacket(this.reconPack,
-                        this.buffers.toArray(new byte[this.buffers.size()][]));
-                this.finishReconstruction();
-                return packet;
+                return this.reconstruct();
             }
             return null;
         }
 
+        /**
+         * Parses the payload, where the placeholders are replaced by the attachments.
+         */
+        /*package*/ Packet reconstruct() {
+            Packet packet = this.reconPack;
+            byte[][] attachments = this.buffers.toArray(new byte[this.buffers.size()][]);
+            this.finishReconstruction();
+            if (this.start < this.str.length()) {
+                packet.data = Decoder.decodePayload(this.codec, packet.type, this.str, this.start,
+                        this.str.length(), attachments, this.types);
+            }
+            packet.attachments = -1;
+            return packet;
+        }
+
         public void finishReconstruction () {
             this.reconPack = null;
             this.buffers = new ArrayList<>();
         }
     }
 }
-
-
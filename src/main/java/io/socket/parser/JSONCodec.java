@@ -0,0 +1,86 @@
+package io.socket.parser;
+
+import java.util.List;
+
+/**
+ * Converts the payload of the packets from and to JSON.
+ *
+ * <p>The objects and arrays are decoded into the object model of the codec, like the {@code org.json} values
+ * of {@link OrgJSONCodec} or the {@code JsonNode} of Jackson, which the listeners receive as is. The strings,
+ * numbers and booleans of the arguments are decoded into their Java types, and the JSON {@code null} into
+ * {@code null}. The values emitted by the application and the arguments of the typed listeners may be of any
+ * type the codec knows, like the POJOs of a data binding library. The default implementation is
+ * {@link OrgJSONCodec}.</p>
+ */
+public interface JSONCodec {
+
+    /**
+     * Appends the JSON representation of the payload.
+     *
+     * <p>When {@code attachments} is not {@code null}, each {@code byte[]} found in the payload must be
+     * added to the list and replaced by the placeholder {@code {"_placeholder":true,"num":<index>}},
+     * where {@code <index>} is its position in the list.</p>
+     *
+     * @param data the payload of the packet, usually a {@link org.json.JSONArray} holding the arguments
+     *             given to {@link io.socket.client.Socket#emit(String, Object...)}.
+     * @param out the buffer to write to.
+     * @param attachments the binary attachments of the packet, or {@code null} if the packet type
+     *                    does not support them.
+     */
+    void encode(Object data, StringBuilder out, List<byte[]> attachments);
+
+    /**
+     * Parses the payload located between {@code start} (inclusive) and {@code end} (exclusive), like the
+     * payload of a {@code CONNECT} packet.
+     *
+     * @param str the encoded packet.
+     * @param start index of the first character of the payload.
+     * @param end index after the last character of the payload.
+     * @return the decoded payload, in the object model of the codec.
+     * @throws DecodingException if the payload is not valid JSON.
+     */
+    Object decode(String str, int start, int end);
+
+    /**
+     * Parses the array of the arguments of an event or of an acknowledgement, located between {@code start}
+     * (inclusive) and {@code end} (exclusive).
+     *
+     * <p>The placeholders {@code {"_placeholder":true,"num":<index>}} are replaced by the binary attachment
+     * at this index, at any depth.</p>
+     *
+     * <p>The elements with a type are bound to it, like with {@link #convert(Object, Class)}, preferably
+     * straight from the parser. An element that cannot be bound is kept in the object model of the codec,
+     * so that the listener reports the failure when converting it.</p>
+     *
+     * @param str the encoded packet.
+     * @param start index of the first character of the payload.
+     * @param end index after the last character of the payload.
+     * @param attachments the binary attachments of the packet, or {@code null}.
+     * @param types the types of the elements, by index, or {@code null}. The elements without a type, like
+     *              the event name, are kept in the object model of the codec.
+     * @return the elements of the array, in the object model of the codec for the objects and arrays.
+     * @throws DecodingException if the payload is not a valid JSON array, or refers to a missing attachment.
+     */
+    Object[] decodeArguments(String str, int start, int end, byte[][] attachments, Class<?>[] types);
+
+    /**
+     * Whether the decoded values can be converted to the given type, checked when a typed listener is
+     * registered.
+     *
+     * @param type the expected type.
+     * @return whether {@link #convert(Object, Class)} supports the type.
+     */
+    boolean canConvert(Class<?> type);
+
+    /**
+     * Converts a decoded value to the given type, for the listeners registered with
+     * {@link io.socket.client.Socket#onTyped(String, Class, io.socket.client.TypedListener)}.
+     *
+     * @param value the decoded value, which may be {@code null}.
+     * @param type the expected type.
+     * @param <T> the expected type.
+     * @return the converted value.
+     * @throws IllegalArgumentException if the value cannot be converted to the given type.
+     */
+    <T> T convert(Object value, Class<T> type);
+}
@@ -0,0 +1,369 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Minimal MessagePack implementation, following the conventions of the
+ * <a href="https://github.com/darrachequesne/notepack">notepack.io</a> package used by the
+ * JavaScript implementation of the parser.
+ *
+ * <p>Maps are decoded to {@link JSONObject}, arrays to {@link JSONArray}, and {@code nil} to
+ * {@link JSONObject#NULL}, so that the listeners receive the same values as with the default parser.</p>
+ */
+/*package*/ final class MsgPack {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private MsgPack() {}
+
+    /*package*/ static final class Writer {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+
+        /*package*/ byte[] toByteArray() {
+            return this.out.toByteArray();
+        }
+
+        /*package*/ void writeMapHeader(int size) {
+            if (size < 16) {
+                this.out.write(0x80 | size);
+            } else if (size < 0x10000) {
+                this.out.write(0xde);
+                this.writeShort(size);
+            } else {
+                this.out.write(0xdf);
+                this.writeInt(size);
+            }
+        }
+
+        /*package*/ void writeArrayHeader(int size) {
+            if (size < 16) {
+                this.out.write(0x90 | size);
+            } else if (size < 0x10000) {
+                this.out.write(0xdc);
+                this.writeShort(size);
+            } else {
+                this.out.write(0xdd);
+                this.writeInt(size);
+            }
+        }
+
+        /*package*/ void writeString(String value) {
+            byte[] bytes = value.getBytes(UTF_8);
+            int length = bytes.length;
+            if (length < 32) {
+                this.out.write(0xa0 | length);
+            } else if (length < 0x100) {
+                this.out.write(0xd9);
+                this.out.write(length);
+            } else if (length < 0x10000) {
+                this.out.write(0xda);
+                this.writeShort(length);
+            } else {
+                this.out.write(0xdb);
+                this.writeInt(length);
+            }
+            this.out.write(bytes, 0, length);
+        }
+
+        /*package*/ void writeBinary(byte[] value) {
+            int length = value.length;
+            if (length < 0x100) {
+                this.out.write(0xc4);
+                this.out.write(length);
+            } else if (length < 0x10000) {
+                this.out.write(0xc5);
+                this.writeShort(length);
+            } else {
+                this.out.write(0xc6);
+                this.writeInt(length);
+            }
+            this.out.write(value, 0, length);
+        }
+
+        /*package*/ void writeLong(long value) {
+            if (value >= 0) {
+                if (value < 0x80) {
+                    this.out.write((int) value);
+                } else if (value < 0x100) {
+                    this.out.write(0xcc);
+                    this.out.write((int) value);
+                } else if (value < 0x10000) {
+                    this.out.write(0xcd);
+                    this.writeShort((int) value);
+                } else if (value < 0x100000000L) {
+                    this.out.write(0xce);
+                    this.writeInt((int) value);
+                } else {
+                    this.out.write(0xcf);
+                    this.writeLongBits(value);
+                }
+            } else {
+                if (value >= -0x20) {
+                    this.out.write((int) value & 0xff);
+                } else if (value >= -0x80) {
+                    this.out.write(0xd0);
+                    this.out.write((int) value & 0xff);
+                } else if (value >= -0x8000) {
+                    this.out.write(0xd1);
+                    this.writeShort((int) value);
+                } else if (value >= -0x80000000L) {
+                    this.out.write(0xd2);
+                    this.writeInt((int) value);
+                } else {
+                    this.out.write(0xd3);
+                    this.writeLongBits(value);
+                }
+            }
+        }
+
+        /*package*/ void writeDouble(double value) {
+            this.out.write(0xcb);
+            this.writeLongBits(Double.doubleToLongBits(value));
+        }
+
+        /*package*/ void writeNil() {
+            this.out.write(0xc0);
+        }
+
+        /*package*/ void writeValue(Object value) {
+            if (value == null || JSONObject.NULL.equals(value)) {
+                this.writeNil();
+            } else if (value instanceof String) {
+                this.writeString((String) value);
+            } else if (value instanceof Integer || value instanceof Long
+                    || value instanceof Short || value instanceof Byte) {
+                this.writeLong(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                this.writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                this.out.write((Boolean) value ? 0xc3 : 0xc2);
+            } else if (value instanceof byte[]) {
+                this.writeBinary((byte[]) value);
+            } else if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                int length = array.length();
+                this.writeArrayHeader(length);
+                for (int i = 0; i < length; i++) {
+                    this.writeValue(array.opt(i));
+                }
+            } else if (value instanceof JSONObject) {
+                JSONObject object = (JSONObject) value;
+                this.writeMapHeader(object.length());
+                Iterator<?> keys = object.keys();
+                while (keys.hasNext()) {
+                    String key = (String) keys.next();
+                    this.writeString(key);
+                    this.writeValue(object.opt(key));
+                }
+            } else if (value instanceof Collection) {
+                this.writeValue(new JSONArray((Collection) value));
+            } else if (value instanceof Map) {
+                this.writeValue(new JSONObject((Map) value));
+            } else {
+                this.writeString(value.toString());
+            }
+        }
+
+        private void writeShort(int value) {
+            this.out.write(value >>> 8);
+            this.out.write(value);
+        }
+
+        private void writeInt(int value) {
+            this.out.write(value >>> 24);
+            this.out.write(value >>> 16);
+            this.out.write(value >>> 8);
+            this.out.write(value);
+        }
+
+        private void writeLongBits(long value) {
+            this.writeInt((int) (value >>> 32));
+            this.writeInt((int) value);
+        }
+    }
+
+    /*package*/ static final class Reader {
+
+        /**
+         * Returned for the {@code undefined} extension of notepack.io, so that the caller can tell
+         * a missing value from {@code null}.
+         */
+        /*package*/ static final Object UNDEFINED = new Object();
+
+        private final byte[] buf;
+        private int pos;
+
+        /*package*/ Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        /*package*/ boolean hasRemaining() {
+            return this.pos < this.buf.length;
+        }
+
+        /*package*/ Object readValue() {
+            int b = this.readByte();
+
+            if (b <= 0x7f) return b;
+            if (b >= 0xe0) return b - 0x100;
+            if ((b & 0xf0) == 0x80) return this.readMap(b & 0x0f);
+            if ((b & 0xf0) == 0x90) return this.readArray(b & 0x0f);
+            if ((b & 0xe0) == 0xa0) return this.readString(b & 0x1f);
+
+            switch (b) {
+                case 0xc0: return JSONObject.NULL;
+                case 0xc2: return false;
+                case 0xc3: return true;
+                case 0xc4: return this.readBytes(this.readByte());
+                case 0xc5: return this.readBytes(this.readShort());
+                case 0xc6: return this.readBytes(this.readLength());
+                case 0xc7: return this.readExt(this.readByte());
+                case 0xc8: return this.readExt(this.readShort());
+                case 0xc9: return this.readExt(this.readLength());
+                case 0xca: return (double) Float.intBitsToFloat(this.readInt());
+                case 0xcb: return Double.longBitsToDouble(this.readLong());
+                case 0xcc: return this.readByte();
+                case 0xcd: return this.readShort();
+                case 0xce: return number(this.readInt() & 0xffffffffL);
+                case 0xcf: {
+                    long value = this.readLong();
+                    if (value < 0) {
+                        // beyond the range of a long, like the JavaScript implementation we lose precision
+                        return (double) (value >>> 1) * 2.0 + (value & 1);
+                    }
+                    return number(value);
+                }
+                case 0xd0: return (int) (byte) this.readByte();
+                case 0xd1: return (int) (short) this.readShort();
+                case 0xd2: return this.readInt();
+                case 0xd3: return number(this.readLong());
+                case 0xd4: return this.readExt(1);
+                case 0xd5: return this.readExt(2);
+                case 0xd6: return this.readExt(4);
+                case 0xd7: return this.readExt(8);
+                case 0xd8: return this.readExt(16);
+                case 0xd9: return this.readString(this.readByte());
+                case 0xda: return this.readString(this.readShort());
+                case 0xdb: return this.readString(this.readLength());
+                case 0xdc: return this.readArray(this.readShort());
+                case 0xdd: return this.readArray(this.readLength());
+                case 0xde: return this.readMap(this.readShort());
+                case 0xdf: return this.readMap(this.readLength());
+                default:
+                    throw new DecodingException("invalid MessagePack type " + b);
+            }
+        }
+
+        private JSONArray readArray(int size) {
+            JSONArray array = new JSONArray();
+            for (int i = 0; i < size; i++) {
+                Object value = this.readValue();
+                array.put(value == UNDEFINED ? JSONObject.NULL : value);
+            }
+            return array;
+        }
+
+        private JSONObject readMap(int size) {
+            JSONObject object = new JSONObject();
+            for (int i = 0; i < size; i++) {
+                String key = String.valueOf(this.readValue());
+                Object value = this.readValue();
+                if (value == UNDEFINED) continue;
+                try {
+                    object.put(key, value);
+                } catch (JSONException e) {
+                    throw new DecodingException("invalid map entry " + key);
+                }
+            }
+            return object;
+        }
+
+        private String readString(int length) {
+            this.ensure(length);
+            String value = new String(this.buf, this.pos, length, UTF_8);
+            this.pos += length;
+            return value;
+        }
+
+        private byte[] readBytes(int length) {
+            this.ensure(length);
+            byte[] value = new byte[length];
+            System.arraycopy(this.buf, this.pos, value, 0, length);
+            this.pos += length;
+            return value;
+        }
+
+        private Object readExt(int length) {
+            int type = (byte) this.readByte();
+            if (type == 0 && length == 1) {
+                this.readByte();
+                return UNDEFINED;
+            }
+            if (type == 0 && length == 8) {
+                // notepack.io encodes a Date as the number of milliseconds since epoch (hi/lo words)
+                long hi = this.readInt();
+                long lo = this.readInt() & 0xffffffffL;
+                return formatDate(hi * 0x100000000L + lo);
+            }
+            return this.readBytes(length);
+        }
+
+        private int readByte() {
+            this.ensure(1);
+            return this.buf[this.pos++] & 0xff;
+        }
+
+        private int readShort() {
+            return (this.readByte() << 8) | this.readByte();
+        }
+
+        private int readInt() {
+            return (this.readByte() << 24) | (this.readByte() << 16) | (this.readByte() << 8) | this.readByte();
+        }
+
+        private int readLength() {
+            int length = this.readInt();
+            if (length < 0) {
+                throw new DecodingException("invalid MessagePack length");
+            }
+            return length;
+        }
+
+        private long readLong() {
+            return ((long) this.readInt() << 32) | (this.readInt() & 0xffffffffL);
+        }
+
+        private void ensure(int length) {
+            if (length > this.buf.length - this.pos) {
+                throw new DecodingException("unexpected end of MessagePack data");
+            }
+        }
+
+        private static Object number(long value) {
+            return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (Object) (int) value : (Object) value;
+        }
+
+        /**
+         * Dates are serialized like {@code Date.prototype.toJSON()}, which is what the listeners
+         * receive with the default parser.
+         */
+        private static String formatDate(long time) {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return format.format(new Date(time));
+        }
+    }
+}
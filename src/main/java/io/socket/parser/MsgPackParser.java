@@ -0,0 +1,138 @@
+package io.socket.parser;
+
+import io.socket.logging.Log;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * Parser compatible with <a href="https://github.com/socketio/socket.io-msgpack-parser">socket.io-msgpack-parser</a>.
+ *
+ * <p>Each packet, including its binary attachments, is encoded as a single MessagePack frame.</p>
+ *
+ * <pre>
+ * IO.Options options = new IO.Options();
+ * options.encoder = new MsgPackParser.Encoder();
+ * options.decoder = new MsgPackParser.Decoder();
+ * </pre>
+ */
+final public class MsgPackParser implements Parser {
+
+    private static final Log logger = Log.getLog(MsgPackParser.class);
+
+    private static final String KEY_TYPE = "type";
+    private static final String KEY_DATA = "data";
+    private static final String KEY_NSP = "nsp";
+    private static final String KEY_ID = "id";
+
+    private MsgPackParser() {}
+
+    final public static class Encoder implements Parser.Encoder {
+
+        public Encoder() {}
+
+        @Override
+        public void encode(Packet obj, Callback callback) {
+            logger.fine("encoding packet {0}", obj);
+
+            // there is no distinct binary type, attachments are part of the frame
+            int type = obj.type == BINARY_EVENT ? EVENT : obj.type == BINARY_ACK ? ACK : obj.type;
+            boolean hasData = obj.data != null;
+            boolean hasId = obj.id >= 0;
+
+            MsgPack.Writer writer = new MsgPack.Writer();
+            writer.writeMapHeader(2 + (hasData ? 1 : 0) + (hasId ? 1 : 0));
+            writer.writeString(KEY_TYPE);
+            writer.writeLong(type);
+            if (hasData) {
+                writer.writeString(KEY_DATA);
+                writer.writeValue(obj.data);
+            }
+            writer.writeString(KEY_NSP);
+            writer.writeString(obj.nsp != null ? obj.nsp : "/");
+            if (hasId) {
+                writer.writeString(KEY_ID);
+                writer.writeLong(obj.id);
+            }
+
+            callback.call(new Object[] {writer.toByteArray()});
+        }
+    }
+
+    final public static class Decoder implements Parser.Decoder {
+
+        private Decoder.Callback onDecodedCallback;
+
+        public Decoder() {}
+
+        @Override
+        public void add(String obj) {
+            throw new DecodingException("got text data while expecting a MessagePack frame");
+        }
+
+        @Override
+        public void add(byte[] obj) {
+            Packet packet = decode(obj);
+            if (this.onDecodedCallback != null) {
+                this.onDecodedCallback.call(packet);
+            }
+        }
+
+        private static Packet decode(byte[] obj) {
+            MsgPack.Reader reader = new MsgPack.Reader(obj);
+            Object value = reader.readValue();
+            if (!(value instanceof JSONObject) || reader.hasRemaining()) {
+                throw new DecodingException("invalid MessagePack packet");
+            }
+            JSONObject decoded = (JSONObject) value;
+
+            Object type = decoded.opt(KEY_TYPE);
+            if (!(type instanceof Integer) || (Integer) type < CONNECT || (Integer) type > CONNECT_ERROR) {
+                throw new DecodingException("unknown packet type " + type);
+            }
+            Object nsp = decoded.opt(KEY_NSP);
+            if (!(nsp instanceof String)) {
+                throw new DecodingException("invalid namespace " + nsp);
+            }
+            Object id = decoded.opt(KEY_ID);
+            if (id != null && !(id instanceof Integer)) {
+                throw new DecodingException("invalid packet id " + id);
+            }
+
+            Packet<Object> p = new Packet<>((Integer) type);
+            p.nsp = (String) nsp;
+            p.id = id != null ? (Integer) id : -1;
+            p.data = decoded.opt(KEY_DATA);
+
+            if (!isPayloadValid(p.type, p.data)) {
+                throw new DecodingException("invalid payload");
+            }
+
+            logger.fine("decoded packet {0}", p);
+            return p;
+        }
+
+        private static boolean isPayloadValid(int type, Object payload) {
+            switch (type) {
+                case Parser.CONNECT:
+                    return payload == null || payload instanceof JSONObject;
+                case Parser.DISCONNECT:
+                    return payload == null;
+                case Parser.CONNECT_ERROR:
+                    return payload instanceof String || payload instanceof JSONObject;
+                default:
+                    return payload instanceof JSONArray;
+            }
+        }
+
+        @Override
+        public void destroy() {
+            this.onDecodedCallback = null;
+        }
+
+        @Override
+        public void onDecoded(Callback callback) {
+            this.onDecodedCallback = callback;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package io.socket.parser;
+
+import io.socket.logging.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONString;
+import org.json.JSONTokener;
+
+import java.io.Reader;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The default {@link JSONCodec}, based on the {@code org.json} package.
+ */
+public final class OrgJSONCodec implements JSONCodec {
+
+    private static final Log logger = Log.getLog(OrgJSONCodec.class);
+
+    private static final String PLACEHOLDER_PREFIX = "{\"_placeholder\":true,\"num\":";
+    private static final String KEY_PLACEHOLDER = "_placeholder";
+    private static final String KEY_NUM = "num";
+
+    // the types of the decoded values
+    private static final Class<?>[] DECODED_TYPES = {
+            JSONObject.class, JSONArray.class, String.class, Boolean.class, Integer.class, Long.class,
+            Double.class, byte[].class
+    };
+
+    public OrgJSONCodec() {}
+
+    @Override
+    public void encode(Object data, StringBuilder out, List<byte[]> attachments) {
+        this.write(data, out, attachments);
+    }
+
+    /**
+     * Same output as {@link JSONObject#toString()}, without the intermediate strings.
+     */
+    private void write(Object value, StringBuilder out, List<byte[]> attachments) {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            out.append("null");
+        } else if (value instanceof String) {
+            out.append(JSONObject.quote((String) value));
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            int length = array.length();
+            out.append('[');
+            for (int i = 0; i < length; i++) {
+                if (i > 0) out.append(',');
+                this.write(array.opt(i), out, attachments);
+            }
+            out.append(']');
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            Iterator<?> keys = object.keys();
+            boolean first = true;
+            out.append('{');
+            while (keys.hasNext()) {
+                String key = keys.next().toString();
+                if (!first) out.append(',');
+                first = false;
+                out.append(JSONObject.quote(key)).append(':');
+                this.write(object.opt(key), out, attachments);
+            }
+            out.append('}');
+        } else if (value instanceof byte[] && attachments != null) {
+            out.append(PLACEHOLDER_PREFIX).append(attachments.size()).append('}');
+            attachments.add((byte[]) value);
+        } else if (value instanceof Number) {
+            this.writeNumber((Number) value, out);
+        } else if (value instanceof Boolean) {
+            out.append(((Boolean) value).booleanValue());
+        } else if (value instanceof JSONString) {
+            out.append(((JSONString) value).toJSONString());
+        } else if (value instanceof Map) {
+            this.write(new JSONObject((Map) value), out, attachments);
+        } else if (value instanceof Collection) {
+            this.write(new JSONArray((Collection) value), out, attachments);
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            out.append('[');
+            for (int i = 0; i < length; i++) {
+                if (i > 0) out.append(',');
+                this.write(Array.get(value, i), out, attachments);
+            }
+            out.append(']');
+        } else {
+            out.append(JSONObject.quote(value.toString()));
+        }
+    }
+
+    private void writeNumber(Number value, StringBuilder out) {
+        if (value instanceof Integer || value instanceof Long) {
+            out.append(value.longValue());
+            return;
+        }
+        try {
+            out.append(JSONObject.numberToString(value));
+        } catch (JSONException e) {
+            // NaN and infinite numbers, like JSON.stringify()
+            out.append("null");
+        }
+    }
+
+    @Override
+    public Object decode(String str, int start, int end) {
+        try {
+            return new JSONTokener(new StringRangeReader(str, start, end)).nextValue();
+        } catch (JSONException e) {
+            logger.warning("An error occured while retrieving data from JSONTokener", e);
+            throw new DecodingException("invalid payload");
+        }
+    }
+
+    /**
+     * The elements with a type are converted once the array is parsed, since {@code org.json} has no
+     * streaming API.
+     */
+    @Override
+    public Object[] decodeArguments(String str, int start, int end, byte[][] attachments, Class<?>[] types) {
+        Object value = this.decode(str, start, end);
+        if (!(value instanceof JSONArray)) {
+            throw new DecodingException("invalid payload");
+        }
+        JSONArray array = (JSONArray) value;
+        Object[] args = new Object[array.length()];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = array.opt(i);
+            if (attachments != null) {
+                arg = reconstruct(arg, attachments);
+            }
+            arg = JSONObject.NULL.equals(arg) ? null : arg;
+            if (types != null && i < types.length && types[i] != null) {
+                try {
+                    arg = this.convert(arg, types[i]);
+                } catch (IllegalArgumentException e) {
+                    // left to the listener, which reports it
+                }
+            }
+            args[i] = arg;
+        }
+        return args;
+    }
+
+    /**
+     * Replaces the placeholders of the binary attachments, in place.
+     */
+    private static Object reconstruct(Object value, byte[][] attachments) {
+        try {
+            if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                int length = array.length();
+                for (int i = 0; i < length; i++) {
+                    Object element = array.opt(i);
+                    Object reconstructed = reconstruct(element, attachments);
+                    if (reconstructed != element) {
+                        array.put(i, reconstructed);
+                    }
+                }
+            } else if (value instanceof JSONObject) {
+                JSONObject object = (JSONObject) value;
+                if (object.optBoolean(KEY_PLACEHOLDER)) {
+                    int num = object.optInt(KEY_NUM, -1);
+                    if (num < 0 || num >= attachments.length) {
+                        throw new DecodingException("illegal attachments");
+                    }
+                    return attachments[num];
+                }
+                Iterator<?> keys = object.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next().toString();
+                    Object element = object.opt(key);
+                    Object reconstructed = reconstruct(element, attachments);
+                    if (reconstructed != element) {
+                        object.put(key, reconstructed);
+                    }
+                }
+            }
+            return value;
+        } catch (JSONException e) {
+            throw new DecodingException("invalid payload");
+        }
+    }
+
+    /**
+     * Only supports the types of the {@code org.json} object model, with widening and narrowing of numbers,
+     * and the conversion of a {@link JSONObject} to a {@link Map} of its members.
+     */
+    @Override
+    public boolean canConvert(Class<?> type) {
+        Class<?> target = type.isPrimitive() ? box(type) : type;
+        if (target == Float.class || target == Short.class || target == Byte.class || target == Map.class) {
+            return true;
+        }
+        for (Class<?> decoded : DECODED_TYPES) {
+            if (target.isAssignableFrom(decoded)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T convert(Object value, Class<T> type) {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            if (type.isPrimitive()) {
+                throw new IllegalArgumentException("cannot convert null to " + type.getName());
+            }
+            return null;
+        }
+
+        Class<?> target = type.isPrimitive() ? box(type) : type;
+        if (target.isInstance(value)) {
+            return (T) value;
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (target == Integer.class) return (T) Integer.valueOf(number.intValue());
+            if (target == Long.class) return (T) Long.valueOf(number.longValue());
+            if (target == Double.class) return (T) Double.valueOf(number.doubleValue());
+            if (target == Float.class) return (T) Float.valueOf(number.floatValue());
+            if (target == Short.class) return (T) Short.valueOf(number.shortValue());
+            if (target == Byte.class) return (T) Byte.valueOf(number.byteValue());
+        }
+        if (value instanceof JSONObject && target == Map.class) {
+            JSONObject object = (JSONObject) value;
+            Map<String, Object> map = new LinkedHashMap<>();
+            Iterator<?> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next().toString();
+                Object member = object.opt(key);
+                map.put(key, JSONObject.NULL.equals(member) ? null : member);
+            }
+            return (T) map;
+        }
+        throw new IllegalArgumentException("cannot convert " + value.getClass().getName() + " to " + type.getName());
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == char.class) return Character.class;
+        return type;
+    }
+
+    /**
+     * Reads a range of a string without copying it, so that the payload can be handed
+     * to the {@link JSONTokener} without calling {@link String#substring(int)}.
+     */
+    private static final class StringRangeReader extends Reader {
+
+        private final String str;
+        private final int end;
+        private int pos;
+        private int mark;
+
+        StringRangeReader(String str, int start, int end) {
+            this.str = str;
+            this.pos = start;
+            this.mark = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            return this.pos < this.end ? this.str.charAt(this.pos++) : -1;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) return 0;
+            if (this.pos >= this.end) return -1;
+            int n = Math.min(len, this.end - this.pos);
+            this.str.getChars(this.pos, this.pos + n, cbuf, off);
+            this.pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, this.end - this.pos));
+            this.pos += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean ready() {
+            return true;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // prevents the tokener from wrapping this reader into a BufferedReader
+            return true;
+        }
+
+        @Override
+        public void mark(int readAheadLimit) {
+            this.mark = this.pos;
+        }
+
+        @Override
+        public void reset() {
+            this.pos = this.mark;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -1,5 +1,6 @@
 package io.socket.parser;
 
+import java.util.Arrays;
 
 public class Packet<T> {
 
@@ -19,4 +20,14 @@ public class Packet<T> {
         this.type = type;
         this.data = data;
     }
+
+    @Override
+    public String toString() {
+        String type = this.type >= 0 && this.type < Parser.types.length
+                ? Parser.types[this.type]
+                : String.valueOf(this.type);
+        return "Packet{type=" + type + ", nsp=" + this.nsp + ", id=" + this.id
+                + ", attachments=" + this.attachments + ", data="
+                + (this.data instanceof Object[] ? Arrays.toString((Object[]) this.data) : this.data) + "}";
+    }
 }
@@ -0,0 +1,66 @@
+package io.socket.client;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Adapts an {@link EventPublisher} to {@link Flow.Publisher}, by forwarding the calls. See
+ * {@link EventPublisher#toFlow()}.
+ */
+/*package*/ final class FlowAdapter {
+
+    private FlowAdapter() {}
+
+    /**
+     * @return a {@code Flow.Publisher<Object[]>}, typed as in the Java 7 version of this class.
+     */
+    static Object toFlow(final EventPublisher publisher) {
+        return new Flow.Publisher<Object[]>() {
+            @Override
+            public void subscribe(Flow.Subscriber<? super Object[]> subscriber) {
+                if (subscriber == null) {
+                    throw new NullPointerException("subscriber");
+                }
+                publisher.subscribe(new SubscriberAdapter(subscriber));
+            }
+        };
+    }
+
+    private static final class SubscriberAdapter implements EventPublisher.Subscriber {
+
+        private final Flow.Subscriber<? super Object[]> subscriber;
+
+        SubscriberAdapter(Flow.Subscriber<? super Object[]> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(final EventPublisher.Subscription subscription) {
+            this.subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(Object[] args) {
+            this.subscriber.onNext(args);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            this.subscriber.onComplete();
+        }
+    }
+}
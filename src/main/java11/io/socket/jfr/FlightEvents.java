@@ -0,0 +1,201 @@
+package io.socket.jfr;
+
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.json.JSONArray;
+
+import java.net.URI;
+
+/**
+ * Hooks emitting Java Flight Recorder events for the encoding, the decoding and the dispatch of the
+ * packets, the acknowledgements and the reconnection attempts.
+ *
+ * <p>Java 11+ version of the multi-release jar. When an event is disabled, its {@code begin} method
+ * returns null without allocating.</p>
+ *
+ * <p>Internal API, used by the parser and the client.</p>
+ */
+public final class FlightEvents {
+
+    // checked before allocating an event, so that a disabled event costs a field read
+    private static final EventType ENCODE = EventType.getEventType(EncodeEvent.class);
+    private static final EventType DECODE = EventType.getEventType(DecodeEvent.class);
+    private static final EventType DISPATCH = EventType.getEventType(DispatchEvent.class);
+    private static final EventType ACK = EventType.getEventType(AckEvent.class);
+    private static final EventType RECONNECT = EventType.getEventType(ReconnectEvent.class);
+
+    private FlightEvents() {}
+
+    public static Object beginEncode() {
+        if (!ENCODE.isEnabled()) return null;
+        EncodeEvent event = new EncodeEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitEncode(Object event, Packet<?> packet, long size) {
+        EncodeEvent encode = (EncodeEvent) event;
+        encode.set(packet);
+        encode.size = size;
+        encode.commit();
+    }
+
+    public static Object beginDecode() {
+        if (!DECODE.isEnabled()) return null;
+        DecodeEvent event = new DecodeEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitDecode(Object event, Packet<?> packet, long size) {
+        DecodeEvent decode = (DecodeEvent) event;
+        decode.set(packet);
+        decode.size = size;
+        decode.commit();
+    }
+
+    public static Object beginDispatch() {
+        if (!DISPATCH.isEnabled()) return null;
+        DispatchEvent event = new DispatchEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitDispatch(Object event, Packet<?> packet) {
+        DispatchEvent dispatch = (DispatchEvent) event;
+        dispatch.set(packet);
+        dispatch.commit();
+    }
+
+    public static boolean isAckEnabled() {
+        return ACK.isEnabled();
+    }
+
+    public static Object beginAck() {
+        if (!ACK.isEnabled()) return null;
+        AckEvent event = new AckEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitAck(Object event, Packet<?> packet, long roundTrip) {
+        AckEvent ack = (AckEvent) event;
+        ack.set(packet);
+        ack.id = packet.id;
+        ack.roundTrip = roundTrip;
+        ack.commit();
+    }
+
+    public static Object beginReconnect() {
+        if (!RECONNECT.isEnabled()) return null;
+        ReconnectEvent event = new ReconnectEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitReconnect(Object event, URI uri, int attempt, boolean success) {
+        ReconnectEvent reconnect = (ReconnectEvent) event;
+        reconnect.uri = String.valueOf(uri);
+        reconnect.attempt = attempt;
+        reconnect.success = success;
+        reconnect.commit();
+    }
+
+    @Category("Socket.IO")
+    @StackTrace(false)
+    abstract static class PacketEvent extends Event {
+
+        @Label("Namespace")
+        String nsp;
+
+        @Label("Event Name")
+        String eventName;
+
+        @Label("Packet Type")
+        String packetType;
+
+        @Label("Attachments")
+        int attachments;
+
+        void set(Packet<?> packet) {
+            this.nsp = packet.nsp;
+            this.packetType = packet.type >= 0 && packet.type < Parser.types.length
+                    ? Parser.types[packet.type]
+                    : String.valueOf(packet.type);
+            this.attachments = packet.attachments;
+            if (packet.type == Parser.EVENT || packet.type == Parser.BINARY_EVENT) {
+                if (packet.data instanceof Object[] && ((Object[]) packet.data).length > 0) {
+                    Object name = ((Object[]) packet.data)[0];
+                    this.eventName = name != null ? name.toString() : null;
+                } else if (packet.data instanceof JSONArray) {
+                    this.eventName = ((JSONArray) packet.data).optString(0, null);
+                }
+            }
+        }
+    }
+
+    @Name("io.socket.Encode")
+    @Label("Packet Encode")
+    @Description("Encoding of an outgoing packet")
+    static final class EncodeEvent extends PacketEvent {
+
+        @Label("Size")
+        @Description("Characters of the text frame plus bytes of the attachments")
+        @DataAmount
+        long size;
+    }
+
+    @Name("io.socket.Decode")
+    @Label("Packet Decode")
+    @Description("Decoding of an incoming frame")
+    static final class DecodeEvent extends PacketEvent {
+
+        @Label("Size")
+        @Description("Characters or bytes of the frame")
+        @DataAmount
+        long size;
+    }
+
+    @Name("io.socket.Dispatch")
+    @Label("Event Dispatch")
+    @Description("Call of the listeners of an incoming event, or its handoff to the listener executor")
+    static final class DispatchEvent extends PacketEvent {}
+
+    @Name("io.socket.Ack")
+    @Label("Acknowledgement")
+    @Description("Call of the callback of an acknowledgement, or its handoff to the listener executor")
+    static final class AckEvent extends PacketEvent {
+
+        @Label("Ack Id")
+        int id;
+
+        @Label("Round Trip")
+        @Description("Delay between the emission of the packet and its acknowledgement, -1 if unknown")
+        @Timespan(Timespan.NANOSECONDS)
+        long roundTrip;
+    }
+
+    @Name("io.socket.Reconnect")
+    @Label("Reconnection Attempt")
+    @Category("Socket.IO")
+    static final class ReconnectEvent extends Event {
+
+        @Label("URI")
+        String uri;
+
+        @Label("Attempt")
+        int attempt;
+
+        @Label("Success")
+        boolean success;
+    }
+}
@@ -921,4 +921,33 @@ public class ConnectionTest extends Connection {
         assertThat((String)values.take(), is("please arrive second"));
         socket.close();
     }
+
+    @Test(timeout = TIMEOUT)
+    public void sendBatchedEventsInTheCorrectOrder() throws Exception {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        IO.Options opts = createOptions();
+        opts.transports = new String[] {"polling"};
+        opts.maxBatchSize = 7;
+        socket = client(opts);
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                socket.on("echoBack", new Emitter.Listener() {
+                    @Override
+                    public void call(Object... args) {
+                        values.offer(args[0]);
+                    }
+                });
+
+                for (int i = 0; i < 100; i++) {
+                    socket.emit("echo", i);
+                }
+            }
+        });
+        socket.open();
+        for (int i = 0; i < 100; i++) {
+            assertThat((Integer)values.take(), is(i));
+        }
+        socket.close();
+    }
 }
@@ -0,0 +1,106 @@
+package io.socket.client;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class EventLoopGroupTest {
+
+    private EventLoopGroup group;
+
+    @After
+    public void shutdown() {
+        if (group != null) {
+            group.shutdown();
+        }
+    }
+
+    @Test
+    public void assignLoopsInTurn() {
+        group = new EventLoopGroup(2);
+        EventLoop first = group.next(URI.create("http://localhost:3000"));
+        EventLoop second = group.next(URI.create("http://localhost:3000"));
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(group.next(URI.create("http://localhost:3000")), is(sameInstance(first)));
+    }
+
+    @Test
+    public void assignLoopsByAuthority() {
+        group = new EventLoopGroup(4, EventLoopGroup.Affinity.URI_HASH);
+        EventLoop loop = group.next(URI.create("http://localhost:3000/foo"));
+
+        assertThat(group.next(URI.create("http://localhost:3000/bar")), is(sameInstance(loop)));
+        assertThat(group.next(URI.create("http://localhost:3000")), is(sameInstance(loop)));
+    }
+
+    @Test(timeout = 5000)
+    public void runTasksInOrderOnTheLoop() throws InterruptedException {
+        group = new EventLoopGroup(1);
+        final EventLoop loop = group.next(null);
+        final List<Integer> values = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(1000);
+
+        for (int i = 0; i < 1000; i++) {
+            final int value = i;
+            loop.exec(new Runnable() {
+                @Override
+                public void run() {
+                    assertThat(loop.isCurrent(), is(true));
+                    assertThat(EventLoop.inEventLoop(), is(true));
+                    values.add(value);
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(values.get(i), is(i));
+        }
+        assertThat(loop.isCurrent(), is(false));
+        assertThat(EventLoop.inEventLoop(), is(false));
+    }
+
+    @Test(timeout = 5000)
+    public void execSynchronouslyFromTheLoop() throws InterruptedException {
+        group = new EventLoopGroup(1);
+        final EventLoop loop = group.next(null);
+        final BlockingQueue<String> values = new LinkedBlockingQueue<>();
+
+        loop.exec(new Runnable() {
+            @Override
+            public void run() {
+                loop.nextTick(new Runnable() {
+                    @Override
+                    public void run() {
+                        values.offer("nextTick");
+                    }
+                });
+                loop.exec(new Runnable() {
+                    @Override
+                    public void run() {
+                        values.offer("exec");
+                    }
+                });
+            }
+        });
+
+        assertThat(values.take(), is("exec"));
+        assertThat(values.take(), is("nextTick"));
+    }
+}
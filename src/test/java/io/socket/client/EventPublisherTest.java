@@ -0,0 +1,182 @@
+package io.socket.client;
+
+import io.socket.emitter.Emitter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class EventPublisherTest {
+
+    private final Emitter emitter = new Emitter();
+    private final EventPublisher.Subscriptions subscriptions = new EventPublisher.Subscriptions();
+
+    @Test
+    public void honorTheDemand() {
+        RecordingSubscriber subscriber = this.subscribe(4, EventPublisher.Overflow.ERROR);
+        this.emit(3);
+        assertThat(subscriber.values.size(), is(0));
+
+        subscriber.subscription.request(2);
+        assertThat(subscriber.values.toString(), is("[0, 1]"));
+        this.emit(1);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.request(1);
+        this.emit(1);
+        assertThat(subscriber.values.toString(), is("[0, 1, 2, 3, 4]"));
+        assertThat(subscriber.error, is(nullValue()));
+    }
+
+    @Test
+    public void dropTheNewestEvents() {
+        RecordingSubscriber subscriber = this.subscribe(2, EventPublisher.Overflow.DROP);
+        this.emit(5);
+        subscriber.subscription.request(10);
+        assertThat(subscriber.values.toString(), is("[0, 1]"));
+    }
+
+    @Test
+    public void keepTheLatestEvents() {
+        RecordingSubscriber subscriber = this.subscribe(2, EventPublisher.Overflow.LATEST);
+        this.emit(5);
+        subscriber.subscription.request(10);
+        assertThat(subscriber.values.toString(), is("[3, 4]"));
+    }
+
+    @Test
+    public void failWhenTheBufferIsFull() {
+        RecordingSubscriber subscriber = this.subscribe(2, EventPublisher.Overflow.ERROR);
+        this.emit(3);
+        assertThat(subscriber.error, instanceOf(IllegalStateException.class));
+        assertThat(this.emitter.hasListeners("tick"), is(false));
+
+        subscriber.subscription.request(10);
+        assertThat(subscriber.values.size(), is(0));
+    }
+
+    @Test
+    public void rejectNonPositiveRequests() {
+        RecordingSubscriber subscriber = this.subscribe(2, EventPublisher.Overflow.ERROR);
+        subscriber.subscription.request(0);
+        assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+        assertThat(this.emitter.hasListeners("tick"), is(false));
+    }
+
+    @Test
+    public void stopListeningOnceCancelled() {
+        RecordingSubscriber subscriber = this.subscribe(2, EventPublisher.Overflow.ERROR);
+        assertThat(this.emitter.hasListeners("tick"), is(true));
+        this.emit(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+
+        assertThat(this.emitter.hasListeners("tick"), is(false));
+        assertThat(subscriber.values.size(), is(0));
+    }
+
+    @Test
+    public void requestFromOnNext() {
+        final int[] depth = new int[2];
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(EventPublisher.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Object[] args) {
+                depth[1] = Math.max(depth[1], ++depth[0]);
+                super.onNext(args);
+                this.subscription.request(1);
+                depth[0]--;
+            }
+        };
+        new EventPublisher(this.emitter, "tick", 4, EventPublisher.Overflow.ERROR, this.subscriptions)
+                .subscribe(subscriber);
+        this.emit(2);
+        subscriber.subscription.request(1);
+        this.emit(1);
+
+        assertThat(subscriber.values.toString(), is("[0, 1, 2]"));
+        // the requests made from onNext() do not call onNext() recursively
+        assertThat(depth[1], is(1));
+    }
+
+    @Test
+    public void completeOnceTheBufferedEventsAreDelivered() {
+        RecordingSubscriber subscriber = this.subscribe(4, EventPublisher.Overflow.ERROR);
+        this.emit(2);
+        this.subscriptions.complete(null);
+        assertThat(this.emitter.hasListeners("tick"), is(false));
+        assertThat(subscriber.completed, is(false));
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.completed, is(false));
+        subscriber.subscription.request(1);
+        assertThat(subscriber.values.toString(), is("[0, 1]"));
+        assertThat(subscriber.completed, is(true));
+    }
+
+    @Test
+    public void completeTheSubscriptionsOfTheEvent() {
+        RecordingSubscriber tick = this.subscribe(4, EventPublisher.Overflow.ERROR);
+        RecordingSubscriber tock = new RecordingSubscriber();
+        new EventPublisher(this.emitter, "tock", 4, EventPublisher.Overflow.ERROR, this.subscriptions).subscribe(tock);
+
+        this.subscriptions.complete("tock");
+        assertThat(tick.completed, is(false));
+        assertThat(tock.completed, is(true));
+        assertThat(this.emitter.hasListeners("tick"), is(true));
+    }
+
+    private RecordingSubscriber subscribe(int bufferSize, EventPublisher.Overflow overflow) {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new EventPublisher(this.emitter, "tick", bufferSize, overflow, this.subscriptions).subscribe(subscriber);
+        return subscriber;
+    }
+
+    private int next;
+
+    private void emit(int count) {
+        for (int i = 0; i < count; i++) {
+            this.emitter.emit("tick", this.next++);
+        }
+    }
+
+    private static class RecordingSubscriber implements EventPublisher.Subscriber {
+
+        final List<Object> values = new ArrayList<>();
+        EventPublisher.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(EventPublisher.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Object[] args) {
+            this.values.add(args[0]);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+    }
+}
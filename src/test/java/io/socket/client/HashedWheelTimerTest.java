@@ -0,0 +1,212 @@
+package io.socket.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimerTask;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class HashedWheelTimerTest {
+
+    @Test(timeout = 5000)
+    public void runTasksInOrder() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+        final BlockingQueue<Integer> values = new LinkedBlockingQueue<>();
+
+        for (final int delay : new int[] {300, 50, 150}) {
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    values.offer(delay);
+                }
+            }, delay);
+        }
+
+        assertThat(values.take(), is(50));
+        assertThat(values.take(), is(150));
+        // exceeds one revolution of the wheel (8 * 10ms)
+        assertThat(values.take(), is(300));
+        assertThat(timer.pendingTimeouts(), is(0));
+    }
+
+    @Test(timeout = 5000)
+    public void cancelTask() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+        final BlockingQueue<String> values = new LinkedBlockingQueue<>();
+
+        HashedWheelTimer.Timeout timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                values.offer("cancelled");
+            }
+        }, 50);
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                values.offer("done");
+            }
+        }, 100);
+
+        assertThat(timeout.cancel(), is(true));
+        assertThat(timeout.cancel(), is(false));
+        assertThat(values.take(), is("done"));
+        assertThat(values.isEmpty(), is(true));
+    }
+
+    @Test(timeout = 5000)
+    public void restartAfterIdle() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+        for (int i = 0; i < 3; i++) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }, 10);
+            latch.await();
+            // let the worker thread stop
+            Thread.sleep(50);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void restartWhileStopping() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+        Runnable noop = new Runnable() {
+            @Override
+            public void run() {}
+        };
+        for (int i = 0; i < 200; i++) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }, 1);
+            latch.await();
+            // races with the worker thread stopping
+            timer.schedule(noop, 1).cancel();
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 1);
+        latch.await();
+        assertThat(timer.pendingTimeouts(), is(0));
+    }
+
+    @Test(timeout = 30000)
+    public void shareOneThreadForAllTimeouts() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 512);
+        Runnable noop = new Runnable() {
+            @Override
+            public void run() {}
+        };
+        int threads = clientThreads();
+
+        List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            timeouts.add(timer.schedule(noop, 60000));
+        }
+
+        assertThat(clientThreads(), lessThanOrEqualTo(threads + 1));
+        assertThat(timer.pendingTimeouts(), is(100000));
+
+        for (HashedWheelTimer.Timeout timeout : timeouts) {
+            timeout.cancel();
+        }
+        assertThat(timer.pendingTimeouts(), is(0));
+    }
+
+    @Test(timeout = 30000)
+    public void shareOneThreadForTheAcksOfASocket() throws InterruptedException {
+        Manager manager = new Manager(URI.create("http://localhost:1"), new Manager.Options());
+        final Socket socket = new Socket(manager, "/", null);
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        this.sync(manager, values);
+        int threads = clientThreads();
+        // the other tests may have left timeouts in the shared timer
+        int pending = HashedWheelTimer.shared().pendingTimeouts();
+
+        for (int i = 0; i < 100000; i++) {
+            socket.emit("event", new Object[] {i}, new AckWithTimeout(60000) {
+                @Override
+                public void onSuccess(Object... args) {}
+
+                @Override
+                public void onTimeout() {}
+            });
+        }
+        this.sync(manager, values);
+
+        // at most the thread of the shared timer
+        assertThat(clientThreads(), lessThanOrEqualTo(threads + 1));
+        assertThat(socket.pendingAcks(), is(100000));
+        assertThat(HashedWheelTimer.shared().pendingTimeouts(), greaterThanOrEqualTo(pending + 100000));
+    }
+
+    @Test(timeout = 5000)
+    @SuppressWarnings("deprecation")
+    public void scheduleTimerTask() throws InterruptedException {
+        final BlockingQueue<String> values = new LinkedBlockingQueue<>();
+        AckWithTimeout ack = new AckWithTimeout(50) {
+            @Override
+            public void onSuccess(Object... args) {}
+
+            @Override
+            public void onTimeout() {}
+        };
+
+        ack.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                values.offer("done");
+            }
+        });
+        assertThat(values.take(), is("done"));
+    }
+
+    /**
+     * Counts the threads of the client, as the test runner may start its own threads at any time. The
+     * EventThread is left out, since it stops and starts again depending on the activity.
+     */
+    private static int clientThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            if (name.startsWith("socket.io") || name.startsWith("OkHttp")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void sync(Manager manager, final BlockingQueue<Object> values) throws InterruptedException {
+        manager.loop.exec(new Runnable() {
+            @Override
+            public void run() {
+                values.offer("sync");
+            }
+        });
+        assertThat(values.take(), is((Object) "sync"));
+    }
+}
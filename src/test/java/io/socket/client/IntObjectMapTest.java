@@ -0,0 +1,77 @@
+package io.socket.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class IntObjectMapTest {
+
+    @Test
+    public void putGetRemove() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        assertThat(map.put(1, "a"), is(nullValue()));
+        assertThat(map.put(1, "b"), is("a"));
+        assertThat(map.get(1), is("b"));
+        assertThat(map.get(2), is(nullValue()));
+        assertThat(map.size(), is(1));
+        assertThat(map.remove(1), is("b"));
+        assertThat(map.remove(1), is(nullValue()));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void holdManyPendingEntries() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int i = 0; i < 300000; i++) {
+            map.put(i, i);
+        }
+        assertThat(map.size(), is(300000));
+        // acknowledgements arrive out of order
+        for (int i = 0; i < 300000; i += 2) {
+            assertThat(map.remove(i), is(i));
+        }
+        for (int i = 0; i < 300000; i++) {
+            assertThat(map.get(i), is(i % 2 == 0 ? null : i));
+        }
+        assertThat(map.size(), is(150000));
+    }
+
+    @Test
+    public void behaveLikeAHashMap() {
+        IntObjectMap<Integer> map = new IntObjectMap<>(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(1000) - 500;
+            if (random.nextBoolean()) {
+                assertThat(map.put(key, i), is(expected.put(key, i)));
+            } else {
+                assertThat(map.remove(key), is(expected.remove(key)));
+            }
+            assertThat(map.size(), is(expected.size()));
+        }
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertThat(map.get(entry.getKey()), is(entry.getValue()));
+        }
+
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        Integer[] expectedKeys = expected.keySet().toArray(new Integer[0]);
+        Arrays.sort(expectedKeys);
+        assertThat(keys.length, is(expectedKeys.length));
+        for (int i = 0; i < keys.length; i++) {
+            assertThat(keys[i], is((int) expectedKeys[i]));
+        }
+    }
+}
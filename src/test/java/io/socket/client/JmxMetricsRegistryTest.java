@@ -0,0 +1,109 @@
+package io.socket.client;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.net.URI;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class JmxMetricsRegistryTest {
+
+    @Test
+    public void recordPercentilesInPowerOfTwoBuckets() {
+        JmxMetricsRegistry.Buckets buckets = new JmxMetricsRegistry.Buckets();
+        for (int i = 1; i <= 100; i++) {
+            buckets.record(i);
+        }
+        JmxMetricsRegistry.Histogram histogram = buckets.snapshot();
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(histogram.getMean(), is(50L));
+        assertThat(histogram.getP50(), is(63L));
+        assertThat(histogram.getP90(), is(100L));
+        assertThat(histogram.getMax(), is(100L));
+    }
+
+    @Test
+    public void recordZeroAndNegativeDurations() {
+        JmxMetricsRegistry.Buckets buckets = new JmxMetricsRegistry.Buckets();
+        buckets.record(0);
+        buckets.record(-5);
+        JmxMetricsRegistry.Histogram histogram = buckets.snapshot();
+        assertThat(histogram.getCount(), is(2L));
+        assertThat(histogram.getP99(), is(0L));
+    }
+
+    @Test
+    public void exposeAnMXBeanPerSource() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        JmxMetricsRegistry registry = new JmxMetricsRegistry(server);
+        Source source = new Source("/foo");
+
+        MetricsRegistry.Recorder recorder = registry.register(source);
+        recorder.packetIn(10);
+        recorder.packetIn(5);
+        recorder.ackLatency(1000);
+
+        Set<ObjectName> names = server.queryNames(new ObjectName(JmxMetricsRegistry.DOMAIN + ":type=Socket,*"), null);
+        assertThat(names.size(), is(1));
+        ObjectName name = names.iterator().next();
+        assertThat(name.getKeyProperty("nsp"), is("\"/foo\""));
+        assertThat((Long) server.getAttribute(name, "PacketsIn"), is(2L));
+        assertThat((Long) server.getAttribute(name, "BytesIn"), is(15L));
+        assertThat((Integer) server.getAttribute(name, "PendingAcks"), is(3));
+        CompositeData latency = (CompositeData) server.getAttribute(name, "AckLatency");
+        assertThat(latency, is(notNullValue()));
+        assertThat((Long) latency.get("count"), is(1L));
+
+        registry.unregister(source);
+        assertThat(server.isRegistered(name), is(false));
+    }
+
+    private static class Source implements MetricsRegistry.Source {
+
+        private final String nsp;
+
+        Source(String nsp) {
+            this.nsp = nsp;
+        }
+
+        @Override
+        public URI uri() {
+            return URI.create("http://localhost:3000");
+        }
+
+        @Override
+        public String namespace() {
+            return this.nsp;
+        }
+
+        @Override
+        public int packetBufferDepth() {
+            return 0;
+        }
+
+        @Override
+        public int sendBufferDepth() {
+            return 0;
+        }
+
+        @Override
+        public int receiveBufferDepth() {
+            return 0;
+        }
+
+        @Override
+        public int pendingAcks() {
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package io.socket.client;
+
+import io.socket.emitter.Emitter;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class ListenerDispatcherTest {
+
+    private ExecutorService executor;
+
+    @After
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void callListenersOneAtATimePerSocket() throws InterruptedException {
+        executor = Executors.newFixedThreadPool(4);
+        ListenerDispatcher dispatcher = new ListenerDispatcher(null, executor, Socket.ListenerOrdering.PER_SOCKET, 0);
+        final List<Integer> values = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1000);
+
+        for (int i = 0; i < 1000; i++) {
+            final int value = i;
+            dispatcher.dispatch(i % 2 == 0 ? "a" : "b", new Runnable() {
+                @Override
+                public void run() {
+                    maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()));
+                    values.add(value);
+                    running.decrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+
+        assertThat(maxRunning.get(), is(1));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(values.get(i), is(i));
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void callListenersOfDifferentEventsInParallel() throws InterruptedException {
+        executor = Executors.newFixedThreadPool(2);
+        ListenerDispatcher dispatcher = new ListenerDispatcher(null, executor, Socket.ListenerOrdering.PER_EVENT, 0);
+        final CountDownLatch fast = new CountDownLatch(1);
+        final BlockingQueue<String> values = new LinkedBlockingQueue<>();
+
+        dispatcher.dispatch("slow", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    fast.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                values.offer("slow");
+            }
+        });
+        dispatcher.dispatch("fast", new Runnable() {
+            @Override
+            public void run() {
+                values.offer("fast");
+                fast.countDown();
+            }
+        });
+
+        assertThat(values.take(), is("fast"));
+        assertThat(values.take(), is("slow"));
+    }
+
+    @Test(timeout = 5000)
+    public void callReservedListenersBetweenTheEventsPerEvent() throws InterruptedException {
+        executor = Executors.newFixedThreadPool(4);
+        ListenerDispatcher dispatcher = new ListenerDispatcher(null, executor, Socket.ListenerOrdering.PER_EVENT, 0);
+        final CountDownLatch slow = new CountDownLatch(1);
+        final BlockingQueue<String> values = new LinkedBlockingQueue<>();
+
+        dispatcher.dispatch("slow", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    slow.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                values.offer("slow");
+            }
+        });
+        dispatcher.dispatchReserved("disconnect", new Runnable() {
+            @Override
+            public void run() {
+                values.offer("disconnect");
+            }
+        });
+        dispatcher.dispatch("fast", new Runnable() {
+            @Override
+            public void run() {
+                values.offer("fast");
+            }
+        });
+
+        // the reserved event waits for the slow listener, and the later events wait for the reserved event
+        assertThat(values.poll(100, TimeUnit.MILLISECONDS), is(nullValue()));
+        slow.countDown();
+        assertThat(values.take(), is("slow"));
+        assertThat(values.take(), is("disconnect"));
+        assertThat(values.take(), is("fast"));
+    }
+
+    @Test(timeout = 5000)
+    public void releaseTheIdleMailboxesOfTheEventsWithoutListeners() throws InterruptedException {
+        executor = Executors.newSingleThreadExecutor();
+        Manager manager = new Manager(URI.create("http://localhost:1"), null);
+        Socket socket = new Socket(manager, "/", null);
+        socket.on("listened", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {}
+        });
+        ListenerDispatcher dispatcher = new ListenerDispatcher(socket, executor, Socket.ListenerOrdering.PER_EVENT, 0);
+        final BlockingQueue<String> values = new LinkedBlockingQueue<>();
+
+        for (final String event : new String[] {"listened", "other"}) {
+            dispatcher.dispatch(event, new Runnable() {
+                @Override
+                public void run() {
+                    values.offer(event);
+                }
+            });
+        }
+        assertThat(values.take(), is("listened"));
+        assertThat(values.take(), is("other"));
+        // the mailboxes run one after the other on the single thread of the executor
+        while (dispatcher.eventMailboxes.containsKey("other")) {
+            Thread.sleep(10);
+        }
+        assertThat(dispatcher.eventMailboxes.containsKey("listened"), is(true));
+
+        socket.off("listened");
+        dispatcher.release("listened");
+        assertThat(dispatcher.eventMailboxes.isEmpty(), is(true));
+    }
+
+    @Test
+    public void measureTheListeners() {
+        ListenerDispatcher dispatcher = new ListenerDispatcher(null, null, null, 10);
+
+        dispatcher.dispatch("slow", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {}
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch("fast", new Runnable() {
+                @Override
+                public void run() {}
+            });
+        }
+        dispatcher.dispatchReserved(null, new Runnable() {
+            @Override
+            public void run() {}
+        });
+
+        Socket.ListenerStats slow = dispatcher.stats().get("slow");
+        assertThat(slow.count(), is(1L));
+        assertThat(slow.slowCount(), is(1L));
+        assertThat(slow.maxTime(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(20L));
+        Socket.ListenerStats fast = dispatcher.stats().get("fast");
+        assertThat(fast.count(), is(3L));
+        assertThat(fast.slowCount(), is(0L));
+        assertThat(dispatcher.stats().size(), is(2));
+    }
+
+    @Test(timeout = 5000)
+    public void callListenersOnTheSharedExecutorWithAnOrdering() throws InterruptedException {
+        Manager.Options opts = new Manager.Options();
+        assertThat(ListenerDispatcher.create(null, opts), is(nullValue()));
+
+        opts.listenerOrdering = Socket.ListenerOrdering.PER_SOCKET;
+        ListenerDispatcher dispatcher = ListenerDispatcher.create(null, opts);
+        final BlockingQueue<Thread> threads = new LinkedBlockingQueue<>();
+        dispatcher.dispatch("event", new Runnable() {
+            @Override
+            public void run() {
+                threads.offer(Thread.currentThread());
+            }
+        });
+
+        assertThat(threads.take() != Thread.currentThread(), is(true));
+    }
+
+    @Test(timeout = 5000)
+    public void runTasksOnTheDefaultExecutor() throws InterruptedException {
+        executor = ListenerExecutors.newDefault();
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+}
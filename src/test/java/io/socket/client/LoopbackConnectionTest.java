@@ -0,0 +1,1045 @@
+package io.socket.client;
+
+import io.socket.emitter.Emitter;
+import io.socket.logging.Allocations;
+import io.socket.loopback.LoopbackServer;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs the main scenarios against the in-JVM {@link LoopbackServer}, which does not need Node.js.
+ */
+@RunWith(JUnit4.class)
+public class LoopbackConnectionTest {
+
+    private static final int TIMEOUT = 7000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LoopbackServer server;
+    private Socket socket;
+
+    @Before
+    public void startServer() {
+        server = new LoopbackServer();
+    }
+
+    @After
+    public void stopServer() {
+        if (socket != null) {
+            socket.disconnect();
+        }
+        server.close();
+    }
+
+    private Socket client(String nsp) {
+        return IO.socket(URI.create("http://localhost" + nsp), server.createOptions());
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void receiveMessageOnConnection() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.on("message", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+
+        assertThat((String) values.take(), is("hello client"));
+        assertThat(socket.connected(), is(true));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void echo() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        final byte[] buf = "asdfasdf".getBytes(Charset.forName("UTF-8"));
+        socket = client("/");
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+        socket.emit("echo", "hello");
+        socket.emit("echo", buf);
+
+        assertThat((String) values.take(), is("hello"));
+        assertThat((byte[]) values.take(), is(buf));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void acknowledgeFromServer() throws Exception {
+        socket = client("/");
+        socket.connect();
+
+        Object[] args = socket.emitWithAck("ack", 5, TimeUnit.SECONDS, 1, "2").get();
+        assertThat((Integer) args[0], is(1));
+        assertThat((String) args[1], is("2"));
+
+        args = socket.emitWithAck("getAckBinary", 5, TimeUnit.SECONDS, "").get();
+        assertThat(new String((byte[]) args[0], Charset.forName("UTF-8")), is("huehue"));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void acknowledgeToServer() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.on("ack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                ((Ack) args[0]).call(5);
+            }
+        });
+        socket.on("ackBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+        socket.emit("callAck");
+
+        assertThat((Integer) values.take(), is(5));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void acknowledgeFromTypedListener() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.onTyped("ack", String.class, new TypedListener<String>() {
+            @Override
+            public void call(String arg, Ack ack) {
+                ack.call(5);
+            }
+        });
+        socket.on("ackBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+        socket.emit("callAck");
+
+        assertThat((Integer) values.take(), is(5));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void typedListenerOfSeveralArguments() throws InterruptedException {
+        final BlockingQueue<Object[]> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.onTyped("echoBack", new Class<?>[] {Long.class, String.class}, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args);
+            }
+        });
+        socket.connect();
+        socket.emit("echo", 1, "a", true);
+
+        assertThat(values.take(), is(new Object[] {1L, "a"}));
+    }
+
+    @Test
+    public void bindTheArgumentsOnlyWithoutOtherListeners() {
+        socket = client("/");
+        assertThat(socket.argumentTypes("echoBack"), is(nullValue()));
+
+        TypedListener<Long> first = new TypedListener<Long>() {
+            @Override
+            public void call(Long arg, Ack ack) {}
+        };
+        socket.onTyped("echoBack", Long.class, first);
+        socket.onTyped("echoBack", new Class<?>[] {Integer.class, String.class}, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {}
+        });
+        assertThat(socket.argumentTypes("echoBack"), is(new Class<?>[] {null, null, String.class}));
+
+        socket.offTyped("echoBack", first);
+        assertThat(socket.argumentTypes("echoBack"), is(new Class<?>[] {null, Integer.class, String.class}));
+
+        Emitter.Listener untyped = new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {}
+        };
+        socket.on("echoBack", untyped);
+        assertThat(socket.argumentTypes("echoBack"), is(nullValue()));
+        socket.off("echoBack", untyped);
+        socket.onAnyIncoming(untyped);
+        assertThat(socket.argumentTypes("echoBack"), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectTypedListenerNotSupportedByTheCodec() {
+        socket = client("/");
+        socket.onTyped("echoBack", Thread.class, new TypedListener<Thread>() {
+            @Override
+            public void call(Thread arg, Ack ack) {}
+        });
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void removeTheTypedAndBatchedListenersOfTheEvent() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.onTyped("echoBack", Integer.class, new TypedListener<Integer>() {
+            @Override
+            public void call(Integer arg, Ack ack) {
+                values.offer("typed");
+            }
+        });
+        socket.onBatch("echoBack", 10, 0, new BatchListener() {
+            @Override
+            public void call(List<Object[]> events) {
+                values.offer("batch");
+            }
+        });
+        socket.off("echoBack");
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+        socket.emit("echo", 1);
+
+        assertThat((Integer) values.take(), is(1));
+        assertThat(values.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void dropOldestWhileConnected() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        IO.Options opts = server.createOptions();
+        opts.maxBufferedPackets = 3;
+        opts.overflowPolicy = Socket.OverflowPolicy.DROP_OLDEST;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        this.connect(values);
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        this.block(blocked);
+        // the emissions wait for the event loop
+        for (int i = 0; i < 5; i++) {
+            socket.emit("echo", i);
+        }
+        assertThat(socket.bufferedPackets(), is(5));
+        blocked.countDown();
+
+        assertThat((Integer) values.take(), is(2));
+        assertThat((Integer) values.take(), is(3));
+        assertThat((Integer) values.take(), is(4));
+        assertThat(values.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+        assertThat(socket.droppedPackets(), is(2L));
+        assertThat(socket.bufferedPackets(), is(0));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void failTheAckOfTheNewestPacket() throws Exception {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        IO.Options opts = server.createOptions();
+        opts.maxBufferedPackets = 1;
+        opts.overflowPolicy = Socket.OverflowPolicy.DROP_NEWEST;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        this.connect(values);
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        this.block(blocked);
+        AckFuture first = socket.emitWithAck("ack", 10, TimeUnit.SECONDS, "a");
+        AckFuture second = socket.emitWithAck("ack", 10, TimeUnit.SECONDS, "b");
+        try {
+            second.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(SocketIOException.class));
+        } finally {
+            blocked.countDown();
+        }
+
+        assertThat(first.get()[0], is((Object) "a"));
+        assertThat(socket.droppedPackets(), is(1L));
+        assertThat(socket.pendingAcks(), is(0));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void writeThePacketsOfATickTogether() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        this.connect(values);
+
+        socket.io().loop.exec(new Runnable() {
+            @Override
+            public void run() {
+                socket.io().engine.on(io.socket.engineio.client.Socket.EVENT_FLUSH, new Emitter.Listener() {
+                    @Override
+                    public void call(Object... args) {
+                        values.offer("flush");
+                    }
+                });
+                for (int i = 0; i < 5; i++) {
+                    socket.emit("echo", i);
+                }
+            }
+        });
+
+        // the first packet right away, and the 4 others in a single write once the transport drains
+        assertThat(values.take(), is((Object) "flush"));
+        int flushes = 1;
+        for (int i = 0; i < 5; i++) {
+            Object value = values.take();
+            if ("flush".equals(value)) {
+                flushes++;
+                value = values.take();
+            }
+            assertThat(value, is((Object) i));
+        }
+        assertThat(values.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+        assertThat(flushes, is(2));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void disabledLogsDoNotAllocateOnTheHotPath() throws InterruptedException {
+        assumeTrue(Allocations.isSupported());
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.on("tick", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {}
+        });
+        this.connect(values);
+
+        final Packet<JSONArray> packet = new Packet<>(Parser.EVENT, new JSONArray().put("tick").put(1));
+        packet.nsp = "/";
+        socket.io().loop.exec(new Runnable() {
+            @Override
+            public void run() {
+                // each packet is encoded and written to the engine by the emit itself
+                socket.io().maxBatchSize(1);
+                values.offer(Allocations.perCall(new Runnable() {
+                    @Override
+                    public void run() {
+                        socket.emit("noop", 1);
+                    }
+                }, 10000));
+                values.offer(Allocations.perCall(new Runnable() {
+                    @Override
+                    public void run() {
+                        socket.io().ondecoded(packet);
+                    }
+                }, 10000));
+            }
+        });
+
+        // about 750 and 110 bytes, while formatting a single message like "writing packet {0}" takes 500 more
+        assertThat((Long) values.take(), lessThan(1024L));
+        assertThat((Long) values.take(), lessThan(384L));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void releaseTheEmissionWhichFails() throws Exception {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.onAnyOutgoing(new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                throw new IllegalStateException("rejected");
+            }
+        });
+        this.connect(values);
+
+        AckFuture future = socket.emitWithAck("ack", 10, TimeUnit.SECONDS, "a");
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(SocketIOException.class));
+        }
+        this.sync(values);
+        assertThat(socket.bufferedPackets(), is(0));
+        assertThat(socket.pendingAcks(), is(0));
+    }
+
+    private void connect(final BlockingQueue<Object> values) throws InterruptedException {
+        socket.once(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer("connect");
+            }
+        });
+        socket.connect();
+        assertThat(values.take(), is((Object) "connect"));
+    }
+
+    private void block(final CountDownLatch latch) {
+        socket.io().loop.exec(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    private void sync(final BlockingQueue<Object> values) throws InterruptedException {
+        socket.io().loop.exec(new Runnable() {
+            @Override
+            public void run() {
+                values.offer("sync");
+            }
+        });
+        assertThat(values.take(), is((Object) "sync"));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void recordMetrics() throws Exception {
+        MBeanServer mbeans = MBeanServerFactory.newMBeanServer();
+        IO.Options opts = server.createOptions();
+        opts.metricsRegistry = new JmxMetricsRegistry(mbeans);
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        socket.connect();
+
+        socket.emitWithAck("ack", 5, TimeUnit.SECONDS, 1, "2").get();
+
+        ObjectName manager = mbeans.queryNames(new ObjectName(JmxMetricsRegistry.DOMAIN + ":type=Manager,*"), null).iterator().next();
+        ObjectName nsp = mbeans.queryNames(new ObjectName(JmxMetricsRegistry.DOMAIN + ":type=Socket,*"), null).iterator().next();
+        // CONNECT, message and ack
+        assertThat((Long) mbeans.getAttribute(nsp, "PacketsIn"), is(3L));
+        // CONNECT and event
+        assertThat((Long) mbeans.getAttribute(nsp, "PacketsOut"), is(2L));
+        assertThat((Long) mbeans.getAttribute(nsp, "BytesOut") > 0, is(true));
+        assertThat((Integer) mbeans.getAttribute(nsp, "PendingAcks"), is(0));
+        assertThat((Long) ((CompositeData) mbeans.getAttribute(nsp, "AckLatency")).get("count"), is(1L));
+        assertThat((Long) ((CompositeData) mbeans.getAttribute(nsp, "EncodeTime")).get("count"), is(2L));
+        assertThat((Long) mbeans.getAttribute(manager, "PacketsIn"), is(3L));
+
+        socket.disconnect();
+        socket = null;
+        while (!mbeans.queryNames(new ObjectName(JmxMetricsRegistry.DOMAIN + ":*"), null).isEmpty()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void broadcast() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        Socket other = client("/");
+        other.on("broadcastBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        other.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                socket.connect();
+                socket.emit("broadcast", "hi");
+            }
+        });
+        other.connect();
+
+        assertThat((String) values.take(), is("hi"));
+        other.disconnect();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void receiveConnectError() throws InterruptedException, JSONException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/no");
+        socket.on(Socket.EVENT_CONNECT_ERROR, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+
+        JSONObject error = (JSONObject) values.take();
+        assertThat(error.getString("message"), is("auth failed"));
+        assertThat(error.getJSONObject("data").getInt("c"), is(3));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void disconnectFromServer() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.on(Socket.EVENT_DISCONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+        socket.emit("requestDisconnect");
+
+        assertThat((String) values.take(), is("io server disconnect"));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void failPendingAcksOnDisconnect() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        this.emitUnacknowledged(values, "requestDisconnect");
+
+        assertThat((String) values.take(), is("timeout"));
+        assertThat((String) values.take(), is("disconnect 0"));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void retainPendingAcksOnDisconnect() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        IO.Options opts = server.createOptions();
+        opts.ackPolicy = Socket.AckPolicy.RETAIN;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        // the transport is closed by the server
+        this.emitUnacknowledged(values, "dropThenAck");
+
+        assertThat((String) values.take(), is("disconnect 2"));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void failRetainedAcksOnceClosed() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        IO.Options opts = server.createOptions();
+        opts.ackPolicy = Socket.AckPolicy.RETAIN;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        this.emitUnacknowledged(values, "requestDisconnect");
+
+        assertThat((String) values.take(), is("timeout"));
+        assertThat((String) values.take(), is("disconnect 0"));
+    }
+
+    private void emitUnacknowledged(final BlockingQueue<Object> values, String disconnectEvent) {
+        socket.on(Socket.EVENT_DISCONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer("disconnect " + socket.pendingAcks());
+            }
+        });
+        // the server does not acknowledge these events
+        socket.emit("message", new Object[] {"a"}, new Ack() {
+            @Override
+            public void call(Object... args) {
+                values.offer("ack");
+            }
+        });
+        socket.emit("message", new Object[] {"b"}, new AckWithTimeout(60000) {
+            @Override
+            public void onSuccess(Object... args) {
+                values.offer("ack");
+            }
+
+            @Override
+            public void onTimeout() {
+                values.offer("timeout");
+            }
+        });
+        socket.connect();
+        socket.emit(disconnectEvent);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void replayTheJournaledEventsAfterARestart() throws Exception {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        File dir = folder.newFolder();
+        OutboundJournal journal = new OutboundJournal(dir);
+        IO.Options opts = server.createOptions();
+        opts.journal = journal;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        socket.on("message", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+        // the server echoes this event without acknowledging it
+        socket.emit("message", new Object[] {"unacknowledged"}, new Ack() {
+            @Override
+            public void call(Object... args) {}
+        });
+        socket.emitWithAck("ack", 5, TimeUnit.SECONDS, "acknowledged").get();
+
+        assertThat((String) values.take(), is("hello client"));
+        assertThat((String) values.take(), is("unacknowledged"));
+        assertThat(journal.pendingEvents(), is(1));
+        socket.disconnect();
+        journal.close();
+
+        journal = new OutboundJournal(dir);
+        opts.journal = journal;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        socket.on("message", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        assertThat(socket.bufferedPackets(), is(1));
+        socket.connect();
+
+        assertThat((String) values.take(), is("hello client"));
+        assertThat((String) values.take(), is("unacknowledged"));
+        journal.close();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void keepTheAckOfTheJournaledEventsOnDisconnect() throws Exception {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        OutboundJournal journal = new OutboundJournal(folder.newFolder());
+        IO.Options opts = server.createOptions();
+        opts.journal = journal;
+        opts.reconnectionDelay = 100;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        socket.on(Socket.EVENT_DISCONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer("disconnect");
+            }
+        });
+        socket.connect();
+        socket.emit("dropThenAck", new Object[] {"a"}, new AckWithTimeout(5000) {
+            @Override
+            public void onSuccess(Object... args) {
+                values.offer("ack " + args[0]);
+            }
+
+            @Override
+            public void onTimeout() {
+                values.offer("timeout");
+            }
+        });
+
+        assertThat((String) values.take(), is("disconnect"));
+        assertThat((String) values.take(), is("ack a"));
+        assertThat(journal.pendingEvents(), is(0));
+        assertThat(socket.pendingAcks(), is(0));
+        // called once
+        assertThat(values.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+        socket.disconnect();
+        journal.close();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void deliverTheEventsByBatches() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.onBatch("echoBack", 3, 200, new BatchListener() {
+            @Override
+            public void call(List<Object[]> events) {
+                StringBuilder batch = new StringBuilder();
+                for (Object[] args : events) {
+                    batch.append(args[0]);
+                }
+                values.offer(batch.toString());
+            }
+        });
+        socket.connect();
+        for (int i = 0; i < 4; i++) {
+            socket.emit("echo", i);
+        }
+
+        assertThat((String) values.take(), is("012"));
+        // the last one once the delay is elapsed
+        assertThat((String) values.take(), is("3"));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void completeTheSubscribersOnceClosed() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.events("echoBack").subscribe(new EventPublisher.Subscriber() {
+            @Override
+            public void onSubscribe(EventPublisher.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Object[] args) {
+                values.offer(args[0]);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                values.offer(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                values.offer("complete");
+            }
+        });
+        socket.connect();
+        socket.emit("echo", "a");
+
+        assertThat((String) values.take(), is("a"));
+        socket.disconnect();
+        assertThat((String) values.take(), is("complete"));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void conflateTheStatesBufferedWhileDisconnected() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0] + ":" + args[1]);
+            }
+        });
+
+        for (int i = 0; i < 100; i++) {
+            socket.emitLatest("echo", "a", "a", i);
+            socket.emitLatest("echo", "b", "b", -i);
+        }
+        socket.emit("echo", "end", 0);
+        // the emissions are counted until the event loop merges them
+        final CountDownLatch merged = new CountDownLatch(1);
+        socket.io().loop.nextTick(new Runnable() {
+            @Override
+            public void run() {
+                merged.countDown();
+            }
+        });
+        merged.await();
+        assertThat(socket.bufferedPackets(), is(3));
+        socket.connect();
+
+        assertThat((String) values.take(), is("a:99"));
+        assertThat((String) values.take(), is("b:-99"));
+        assertThat((String) values.take(), is("end:0"));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void conflateTheStatesQueuedForTheEncoder() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        IO.Options opts = server.createOptions();
+        opts.maxBatchDelay = 50;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0] + ":" + args[1]);
+            }
+        });
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                // the packets wait for the batch delay before being encoded
+                for (int i = 0; i < 100; i++) {
+                    socket.emitLatest("echo", "a", "a", i);
+                }
+                socket.emit("echo", "end", 0);
+                socket.emitLatest("echo", "a", "a", 100);
+            }
+        });
+        socket.connect();
+
+        assertThat((String) values.take(), is("a:100"));
+        assertThat((String) values.take(), is("end:0"));
+
+        // once sent, the next version gets its own packet
+        socket.emitLatest("echo", "a", "a", 101);
+        assertThat((String) values.take(), is("a:101"));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void dropVolatileEventsWhileDisconnected() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                socket.emitVolatile("echo", "connected");
+            }
+        });
+
+        socket.emitVolatile("echo", "disconnected");
+        assertThat(socket.bufferedPackets(), is(0));
+        socket.connect();
+
+        assertThat((String) values.take(), is("connected"));
+        assertThat(socket.droppedVolatilePackets(), is(1L));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void dropVolatileEventsAboveTheThreshold() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        IO.Options opts = server.createOptions();
+        opts.volatileThreshold = 2;
+        opts.maxBatchDelay = 50;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                // the packets wait for the batch delay before being encoded
+                for (int i = 0; i < 5; i++) {
+                    socket.emitVolatile("echo", i);
+                }
+                socket.emit("echo", "end");
+            }
+        });
+        socket.connect();
+
+        assertThat((Integer) values.take(), is(0));
+        assertThat((Integer) values.take(), is(1));
+        assertThat((String) values.take(), is("end"));
+        assertThat(socket.droppedVolatilePackets(), is(3L));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void routePacketsToTheSocketOfTheirNamespace() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        final BlockingQueue<Object> packets = new LinkedBlockingQueue<>();
+        final Manager manager = new Manager(URI.create("http://localhost"), server.createOptions());
+        manager.on(Manager.EVENT_PACKET, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                packets.offer(((Packet<?>) args[0]).nsp);
+            }
+        });
+        socket = manager.socket("/");
+        final Socket foo = manager.socket("/foo");
+        for (final String nsp : new String[] {"/", "/foo"}) {
+            Socket s = manager.socket(nsp);
+            s.on("echoBack", new Emitter.Listener() {
+                @Override
+                public void call(Object... args) {
+                    values.offer(nsp + " echoBack " + args[0]);
+                }
+            });
+            s.on("roomBack", new Emitter.Listener() {
+                @Override
+                public void call(Object... args) {
+                    values.offer(nsp + " roomBack " + args[0]);
+                }
+            });
+        }
+        foo.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                socket.emit("echo", "a");
+                foo.emit("room", "b");
+            }
+        });
+        socket.connect();
+        foo.connect();
+
+        assertThat((String) values.take(), is("/ echoBack a"));
+        assertThat((String) values.take(), is("/foo roomBack b"));
+        assertThat(values.poll(100, TimeUnit.MILLISECONDS), is(nullValue()));
+        assertThat(packets.contains("/foo"), is(true));
+        foo.disconnect();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void runOnAnEventLoopGroup() throws Exception {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        EventLoopGroup group = new EventLoopGroup(2);
+        IO.Options opts = server.createOptions();
+        opts.eventLoopGroup = group;
+        socket = IO.socket(URI.create("http://localhost/"), opts);
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(Thread.currentThread().getName());
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+        socket.emit("echo", "hello");
+
+        assertThat(((String) values.take()).startsWith("socket.io-loop-"), is(true));
+        assertThat((String) values.take(), is("hello"));
+        Object[] args = socket.emitWithAck("ack", 5, TimeUnit.SECONDS, 1).get();
+        assertThat((Integer) args[0], is(1));
+
+        socket.disconnect();
+        socket = null;
+        group.shutdown();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void slowListenerDoesNotHoldTheOtherSockets() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        final CountDownLatch slow = new CountDownLatch(1);
+        ExecutorService executor = ListenerExecutors.newDefault();
+        IO.Options opts = server.createOptions();
+        opts.listenerExecutor = executor;
+        final Manager manager = new Manager(URI.create("http://localhost"), opts);
+        socket = manager.socket("/", opts);
+        final Socket foo = manager.socket("/foo", opts);
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                try {
+                    slow.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                values.offer("echoBack");
+            }
+        });
+        foo.on("roomBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer("roomBack");
+                slow.countDown();
+            }
+        });
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                socket.emit("echo", "a");
+                foo.connect();
+                foo.emit("room", "b");
+            }
+        });
+        socket.connect();
+
+        assertThat((String) values.take(), is("roomBack"));
+        assertThat((String) values.take(), is("echoBack"));
+        foo.disconnect();
+        executor.shutdown();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void keepTheOrderOfTheEventsEmittedByEachThread() throws Exception {
+        final int threads = 4;
+        final int emits = 250;
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/");
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0] + ":" + args[1]);
+            }
+        });
+        socket.connect();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < emits; i++) {
+                        socket.emit("echo", thread, i);
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+
+        int[] next = new int[threads];
+        for (int i = 0; i < threads * emits; i++) {
+            String[] value = ((String) values.take()).split(":");
+            int thread = Integer.parseInt(value[0]);
+            assertThat(Integer.parseInt(value[1]), is(next[thread]++));
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void recoverTheMissedEventsOnReconnection() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        IO.Options opts = server.createOptions();
+        opts.path = "/recovery";
+        opts.reconnectionDelay = 10;
+        socket = IO.socket(URI.create("http://localhost"), opts);
+        socket.on("welcome", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer("welcome " + args[0]);
+            }
+        });
+        socket.on("missed", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer("missed " + args[0]);
+            }
+        });
+        socket.connect();
+
+        assertThat((String) values.take(), is("welcome false"));
+        assertThat(socket.recovered(), is(false));
+
+        socket.emit("dropAndBroadcast", 42);
+
+        // the event broadcasted while disconnected is replayed before the new connection event
+        assertThat((String) values.take(), is("missed 42"));
+        assertThat((String) values.take(), is("welcome true"));
+        assertThat(socket.recovered(), is(true));
+    }
+}
@@ -0,0 +1,94 @@
+package io.socket.client;
+
+import io.socket.emitter.Emitter;
+import io.socket.parser.MsgPackParser;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class MsgPackConnectionTest extends Connection {
+
+    private Socket socket;
+
+    @Override
+    IO.Options createOptions() {
+        IO.Options opts = super.createOptions();
+        opts.encoder = new MsgPackParser.Encoder();
+        opts.decoder = new MsgPackParser.Decoder();
+        return opts;
+    }
+
+    @Override
+    String[] createEnv() {
+        return new String[] {"DEBUG=socket.io:*", "PORT=" + PORT, "PARSER=msgpack"};
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void echoEvent() throws InterruptedException, JSONException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client();
+        socket.on("echoBack", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                for (Object arg : args) {
+                    values.offer(arg);
+                }
+            }
+        });
+        socket.emit("echo", 1, 2.5, "3", new byte[] { 4 }, new JSONObject("{a: [5]}"));
+        socket.connect();
+
+        assertThat((Integer) values.take(), is(1));
+        assertThat((Double) values.take(), is(2.5));
+        assertThat((String) values.take(), is("3"));
+        assertThat((byte[]) values.take(), is(new byte[] { 4 }));
+        assertThat(((JSONObject) values.take()).getJSONArray("a").getInt(0), is(5));
+        socket.disconnect();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void receiveBinaryAck() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client();
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... objects) {
+                socket.emit("getAckBinary", "", new Ack() {
+                    @Override
+                    public void call(Object... args) {
+                        values.offer(args[0]);
+                    }
+                });
+            }
+        });
+        socket.connect();
+
+        assertThat((byte[]) values.take(), is("huehue".getBytes()));
+        socket.disconnect();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void receiveConnectError() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client("/no");
+        socket.on(Socket.EVENT_CONNECT_ERROR, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer(args[0]);
+            }
+        });
+        socket.connect();
+
+        assertThat(((JSONObject) values.take()).optString("message"), is("auth failed"));
+        socket.disconnect();
+    }
+}
@@ -0,0 +1,219 @@
+package io.socket.client;
+
+import io.socket.thread.EventThread;
+import org.json.JSONArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class OutboundBufferTest {
+
+    private static Manager.Options options(int maxPackets, long maxBytes, Socket.OverflowPolicy policy) {
+        Manager.Options opts = new Manager.Options();
+        opts.maxBufferedPackets = maxPackets;
+        opts.maxBufferedBytes = maxBytes;
+        opts.overflowPolicy = policy;
+        return opts;
+    }
+
+    @Test
+    public void unlimitedByDefault() {
+        OutboundBuffer buffer = new OutboundBuffer(null);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(buffer.reserve(buffer.sizeOf("event", new Object[] {"data"})), is(true));
+        }
+        assertThat(buffer.isWritable(), is(true));
+        assertThat(buffer.packets(), is(1000));
+        // byte accounting is disabled without a byte limit
+        assertThat(buffer.bytes(), is(0L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failWhenFull() {
+        OutboundBuffer buffer = new OutboundBuffer(options(2, 0, Socket.OverflowPolicy.FAIL));
+        buffer.reserve(0);
+        buffer.reserve(0);
+        assertThat(buffer.isWritable(), is(false));
+        buffer.reserve(0);
+    }
+
+    @Test
+    public void dropNewestWhenFull() {
+        OutboundBuffer buffer = new OutboundBuffer(options(0, 10, Socket.OverflowPolicy.DROP_NEWEST));
+        long size = buffer.sizeOf("event", new Object[] {new byte[4]});
+        assertThat(size, is(9L));
+        assertThat(buffer.reserve(size), is(true));
+        assertThat(buffer.reserve(size), is(false));
+        assertThat(buffer.droppedPackets(), is(1L));
+        assertThat(buffer.packets(), is(1));
+        assertThat(buffer.bytes(), is(9L));
+    }
+
+    @Test
+    public void acceptLargePacketWhenEmpty() {
+        OutboundBuffer buffer = new OutboundBuffer(options(0, 10, Socket.OverflowPolicy.FAIL));
+        assertThat(buffer.reserve(100), is(true));
+        assertThat(buffer.isWritable(), is(false));
+        assertThat(buffer.release(100, false), is(true));
+        assertThat(buffer.isWritable(), is(true));
+    }
+
+    @Test
+    public void waterMarks() {
+        Manager.Options opts = new Manager.Options();
+        opts.highWaterMark = 100;
+        opts.lowWaterMark = 50;
+        OutboundBuffer buffer = new OutboundBuffer(opts);
+
+        buffer.reserve(60);
+        assertThat(buffer.isWritable(), is(true));
+        buffer.reserve(60);
+        assertThat(buffer.isWritable(), is(false));
+        assertThat(buffer.release(60, false), is(false));
+        assertThat(buffer.isWritable(), is(false));
+        assertThat(buffer.release(60, false), is(true));
+        assertThat(buffer.isWritable(), is(true));
+    }
+
+    @Test(timeout = 5000)
+    public void blockUntilReleased() throws InterruptedException {
+        final OutboundBuffer buffer = new OutboundBuffer(options(1, 0, Socket.OverflowPolicy.BLOCK));
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        buffer.reserve(0);
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                values.offer(buffer.reserve(0));
+            }
+        }).start();
+
+        Thread.sleep(100);
+        assertThat(values.isEmpty(), is(true));
+        buffer.release(0, false);
+        assertThat(values.take(), is((Object) true));
+    }
+
+    @Test(timeout = 5000)
+    public void dropOldestWhileDisconnected() throws InterruptedException {
+        Manager.Options opts = options(3, 0, Socket.OverflowPolicy.DROP_OLDEST);
+        Manager manager = new Manager(URI.create("http://localhost:1"), opts);
+        final Socket socket = new Socket(manager, "/", opts);
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+
+        for (int i = 0; i < 5; i++) {
+            socket.emit("event", i);
+        }
+        EventThread.exec(new Runnable() {
+            @Override
+            public void run() {
+                values.offer(socket.bufferedPackets());
+            }
+        });
+
+        assertThat(values.take(), is((Object) 3));
+        assertThat(socket.droppedPackets(), is(2L));
+    }
+
+    @Test(timeout = 5000)
+    public void failTheAcksOfTheDroppedPackets() throws InterruptedException {
+        Manager.Options opts = options(0, 10, Socket.OverflowPolicy.DROP_OLDEST);
+        Manager manager = new Manager(URI.create("http://localhost:1"), opts);
+        final Socket socket = new Socket(manager, "/", opts);
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+
+        JSONArray data = new JSONArray().put("abcd");
+        AckFuture future = socket.emitWithAck("event", 10, TimeUnit.SECONDS, data);
+        this.sync(values);
+        // the size reserved by the emission is released, whatever the current data
+        data.put("efghij");
+
+        socket.emit("event", new Object[] {"a"}, new AckWithTimeout(10000) {
+            @Override
+            public void onSuccess(Object... args) {
+                values.offer("ack");
+            }
+
+            @Override
+            public void onTimeout() {
+                values.offer("dropped");
+            }
+        });
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(SocketIOException.class));
+        }
+        this.sync(values);
+        assertThat(socket.bufferedBytes(), is(6L));
+
+        socket.emit("event", "abcdefgh");
+        assertThat(values.take(), is((Object) "dropped"));
+        this.sync(values);
+        assertThat(socket.bufferedPackets(), is(1));
+        assertThat(socket.bufferedBytes(), is(13L));
+        assertThat(socket.droppedPackets(), is(2L));
+    }
+
+    @Test(timeout = 5000)
+    public void cancelTheAckBeforeConnecting() throws InterruptedException {
+        Manager.Options opts = options(0, 0, Socket.OverflowPolicy.FAIL);
+        Manager manager = new Manager(URI.create("http://localhost:1"), opts);
+        final Socket socket = new Socket(manager, "/", opts);
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+
+        // cancelled while the emission waits for the event loop
+        final CountDownLatch blocked = new CountDownLatch(1);
+        EventThread.exec(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        AckFuture future = socket.emitWithAck("event", 10, TimeUnit.SECONDS, "a");
+        assertThat(future.cancel(false), is(true));
+        blocked.countDown();
+        this.sync(values);
+        assertThat(socket.pendingAcks(), is(0));
+        assertThat(socket.bufferedPackets(), is(0));
+
+        // cancelled while the packet waits in the send buffer
+        future = socket.emitWithAck("event", 10, TimeUnit.SECONDS, "b");
+        this.sync(values);
+        assertThat(socket.pendingAcks(), is(1));
+        assertThat(socket.bufferedPackets(), is(1));
+        assertThat(future.cancel(false), is(true));
+        this.sync(values);
+        assertThat(socket.pendingAcks(), is(0));
+        assertThat(socket.bufferedPackets(), is(0));
+        assertThat(socket.droppedPackets(), is(0L));
+    }
+
+    private void sync(final BlockingQueue<Object> values) throws InterruptedException {
+        EventThread.exec(new Runnable() {
+            @Override
+            public void run() {
+                values.offer("sync");
+            }
+        });
+        assertThat(values.take(), is((Object) "sync"));
+    }
+}
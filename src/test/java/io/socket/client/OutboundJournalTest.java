@@ -0,0 +1,173 @@
+package io.socket.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class OutboundJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<byte[]> NONE = Collections.emptyList();
+
+    @Test
+    public void recoverTheEventsNotAcknowledged() throws IOException {
+        File dir = folder.newFolder();
+        byte[] buf = "asdf".getBytes(Charset.forName("UTF-8"));
+
+        OutboundJournal journal = new OutboundJournal(dir);
+        assertThat(journal.append("[\"a\"]", NONE), is(1L));
+        assertThat(journal.append("[\"b\",{\"_placeholder\":true,\"num\":0}]", Arrays.asList(buf)), is(2L));
+        assertThat(journal.append("[\"c\"]", NONE), is(3L));
+        journal.ack(1);
+        assertThat(journal.pendingEvents(), is(2));
+        journal.close();
+
+        journal = new OutboundJournal(dir);
+        List<OutboundJournal.Record> records = journal.attach("/");
+        assertThat(records.size(), is(2));
+        assertThat(records.get(0).seq, is(2L));
+        assertThat(records.get(0).json, is("[\"b\",{\"_placeholder\":true,\"num\":0}]"));
+        assertThat(records.get(0).attachments[0], is(buf));
+        assertThat(records.get(1).seq, is(3L));
+        assertThat(records.get(1).attachments.length, is(0));
+        // only returned once
+        assertThat(journal.attach("/").size(), is(0));
+        assertThat(journal.append("[\"d\"]", NONE), is(4L));
+        journal.close();
+    }
+
+    @Test
+    public void deleteTheAcknowledgedSegments() throws IOException {
+        File dir = folder.newFolder();
+
+        OutboundJournal journal = new OutboundJournal(dir, 64, OutboundJournal.FsyncPolicy.ALWAYS, 0);
+        long[] seqs = new long[10];
+        for (int i = 0; i < seqs.length; i++) {
+            seqs[i] = journal.append("[\"event\"," + i + "]", NONE);
+        }
+        assertThat(dir.list().length > 1, is(true));
+
+        // the later segments are kept until the first one is acknowledged
+        for (int i = seqs.length - 1; i >= 1; i--) {
+            journal.ack(seqs[i]);
+        }
+        assertThat(dir.list().length > 1, is(true));
+        journal.ack(seqs[0]);
+        assertThat(dir.list().length, is(1));
+        assertThat(journal.pendingEvents(), is(0));
+        journal.close();
+
+        journal = new OutboundJournal(dir, 64, OutboundJournal.FsyncPolicy.ALWAYS, 0);
+        assertThat(journal.attach("/").size(), is(0));
+        journal.append("[\"event\"]", NONE);
+        journal.close();
+
+        journal = new OutboundJournal(dir, 64, OutboundJournal.FsyncPolicy.ALWAYS, 0);
+        assertThat(journal.attach("/").size(), is(1));
+        journal.close();
+    }
+
+    @Test
+    public void writeLargeEventsToTheirOwnSegment() throws IOException {
+        File dir = folder.newFolder();
+        byte[] large = new byte[1000];
+
+        OutboundJournal journal = new OutboundJournal(dir, 64, OutboundJournal.FsyncPolicy.NEVER, 0);
+        journal.append("[\"a\"]", NONE);
+        journal.append("[\"b\",{\"_placeholder\":true,\"num\":0}]", Arrays.asList(large));
+        journal.close();
+
+        journal = new OutboundJournal(dir, 64, OutboundJournal.FsyncPolicy.NEVER, 0);
+        List<OutboundJournal.Record> records = journal.attach("/");
+        assertThat(records.size(), is(2));
+        assertThat(records.get(1).attachments[0].length, is(1000));
+        journal.close();
+    }
+
+    @Test
+    public void ignoreTheCorruptedRecords() throws IOException {
+        File dir = folder.newFolder();
+
+        OutboundJournal journal = new OutboundJournal(dir);
+        journal.append("[\"a\"]", NONE);
+        journal.append("[\"b\"]", NONE);
+        journal.close();
+
+        // size and checksum, then type, sequence, size and payload of the first record
+        int second = 8 + 1 + 8 + 4 + 5 + 4;
+        RandomAccessFile file = new RandomAccessFile(dir.listFiles()[0], "rw");
+        try {
+            file.seek(second + 8 + 1 + 8 + 4 + 2);
+            file.write('x');
+        } finally {
+            file.close();
+        }
+
+        journal = new OutboundJournal(dir);
+        List<OutboundJournal.Record> records = journal.attach("/");
+        assertThat(records.size(), is(1));
+        assertThat(records.get(0).json, is("[\"a\"]"));
+        // the corrupted record is overwritten
+        journal.append("[\"c\"]", NONE);
+        journal.close();
+
+        journal = new OutboundJournal(dir);
+        records = journal.attach("/");
+        assertThat(records.size(), is(2));
+        assertThat(records.get(1).json, is("[\"c\"]"));
+        assertThat(records.get(1).seq, is(2L));
+        journal.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectAnotherNamespace() throws IOException {
+        OutboundJournal journal = new OutboundJournal(folder.newFolder());
+        try {
+            journal.attach("/");
+            journal.attach("/foo");
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectAppendsOnceClosed() throws IOException {
+        OutboundJournal journal = new OutboundJournal(folder.newFolder());
+        journal.close();
+        journal.append("[\"a\"]", NONE);
+    }
+
+    @Test(timeout = 5000)
+    public void stopWritingThePagesOnceClosed() throws Exception {
+        File dir = folder.newFolder();
+        for (int i = 0; i < 10; i++) {
+            OutboundJournal journal = new OutboundJournal(dir, 1024, OutboundJournal.FsyncPolicy.PERIODIC, 1);
+            journal.attach("/");
+            journal.append("[\"a\"]", NONE);
+            Thread.sleep(5);
+            // unmaps the segments, which the timer must not write anymore
+            journal.close();
+        }
+        Thread.sleep(50);
+
+        OutboundJournal journal = new OutboundJournal(dir);
+        assertThat(journal.attach("/").size(), is(10));
+        journal.close();
+    }
+}
@@ -364,6 +364,62 @@ public class SocketTest extends Connection {
         assertThat(values.take(), is(true));
     }
 
+    @Test(timeout = TIMEOUT)
+    public void shouldCompleteTheFutureWithTheAcknowledgement() throws Exception {
+        socket = client();
+        socket.connect();
+
+        AckFuture future = socket.emitWithAck("ack", 10, TimeUnit.SECONDS, 1, "2");
+        Object[] args = future.get();
+
+        assertThat(args.length, is(2));
+        assertThat((Integer) args[0], is(1));
+        assertThat((String) args[1], is("2"));
+        assertThat(future.isDone(), is(true));
+        socket.disconnect();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void shouldFailTheFutureAfterTheGivenDelay() throws Exception {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client();
+        socket.connect();
+
+        socket.emitWithAck("unknown", 50, TimeUnit.MILLISECONDS).whenComplete(new AckFuture.Callback() {
+            @Override
+            public void call(Object[] args, Exception err) {
+                values.offer(err);
+            }
+        });
+
+        SocketIOException err = (SocketIOException) values.take();
+        assertThat(err.getMessage(), is("operation has timed out"));
+        socket.disconnect();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void shouldFailTheFutureUponDisconnection() throws Exception {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        socket = client();
+
+        socket.on(Socket.EVENT_CONNECT, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                socket.emitWithAck("unknown", 10, TimeUnit.SECONDS).whenComplete(new AckFuture.Callback() {
+                    @Override
+                    public void call(Object[] args, Exception err) {
+                        values.offer(err);
+                    }
+                });
+                socket.disconnect();
+            }
+        });
+        socket.connect();
+
+        SocketIOException err = (SocketIOException) values.take();
+        assertThat(err.getMessage(), is("socket has been disconnected"));
+    }
+
     @Test(timeout = TIMEOUT)
     public void shouldNotTimeoutWhenTheServerDoesAcknowledgeTheEvent() throws InterruptedException {
         final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
@@ -450,4 +506,65 @@ public class SocketTest extends Connection {
         assertThat((String) values.take(), is("2"));
         assertThat((byte[]) values.take(), is(new byte[] { 3 }));
     }
+
+    @Test(timeout = TIMEOUT)
+    public void shouldConvertTheArgumentForTypedListeners() throws InterruptedException, JSONException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+
+        socket = client();
+
+        socket.onTyped("echoBack", Long.class, new TypedListener<Long>() {
+            @Override
+            public void call(Long arg, Ack ack) {
+                values.offer(arg);
+            }
+        });
+        socket.onTyped("echoBack", JSONObject.class, new TypedListener<JSONObject>() {
+            @Override
+            public void call(JSONObject arg, Ack ack) {
+                values.offer(arg);
+            }
+        });
+
+        socket.emit("echo", 42);
+        socket.emit("echo", new JSONObject("{a: 1}"));
+        socket.connect();
+
+        assertThat((Long) values.take(), is(42L));
+        assertThat(((JSONObject) values.take()).getInt("a"), is(1));
+        assertThat(values.isEmpty(), is(true));
+        socket.disconnect();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void shouldRecoverTheConnectionState() throws InterruptedException {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        IO.Options opts = createOptions();
+        opts.path = "/recovery";
+        opts.reconnectionDelay = 100;
+        socket = client("/", opts);
+        socket.on("welcome", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer("welcome " + args[0]);
+            }
+        });
+        socket.on("missed", new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                values.offer("missed " + args[0]);
+            }
+        });
+        socket.connect();
+
+        assertThat((String) values.take(), is("welcome false"));
+        assertThat(socket.recovered(), is(false));
+
+        socket.emit("dropAndBroadcast", 42);
+
+        assertThat((String) values.take(), is("missed 42"));
+        assertThat((String) values.take(), is("welcome true"));
+        assertThat(socket.recovered(), is(true));
+        socket.disconnect();
+    }
 }
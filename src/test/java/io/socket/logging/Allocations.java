@@ -0,0 +1,56 @@
+package io.socket.logging;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures the bytes allocated by the current thread, to check that the disabled logs of a hot path
+ * allocate nothing.
+ */
+public final class Allocations {
+
+    private Allocations() {}
+
+    /**
+     * @return whether the JVM counts the bytes allocated by each thread.
+     */
+    public static boolean isSupported() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return false;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Runs the task {@code count} times with the {@code FINE} level disabled for the {@code io.socket}
+     * loggers, after as many calls to warm it up, so that the calls are neither interpreted nor resolved
+     * while measuring.
+     *
+     * @return the bytes allocated by the current thread per call, rounded down.
+     */
+    public static long perCall(Runnable task, int count) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        // held until the end, since the loggers are only weakly referenced by the LogManager
+        Logger logger = Logger.getLogger("io.socket");
+        Level level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        try {
+            for (int i = 0; i < count; i++) {
+                task.run();
+            }
+
+            long start = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < count; i++) {
+                task.run();
+            }
+            return (threads.getThreadAllocatedBytes(thread) - start) / count;
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package io.socket.logging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(JUnit4.class)
+public class LogTest {
+
+    private Logger logger;
+    private Log log;
+    private List<LogRecord> records;
+    private Handler handler;
+
+    @Before
+    public void setUp() {
+        this.logger = Logger.getLogger(LogTest.class.getName());
+        this.log = Log.getLog(LogTest.class);
+        this.records = new ArrayList<>();
+        this.handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                // like the formatters, while the caller is still on the stack
+                record.getSourceClassName();
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+        this.logger.addHandler(this.handler);
+        this.logger.setUseParentHandlers(false);
+    }
+
+    @After
+    public void tearDown() {
+        this.logger.removeHandler(this.handler);
+        this.logger.setUseParentHandlers(true);
+        this.logger.setLevel(null);
+    }
+
+    @Test
+    public void disabledLogsDoNotAllocate() {
+        assumeTrue(Allocations.isSupported());
+        this.logger.setLevel(Level.INFO);
+
+        final Object packet = new Object();
+        long allocated = Allocations.perCall(new Runnable() {
+            @Override
+            public void run() {
+                // ids beyond the Integer cache would be boxed by an eager call
+                logSome(packet, 100);
+            }
+        }, 1000);
+
+        // any allocation per call would take at least 16 bytes, beyond the few bytes of a compilation
+        assertThat(allocated / 400, is(0L));
+        assertThat(this.records.size(), is(0));
+    }
+
+    private void logSome(Object packet, int count) {
+        for (int i = 0; i < count; i++) {
+            this.log.fine("emitting packet with ack id {0,number,#}", 1000 + i);
+            this.log.fine("flushed {0,number,#} packets", 1000L + i);
+            this.log.fine("writing packet {0}", packet);
+            this.log.fine("encoded {0} as {1}", packet, packet);
+        }
+    }
+
+    @Test
+    public void formatWhenPublished() {
+        this.logger.setLevel(Level.FINE);
+        final int[] formatted = new int[1];
+        Object packet = new Object() {
+            @Override
+            public String toString() {
+                formatted[0]++;
+                return "packet";
+            }
+        };
+
+        this.log.fine("writing {0} with ack id {1,number,#}", packet, 1234);
+        assertThat(formatted[0], is(0));
+
+        LogRecord record = this.records.get(0);
+        assertThat(record.getLevel(), is(Level.FINE));
+        assertThat(record.getMessage(), is("writing {0} with ack id {1,number,#}"));
+        assertThat(new SimpleFormatter().formatMessage(record), is("writing packet with ack id 1234"));
+        assertThat(formatted[0], is(1));
+    }
+
+    @Test
+    public void keepTheThrowable() {
+        this.logger.setLevel(Level.FINE);
+        Exception e = new Exception("boom");
+
+        this.log.warning("unable to convert the argument of event ''{0}''", "foo", e);
+        this.log.fine("error", e);
+
+        assertThat(new SimpleFormatter().formatMessage(this.records.get(0)),
+                is("unable to convert the argument of event 'foo'"));
+        assertThat(this.records.get(0).getThrown(), is((Throwable) e));
+        assertThat(this.records.get(1).getParameters(), is(nullValue()));
+        assertThat(this.records.get(1).getThrown(), is((Throwable) e));
+    }
+
+    @Test
+    public void reportTheCallerAsSource() {
+        this.logger.setLevel(Level.FINE);
+
+        this.log.fine("open");
+
+        LogRecord record = this.records.get(0);
+        assertThat(record.getLoggerName(), is(LogTest.class.getName()));
+        assertThat(record.getSourceClassName(), is(LogTest.class.getName()));
+        assertThat(record.getSourceMethodName(), is("reportTheCallerAsSource"));
+    }
+}
@@ -0,0 +1,641 @@
+package io.socket.loopback;
+
+import io.socket.client.IO;
+import io.socket.engineio.client.transports.WebSocket;
+import io.socket.parser.IOParser;
+import io.socket.parser.Packet;
+import io.socket.parser.Parser;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-JVM stand-in for {@code src/test/resources/server.js}, speaking Engine.IO v4 / Socket.IO v5 over a
+ * loopback WebSocket, so that the client can be tested and benchmarked end to end without any socket
+ * nor Node.js process.
+ *
+ * <p>The server plugs into the client through the {@code webSocketFactory} option:</p>
+ *
+ * <pre>
+ * LoopbackServer server = new LoopbackServer();
+ * Socket socket = IO.socket(URI.create("http://localhost"), server.createOptions());
+ * </pre>
+ *
+ * <p>Only the WebSocket transport is supported. The packets are handled on a single server thread, in
+ * the order they were sent.</p>
+ */
+public class LoopbackServer implements okhttp3.WebSocket.Factory {
+
+    private static final Logger logger = Logger.getLogger(LoopbackServer.class.getName());
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Set<String> NAMESPACES = new HashSet<>(Arrays.asList(
+            "/", "/foo", "/timeout_socket", "/valid", "/asd", "/abc", "/no"));
+
+    private final String nsp;
+    private final long pingInterval;
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger ids = new AtomicInteger();
+
+    // only accessed by the server thread
+    private final Map<String, Map<String, ServerSocket>> namespaces = new HashMap<>();
+    // connection state recovery: the sessions of the disconnected sockets, and the broadcasted packets
+    private final Map<String, String> persistedSessions = new HashMap<>();
+    private final List<Broadcast> broadcasts = new ArrayList<>();
+    private int offsets;
+    // arguments of the dropThenAck events already received once
+    private final Set<Object> dropped = new HashSet<>();
+
+    public LoopbackServer() {
+        this("/");
+    }
+
+    /**
+     * @param nsp the namespace with the main handlers (echo, ack...), like the argument of server.js.
+     */
+    public LoopbackServer(String nsp) {
+        this(nsp, 2000);
+    }
+
+    public LoopbackServer(String nsp, long pingInterval) {
+        this.nsp = nsp;
+        this.pingInterval = pingInterval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "loopback-server");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return options connecting the client to this server.
+     */
+    public IO.Options createOptions() {
+        IO.Options opts = new IO.Options();
+        opts.forceNew = true;
+        opts.transports = new String[] {WebSocket.NAME};
+        opts.webSocketFactory = this;
+        return opts;
+    }
+
+    /**
+     * Closes all the connections and stops the server thread.
+     */
+    public void close() {
+        this.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Map<String, ServerSocket> sockets : namespaces.values()) {
+                    for (ServerSocket socket : new ArrayList<>(sockets.values())) {
+                        socket.session.close(1000, "server shutdown");
+                    }
+                }
+            }
+        });
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean submit(Runnable task) {
+        try {
+            this.executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // the server was closed, like a socket whose peer went away
+            return false;
+        }
+    }
+
+    @Override
+    public okhttp3.WebSocket newWebSocket(Request request, WebSocketListener listener) {
+        final Session session = new Session(request, listener);
+        this.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                session.open();
+            }
+        });
+        return session;
+    }
+
+    /**
+     * Emits an event to the sockets of the recovery server, with an offset, like
+     * {@code recovery.to(room).emit(event, args)}.
+     */
+    private void broadcast(String room, String event, Object... args) {
+        Broadcast broadcast = new Broadcast(String.valueOf(++this.offsets), room, event, args);
+        this.broadcasts.add(broadcast);
+        for (ServerSocket socket : new ArrayList<>(sockets("/").values())) {
+            if (socket.session.recovery && broadcast.matches(socket)) {
+                socket.emit(broadcast);
+            }
+        }
+    }
+
+    private Map<String, ServerSocket> sockets(String nsp) {
+        Map<String, ServerSocket> sockets = this.namespaces.get(nsp);
+        if (sockets == null) {
+            sockets = new LinkedHashMap<>();
+            this.namespaces.put(nsp, sockets);
+        }
+        return sockets;
+    }
+
+    /**
+     * An Engine.IO connection, which is also the client side of the loopback WebSocket.
+     */
+    private final class Session implements okhttp3.WebSocket {
+
+        private final Request request;
+        private final WebSocketListener listener;
+        private final String sid = "loopback" + ids.incrementAndGet();
+        // like the server with the connectionStateRecovery option in server.js
+        private final boolean recovery;
+        private final IOParser.Encoder encoder = new IOParser.Encoder();
+        private final IOParser.Decoder decoder = new IOParser.Decoder();
+        private final Map<String, ServerSocket> sockets = new HashMap<>();
+        private volatile boolean closed;
+        private ScheduledFuture<?> ping;
+        private final List<Runnable> closeTasks = new ArrayList<>();
+
+        Session(Request request, WebSocketListener listener) {
+            this.request = request;
+            this.listener = listener;
+            this.recovery = request.url().encodedPath().startsWith("/recovery");
+        }
+
+        void open() {
+            this.listener.onOpen(this, new Response.Builder()
+                    .request(this.request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(101)
+                    .message("Switching Protocols")
+                    .build());
+
+            JSONObject handshake = new JSONObject();
+            try {
+                handshake.put("sid", this.sid)
+                        .put("upgrades", new JSONArray())
+                        .put("pingInterval", pingInterval)
+                        .put("pingTimeout", 5000)
+                        .put("maxPayload", 1000000);
+            } catch (JSONException e) {
+                throw new AssertionError(e);
+            }
+            this.listener.onMessage(this, "0" + handshake);
+
+            this.decoder.onDecoded(new Parser.Decoder.Callback() {
+                @Override
+                public void call(Packet packet) {
+                    Session.this.onpacket(packet);
+                }
+            });
+            this.ping = executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    Session.this.listener.onMessage(Session.this, "2");
+                }
+            }, pingInterval, pingInterval, TimeUnit.MILLISECONDS);
+        }
+
+        void write(Packet<?> packet) {
+            if (this.closed) return;
+            this.encoder.encode(packet, new Parser.Encoder.Callback() {
+                @Override
+                public void call(Object[] frames) {
+                    for (Object frame : frames) {
+                        if (frame instanceof String) {
+                            Session.this.listener.onMessage(Session.this, "4" + frame);
+                        } else {
+                            Session.this.listener.onMessage(Session.this, ByteString.of((byte[]) frame));
+                        }
+                    }
+                }
+            });
+        }
+
+        private void onmessage(String text) {
+            switch (text.charAt(0)) {
+                case '1':
+                    this.onclose(1000, "");
+                    break;
+                case '4':
+                    this.decoder.add(text.substring(1));
+                    break;
+                default:
+                    // pong
+            }
+        }
+
+        private void onpacket(Packet<?> packet) {
+            if (packet.type == Parser.CONNECT) {
+                this.onconnect(packet);
+                return;
+            }
+            ServerSocket socket = this.sockets.get(packet.nsp);
+            if (socket == null) {
+                logger.fine("packet for an unknown namespace " + packet.nsp);
+                return;
+            }
+            switch (packet.type) {
+                case Parser.EVENT:
+                case Parser.BINARY_EVENT:
+                    socket.onevent((Object[]) packet.data, packet.id);
+                    break;
+                case Parser.ACK:
+                case Parser.BINARY_ACK:
+                    socket.onack((Object[]) packet.data, packet.id);
+                    break;
+                case Parser.DISCONNECT:
+                    socket.ondisconnect();
+                    break;
+                default:
+            }
+        }
+
+        private void onconnect(Packet<?> packet) {
+            String nsp = packet.nsp;
+            if ("/no".equals(nsp)) {
+                this.write(packet(Parser.CONNECT_ERROR, nsp, object(
+                        "message", "auth failed",
+                        "data", object("a", "b", "c", 3))));
+                return;
+            }
+            if (!NAMESPACES.contains(nsp) && !nsp.equals(LoopbackServer.this.nsp)) {
+                this.write(packet(Parser.CONNECT_ERROR, nsp, object("message", "Invalid namespace")));
+                return;
+            }
+
+            JSONObject auth = packet.data instanceof JSONObject ? (JSONObject) packet.data : new JSONObject();
+            if (this.recovery) {
+                this.onrecoverableconnect(nsp, auth);
+                return;
+            }
+            ServerSocket socket = new ServerSocket(this, nsp, this.sid + "#" + nsp, auth);
+            this.sockets.put(nsp, socket);
+            sockets(nsp).put(socket.id, socket);
+            this.write(packet(Parser.CONNECT, nsp, object("sid", socket.id)));
+            socket.onconnection();
+        }
+
+        private void onrecoverableconnect(String nsp, JSONObject auth) {
+            String pid = auth.optString("pid", null);
+            String offset = auth.optString("offset", null);
+            int index = -1;
+            for (int i = 0; offset != null && i < broadcasts.size(); i++) {
+                if (broadcasts.get(i).offset.equals(offset)) {
+                    index = i;
+                }
+            }
+            String id = pid != null && index >= 0 ? persistedSessions.remove(pid) : null;
+
+            ServerSocket socket;
+            if (id != null) {
+                socket = new ServerSocket(this, nsp, id, auth);
+                socket.pid = pid;
+                socket.recovered = true;
+            } else {
+                socket = new ServerSocket(this, nsp, this.sid + "#" + nsp, auth);
+                socket.pid = "pid" + ids.incrementAndGet();
+            }
+            this.sockets.put(nsp, socket);
+            sockets(nsp).put(socket.id, socket);
+            this.write(packet(Parser.CONNECT, nsp, object("sid", socket.id, "pid", socket.pid)));
+
+            if (socket.recovered) {
+                for (Broadcast broadcast : broadcasts.subList(index + 1, broadcasts.size())) {
+                    if (broadcast.matches(socket)) {
+                        socket.emit(broadcast);
+                    }
+                }
+            }
+            socket.onconnection();
+        }
+
+        private void onclose(int code, String reason) {
+            if (this.closed) return;
+            this.closed = true;
+            if (this.ping != null) {
+                this.ping.cancel(false);
+            }
+            for (ServerSocket socket : this.sockets.values()) {
+                sockets(socket.nsp).remove(socket.id);
+                if (socket.pid != null) {
+                    persistedSessions.put(socket.pid, socket.id);
+                }
+            }
+            this.sockets.clear();
+            for (Runnable task : this.closeTasks) {
+                task.run();
+            }
+            this.decoder.destroy();
+            this.listener.onClosed(this, code, reason);
+        }
+
+        @Override
+        public Request request() {
+            return this.request;
+        }
+
+        @Override
+        public long queueSize() {
+            return 0;
+        }
+
+        @Override
+        public boolean send(final String text) {
+            if (this.closed) return false;
+            return submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (!Session.this.closed) {
+                        Session.this.onmessage(text);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public boolean send(final ByteString bytes) {
+            if (this.closed) return false;
+            return submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (!Session.this.closed) {
+                        Session.this.decoder.add(bytes.toByteArray());
+                    }
+                }
+            });
+        }
+
+        @Override
+        public boolean close(final int code, final String reason) {
+            if (this.closed) return false;
+            return submit(new Runnable() {
+                @Override
+                public void run() {
+                    Session.this.onclose(code, reason);
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            this.close(1001, "");
+        }
+    }
+
+    /**
+     * A Socket.IO socket, with the handlers of server.js.
+     */
+    private final class ServerSocket {
+
+        private final Session session;
+        private final String nsp;
+        private final String id;
+        private final JSONObject auth;
+        private final Map<Integer, AckHandler> acks = new HashMap<>();
+        private int ackIds;
+        private String pid;
+        private boolean recovered;
+
+        ServerSocket(Session session, String nsp, String id, JSONObject auth) {
+            this.session = session;
+            this.nsp = nsp;
+            this.id = id;
+            this.auth = auth;
+        }
+
+        void onconnection() {
+            if (this.session.recovery) {
+                broadcast(this.id, "welcome", this.recovered);
+            } else if (this.nsp.equals(LoopbackServer.this.nsp)) {
+                this.emit("message", "hello client");
+            } else if ("/abc".equals(this.nsp)) {
+                this.emit("handshake", this.handshake());
+            }
+        }
+
+        void onevent(Object[] data, final int ackId) {
+            String event = String.valueOf(data[0]);
+            Object[] args = Arrays.copyOfRange(data, 1, data.length);
+
+            if (this.session.recovery) {
+                if ("dropAndBroadcast".equals(event)) {
+                    final Object arg = args.length > 0 ? args[0] : null;
+                    this.session.closeTasks.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            broadcast(null, "missed", arg);
+                        }
+                    });
+                    this.session.onclose(1000, "forced close");
+                }
+                return;
+            }
+            if ("/foo".equals(this.nsp) && "room".equals(event)) {
+                this.emit("roomBack", args);
+                return;
+            }
+            if (!this.nsp.equals(LoopbackServer.this.nsp)) return;
+
+            switch (event) {
+                case "message":
+                    this.emit("message", args);
+                    break;
+                case "echo":
+                    this.emit("echoBack", args);
+                    break;
+                case "ack":
+                    this.ack(ackId, args);
+                    break;
+                case "callAck":
+                    this.emitWithAck("ack", new AckHandler() {
+                        @Override
+                        public void call(Object[] args) {
+                            ServerSocket.this.emit("ackBack", args);
+                        }
+                    });
+                    break;
+                case "callAckBinary":
+                    this.emitWithAck("ack", new AckHandler() {
+                        @Override
+                        public void call(Object[] args) {
+                            ServerSocket.this.emit("ackBack", args.length > 0 ? args[0] : null);
+                        }
+                    });
+                    break;
+                case "dropThenAck":
+                    // the connection is lost before the first acknowledgement
+                    if (dropped.add(String.valueOf(args.length > 0 ? args[0] : null))) {
+                        this.session.onclose(1000, "forced close");
+                    } else {
+                        this.ack(ackId, args);
+                    }
+                    break;
+                case "getAckBinary":
+                    this.ack(ackId, "huehue".getBytes(UTF_8));
+                    break;
+                case "getAckDate":
+                    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+                    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    this.ack(ackId, format.format(new Date()));
+                    break;
+                case "broadcast":
+                    for (ServerSocket socket : sockets(this.nsp).values()) {
+                        if (socket != this) {
+                            socket.emit("broadcastBack", args);
+                        }
+                    }
+                    break;
+                case "room":
+                    this.emit("roomBack", args);
+                    break;
+                case "requestDisconnect":
+                    this.session.write(packet(Parser.DISCONNECT, this.nsp, null));
+                    this.ondisconnect();
+                    break;
+                case "getHandshake":
+                    this.ack(ackId, this.handshake());
+                    break;
+                default:
+            }
+        }
+
+        void onack(Object[] data, int id) {
+            AckHandler handler = this.acks.remove(id);
+            if (handler == null) return;
+            handler.call(data);
+        }
+
+        void ondisconnect() {
+            this.session.sockets.remove(this.nsp);
+            sockets(this.nsp).remove(this.id);
+        }
+
+        void emit(String event, Object... args) {
+            this.session.write(packet(Parser.EVENT, this.nsp, array(event, args)));
+        }
+
+        void emit(Broadcast broadcast) {
+            JSONArray data = array(broadcast.event, broadcast.args);
+            data.put(broadcast.offset);
+            this.session.write(packet(Parser.EVENT, this.nsp, data));
+        }
+
+        void emitWithAck(String event, AckHandler handler) {
+            int id = this.ackIds++;
+            this.acks.put(id, handler);
+            Packet<JSONArray> packet = packet(Parser.EVENT, this.nsp, array(event, new Object[0]));
+            packet.id = id;
+            this.session.write(packet);
+        }
+
+        void ack(int id, Object... args) {
+            if (id < 0) return;
+            Packet<JSONArray> packet = packet(Parser.ACK, this.nsp, array(null, args));
+            packet.id = id;
+            this.session.write(packet);
+        }
+
+        JSONObject handshake() {
+            HttpUrl url = this.session.request.url();
+            JSONObject query = new JSONObject();
+            JSONObject headers = new JSONObject();
+            try {
+                for (String name : url.queryParameterNames()) {
+                    query.put(name, url.queryParameter(name));
+                }
+                for (String name : this.session.request.headers().names()) {
+                    headers.put(name.toLowerCase(Locale.US), this.session.request.header(name));
+                }
+                return new JSONObject()
+                        .put("headers", headers)
+                        .put("time", new Date().toString())
+                        .put("address", "127.0.0.1")
+                        .put("xdomain", false)
+                        .put("secure", false)
+                        .put("issued", System.currentTimeMillis())
+                        .put("url", url.encodedPath() + (url.encodedQuery() != null ? "?" + url.encodedQuery() : ""))
+                        .put("query", query)
+                        .put("auth", this.auth);
+            } catch (JSONException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private interface AckHandler {
+        void call(Object[] args);
+    }
+
+    private static final class Broadcast {
+
+        private final String offset;
+        private final String room;
+        private final String event;
+        private final Object[] args;
+
+        Broadcast(String offset, String room, String event, Object[] args) {
+            this.offset = offset;
+            this.room = room;
+            this.event = event;
+            this.args = args;
+        }
+
+        boolean matches(ServerSocket socket) {
+            return this.room == null || this.room.equals(socket.id);
+        }
+    }
+
+    private static <T> Packet<T> packet(int type, String nsp, T data) {
+        Packet<T> packet = new Packet<>(type, data);
+        packet.nsp = nsp;
+        return packet;
+    }
+
+    private static JSONArray array(String event, Object[] args) {
+        JSONArray array = new JSONArray();
+        if (event != null) {
+            array.put(event);
+        }
+        for (Object arg : args) {
+            array.put(arg == null ? JSONObject.NULL : arg);
+        }
+        return array;
+    }
+
+    private static JSONObject object(Object... keyValues) {
+        JSONObject object = new JSONObject();
+        try {
+            for (int i = 0; i < keyValues.length; i += 2) {
+                object.put((String) keyValues[i], keyValues[i + 1]);
+            }
+        } catch (JSONException e) {
+            logger.log(Level.WARNING, "invalid object", e);
+        }
+        return object;
+    }
+}
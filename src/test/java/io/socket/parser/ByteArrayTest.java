@@ -8,9 +8,11 @@ import org.junit.runners.JUnit4;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
 @RunWith(JUnit4.class)
@@ -102,4 +104,95 @@ public class ByteArrayTest {
             }
         });
     }
+
+    @Test
+    public void encodeInASinglePass() throws JSONException {
+        final byte[] first = new byte[] { 1 };
+        final byte[] second = new byte[] { 2 };
+        final JSONArray data = new JSONArray("[\"a\", {\"b\": [null, 1.5]}]");
+        data.getJSONObject(1).getJSONArray("b").put(0, first);
+        data.put(second);
+
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, data);
+        packet.id = 1;
+        packet.nsp = "/";
+
+        encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] encodedPackets) {
+                assertThat(encodedPackets.length, is(3));
+                assertThat((String) encodedPackets[0], is(Parser.BINARY_EVENT + "2-1[\"a\",{\"b\":["
+                        + "{\"_placeholder\":true,\"num\":0},1.5]},{\"_placeholder\":true,\"num\":1}]"));
+                assertSame(first, encodedPackets[1]);
+                assertSame(second, encodedPackets[2]);
+            }
+        });
+
+        // the payload is not copied
+        assertSame(data, packet.data);
+        assertThat(packet.type, is(Parser.BINARY_EVENT));
+        assertThat(packet.attachments, is(2));
+    }
+
+    @Test
+    public void encodeMoreThanNineAttachments() {
+        JSONArray data = new JSONArray();
+        data.put("a");
+        for (int i = 0; i < 12; i++) {
+            data.put(new byte[] { (byte) i });
+        }
+
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, data);
+        packet.nsp = "/cool";
+
+        encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] encodedPackets) {
+                assertThat(encodedPackets.length, is(13));
+                assertThat(((String) encodedPackets[0]).substring(0, 10), is(Parser.BINARY_EVENT + "12-/cool,"));
+            }
+        });
+        Helpers.testBin(packet);
+    }
+
+    @Test
+    public void writeTheEncodedPayload() {
+        final byte[] buf = new byte[] { 1 };
+        EncodedPacket packet = new EncodedPacket("[\"a\",{\"_placeholder\":true,\"num\":0}]", asList(buf));
+        // ignored in favor of the encoded payload
+        packet.data = new JSONArray().put("b");
+        packet.id = 1;
+
+        encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] encodedPackets) {
+                assertThat(encodedPackets.length, is(2));
+                assertThat((String) encodedPackets[0],
+                        is(Parser.BINARY_EVENT + "1-1[\"a\",{\"_placeholder\":true,\"num\":0}]"));
+                assertSame(buf, encodedPackets[1]);
+            }
+        });
+    }
+
+    private static final class EncodedPacket extends Packet<JSONArray> implements EncodedPayload {
+
+        private final String json;
+        private final List<byte[]> buffers;
+
+        EncodedPacket(String json, List<byte[]> buffers) {
+            super(Parser.EVENT);
+            this.json = json;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public String json() {
+            return this.json;
+        }
+
+        @Override
+        public List<byte[]> attachments() {
+            return this.buffers;
+        }
+    }
 }
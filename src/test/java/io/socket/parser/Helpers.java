@@ -73,9 +73,9 @@ public class Helpers {
         assertThat(actual.nsp, is(expected.nsp));
         assertThat(actual.attachments, is(expected.attachments));
 
-        if (expected.data instanceof JSONArray) {
+        if (expected.data instanceof JSONArray || expected.data instanceof Object[]) {
             try {
-                JSONAssert.assertEquals((JSONArray)expected.data, (JSONArray)actual.data, true);
+                JSONAssert.assertEquals(toJSONArray(expected.data), toJSONArray(actual.data), true);
             } catch (JSONException e) {
                 throw new AssertionError(e);
             }
@@ -89,4 +89,18 @@ public class Helpers {
             assertThat(actual.data, is(expected.data));
         }
     }
+
+    /**
+     * The arguments of the events and acknowledgements are decoded into an array.
+     */
+    private static JSONArray toJSONArray(Object data) {
+        if (!(data instanceof Object[])) {
+            return (JSONArray) data;
+        }
+        JSONArray array = new JSONArray();
+        for (Object arg : (Object[]) data) {
+            array.put(arg != null ? arg : JSONObject.NULL);
+        }
+        return array;
+    }
 }
@@ -0,0 +1,148 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class MsgPackParserTest {
+
+    private static Parser.Encoder encoder = new MsgPackParser.Encoder();
+
+    @Test
+    public void encodeEvent() {
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, new JSONArray().put("a"));
+        packet.nsp = "/";
+
+        // same output as notepack.io for { type: 2, data: ["a"], nsp: "/" }
+        assertThat(encode(packet), is(bytes(
+                0x83,
+                0xa4, 't', 'y', 'p', 'e', 0x02,
+                0xa4, 'd', 'a', 't', 'a', 0x91, 0xa1, 'a',
+                0xa3, 'n', 's', 'p', 0xa1, '/')));
+    }
+
+    @Test
+    public void encodeConnection() {
+        Packet packet = new Packet(Parser.CONNECT);
+        packet.nsp = "/woot";
+        test(packet);
+    }
+
+    @Test
+    public void encodeEventWithAck() throws JSONException {
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT);
+        packet.data = new JSONArray("[\"a\", 1, -1, 300, -300, 70000, 5000000000, 1.5, true, null, {\"b\": [\"c\"]}]");
+        packet.nsp = "/test";
+        packet.id = 123;
+        test(packet);
+    }
+
+    @Test
+    public void encodeBinaryEvent() throws JSONException {
+        JSONArray data = new JSONArray("[\"a\", {\"b\": {}}]");
+        data.put(new byte[] {1, 2, 3});
+        data.getJSONObject(1).getJSONObject("b").put("c", new byte[300]);
+
+        Packet<JSONArray> packet = new Packet<>(Parser.BINARY_EVENT, data);
+        packet.nsp = "/";
+
+        Packet decoded = decode(encode(packet));
+        assertThat(decoded.type, is(Parser.EVENT));
+        JSONArray decodedData = (JSONArray) decoded.data;
+        assertThat((byte[]) decodedData.opt(2), is(new byte[] {1, 2, 3}));
+        assertThat((byte[]) decodedData.optJSONObject(1).optJSONObject("b").opt("c"), is(new byte[300]));
+    }
+
+    @Test
+    public void decodeNotepackExtensions() {
+        // { type: 2, data: [undefined, new Date(1000)], nsp: "/" }
+        Packet packet = decode(bytes(
+                0x83,
+                0xa4, 't', 'y', 'p', 'e', 0x02,
+                0xa4, 'd', 'a', 't', 'a', 0x92,
+                0xd4, 0x00, 0x00,
+                0xd7, 0x00, 0, 0, 0, 0, 0, 0, 0x03, 0xe8,
+                0xa3, 'n', 's', 'p', 0xa1, '/'));
+
+        JSONArray data = (JSONArray) packet.data;
+        assertThat(data.isNull(0), is(true));
+        assertThat((String) data.opt(1), is("1970-01-01T00:00:01.000Z"));
+        assertThat(packet.id, is(-1));
+    }
+
+    @Test
+    public void decodeInError() {
+        // not a map
+        testDecodeError(bytes(0x91, 0x02));
+        // unknown type
+        testDecodeError(bytes(0x82, 0xa4, 't', 'y', 'p', 'e', 0x05, 0xa3, 'n', 's', 'p', 0xa1, '/'));
+        // missing namespace
+        testDecodeError(bytes(0x81, 0xa4, 't', 'y', 'p', 'e', 0x00));
+        // event without array
+        testDecodeError(bytes(0x83, 0xa4, 't', 'y', 'p', 'e', 0x02, 0xa4, 'd', 'a', 't', 'a', 0x80,
+                0xa3, 'n', 's', 'p', 0xa1, '/'));
+        // truncated frame
+        testDecodeError(bytes(0x83, 0xa4, 't', 'y'));
+
+        try {
+            new MsgPackParser.Decoder().add("2[\"a\"]");
+            fail();
+        } catch (DecodingException e) {}
+    }
+
+    private static void test(Packet packet) {
+        Helpers.assertPacket(packet, decode(encode(packet)));
+    }
+
+    private static void testDecodeError(byte[] data) {
+        try {
+            decode(data);
+            fail();
+        } catch (DecodingException e) {}
+    }
+
+    private static byte[] encode(Packet packet) {
+        final List<Object> frames = new ArrayList<>();
+        encoder.encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                for (Object frame : data) {
+                    frames.add(frame);
+                }
+            }
+        });
+        assertThat(frames.size(), is(1));
+        return (byte[]) frames.get(0);
+    }
+
+    private static Packet decode(byte[] data) {
+        final List<Packet> packets = new ArrayList<>();
+        Parser.Decoder decoder = new MsgPackParser.Decoder();
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+        decoder.add(data);
+        return packets.get(0);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,126 @@
+package io.socket.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+public class OrgJSONCodecTest {
+
+    private static JSONCodec codec = new OrgJSONCodec();
+
+    @Test
+    public void encode() throws JSONException {
+        JSONObject object = new JSONObject("{\"a\": [1, 2.5, \"b\\\"c\", null, true, {}], \"d\": {\"e\": -3}}");
+        object.put("f", 5000000000L);
+
+        StringBuilder out = new StringBuilder();
+        codec.encode(object, out, null);
+        assertThat(out.toString(), is(object.toString()));
+    }
+
+    @Test
+    public void encodeSpecialValues() throws JSONException {
+        JSONArray array = new JSONArray()
+                .put((Object) Double.NaN)
+                .put(Arrays.asList(1, "2"))
+                .put(new int[] {3, 4})
+                .put(Collections.singletonMap("5", 6))
+                .put(new byte[] {7});
+
+        StringBuilder out = new StringBuilder();
+        codec.encode(array, out, null);
+        assertThat(out.toString(), is("[null,[1,\"2\"],[3,4],{\"5\":6},[7]]"));
+    }
+
+    @Test
+    public void decodeRange() {
+        Object data = codec.decode("2/nsp,[\"a\",1]garbage", 6, 13);
+        assertThat(data.toString(), is("[\"a\",1]"));
+    }
+
+    @Test(expected = DecodingException.class)
+    public void decodeInvalidRange() {
+        codec.decode("2[\"a\",1]", 1, 4);
+    }
+
+    @Test
+    public void decodeArguments() throws JSONException {
+        byte[] first = new byte[] {1};
+        byte[] second = new byte[] {2};
+        String str = "5[\"a\",null,1,{\"b\":[{\"_placeholder\":true,\"num\":1}]},{\"_placeholder\":true,\"num\":0}]";
+        Object[] args = codec.decodeArguments(str, 1, str.length(), new byte[][] {first, second}, null);
+
+        assertThat(args.length, is(5));
+        assertThat(args[0], is((Object) "a"));
+        assertThat(args[1], is(nullValue()));
+        assertThat(args[2], is((Object) 1));
+        assertSame(second, ((JSONObject) args[3]).getJSONArray("b").get(0));
+        assertSame(first, args[4]);
+    }
+
+    @Test(expected = DecodingException.class)
+    public void decodeArgumentsWithAMissingAttachment() {
+        String str = "[{\"_placeholder\":true,\"num\":1}]";
+        codec.decodeArguments(str, 0, str.length(), new byte[][] {new byte[0]}, null);
+    }
+
+    @Test(expected = DecodingException.class)
+    public void decodeArgumentsOfAnObject() {
+        codec.decodeArguments("{}", 0, 2, null, null);
+    }
+
+    @Test
+    public void convert() throws JSONException {
+        JSONObject object = new JSONObject();
+        assertSame(object, codec.convert(object, JSONObject.class));
+        assertSame(object, codec.convert(object, Object.class));
+        assertThat(codec.convert(42, Long.class), is(42L));
+        assertThat(codec.convert(42, long.class), is(42L));
+        assertThat(codec.convert(1.5, Double.class), is(1.5));
+        assertThat(codec.convert(true, boolean.class), is(true));
+        assertThat(codec.convert("a", String.class), is("a"));
+        assertThat(codec.convert(JSONObject.NULL, String.class), is(nullValue()));
+        assertThat(codec.convert(null, JSONArray.class), is(nullValue()));
+
+        Map<?, ?> map = codec.convert(new JSONObject().put("sid", "a").put("pid", JSONObject.NULL), Map.class);
+        assertThat(map.get("sid"), is((Object) "a"));
+        assertThat(map.containsKey("pid"), is(true));
+        assertThat(map.get("pid"), is(nullValue()));
+    }
+
+    @Test
+    public void canConvert() {
+        assertThat(codec.canConvert(JSONObject.class), is(true));
+        assertThat(codec.canConvert(Object.class), is(true));
+        assertThat(codec.canConvert(CharSequence.class), is(true));
+        assertThat(codec.canConvert(Number.class), is(true));
+        assertThat(codec.canConvert(int.class), is(true));
+        assertThat(codec.canConvert(Float.class), is(true));
+        assertThat(codec.canConvert(byte[].class), is(true));
+        assertThat(codec.canConvert(char.class), is(false));
+        assertThat(codec.canConvert(OrgJSONCodecTest.class), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convertNullToPrimitive() {
+        codec.convert(JSONObject.NULL, int.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convertToUnsupportedType() {
+        codec.convert(new JSONObject(), String.class);
+    }
+}
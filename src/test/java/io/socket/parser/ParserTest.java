@@ -1,11 +1,22 @@
 package io.socket.parser;
 
+import io.socket.logging.Allocations;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
 @RunWith(JUnit4.class)
 public class ParserTest {
 
@@ -66,5 +77,156 @@ public class ParserTest {
         Helpers.testDecodeError(Parser.EVENT + "2{}");
         Helpers.testDecodeError(Parser.EVENT + "2[]");
         Helpers.testDecodeError(Parser.EVENT + "2[null]");
+        // empty packet
+        Helpers.testDecodeError("");
+        // Binary event with non numeric attachments
+        Helpers.testDecodeError(Parser.BINARY_EVENT + "1a-[\"a\"]");
+        // event with an id overflowing an integer
+        Helpers.testDecodeError(Parser.EVENT + "2147483648[\"a\"]");
+    }
+
+    @Test
+    public void decodeHeader() {
+        final List<Packet> packets = new ArrayList<>();
+        IOParser.Decoder decoder = new IOParser.Decoder();
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+
+        decoder.add(Parser.BINARY_ACK + "12-/woot,2147483647[]");
+        Packet pending = decoder.reconstructor.reconPack;
+        assertThat(pending.type, is(Parser.BINARY_ACK));
+        assertThat(pending.attachments, is(12));
+        assertThat(pending.nsp, is("/woot"));
+        assertThat(pending.id, is(Integer.MAX_VALUE));
+        decoder.destroy();
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+
+        decoder.add(Parser.ACK + "/woot,1[]");
+
+        decoder.add(Parser.EVENT + "/woot,[\"a\"]");
+        decoder.add(Parser.EVENT + "/woot,[\"b\"]");
+        assertSame(packets.get(0).nsp, packets.get(1).nsp);
+        assertSame(packets.get(1).nsp, packets.get(2).nsp);
+
+        decoder.add(Parser.EVENT + "[\"a\"]");
+        assertThat(packets.get(3).nsp, is("/"));
+        assertThat(packets.get(3).id, is(-1));
+    }
+
+    @Test
+    public void customCodec() {
+        final List<String> calls = new ArrayList<>();
+        JSONCodec codec = new JSONCodec() {
+            private final JSONCodec delegate = new OrgJSONCodec();
+
+            @Override
+            public void encode(Object data, StringBuilder out, List<byte[]> attachments) {
+                calls.add("encode");
+                delegate.encode(data, out, attachments);
+            }
+
+            @Override
+            public Object decode(String str, int start, int end) {
+                calls.add("decode " + str.substring(start, end));
+                return delegate.decode(str, start, end);
+            }
+
+            @Override
+            public Object[] decodeArguments(String str, int start, int end, byte[][] attachments,
+                                            Class<?>[] types) {
+                calls.add("decodeArguments " + str.substring(start, end));
+                return delegate.decodeArguments(str, start, end, attachments, types);
+            }
+
+            @Override
+            public boolean canConvert(Class<?> type) {
+                return delegate.canConvert(type);
+            }
+
+            @Override
+            public <T> T convert(Object value, Class<T> type) {
+                return delegate.convert(value, type);
+            }
+        };
+
+        Packet<JSONArray> packet = new Packet<>(Parser.EVENT, new JSONArray().put("a"));
+        packet.nsp = "/";
+        new IOParser.Encoder(codec).encode(packet, new Parser.Encoder.Callback() {
+            @Override
+            public void call(Object[] data) {
+                assertThat((String) data[0], is(Parser.EVENT + "[\"a\"]"));
+            }
+        });
+        new IOParser.Decoder(codec).add(Parser.EVENT + "/woot,1[\"b\"]");
+
+        new IOParser.Decoder(codec).add(Parser.CONNECT + "{\"sid\":\"c\"}");
+
+        assertThat(calls, is(Arrays.asList("encode", "decodeArguments [\"b\"]", "decode {\"sid\":\"c\"}")));
+    }
+
+    @Test
+    public void decodeWithTheArgumentTypes() {
+        final List<String> lookups = new ArrayList<>();
+        final List<Packet> packets = new ArrayList<>();
+        IOParser.Decoder decoder = new IOParser.Decoder();
+        decoder.setArgumentTypes(new IOParser.Decoder.ArgumentTypes() {
+            @Override
+            public Class<?>[] get(String nsp, String event) {
+                lookups.add(nsp + " " + event);
+                return new Class<?>[] {null, Long.class, Long.class};
+            }
+        });
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {
+                packets.add(packet);
+            }
+        });
+
+        decoder.add(Parser.EVENT + "/woot,1[ \"a\", 1, \"b\"]");
+        decoder.add(Parser.EVENT + "[\"c\\\"d\", 1]");
+        decoder.add(Parser.ACK + "2[1]");
+
+        assertThat(lookups, is(Arrays.asList("/woot a")));
+        assertThat((Object[]) packets.get(0).data, is(new Object[] {"a", 1L, "b"}));
+        assertThat((Object[]) packets.get(1).data, is(new Object[] {"c\"d", 1}));
+        assertThat((Object[]) packets.get(2).data, is(new Object[] {1}));
+    }
+
+    @Test
+    public void decodeWithoutAllocatingForTheDisabledLogs() {
+        assumeTrue(Allocations.isSupported());
+        final String str = Parser.EVENT + "[\"tick\",1]";
+        final JSONCodec codec = new OrgJSONCodec();
+        final IOParser.Decoder decoder = new IOParser.Decoder(codec);
+        decoder.onDecoded(new Parser.Decoder.Callback() {
+            @Override
+            public void call(Packet packet) {}
+        });
+
+        long data = Allocations.perCall(new Runnable() {
+            @Override
+            public void run() {
+                codec.decodeArguments(str, 1, str.length(), null, null);
+            }
+        }, 20000);
+        long packet = Allocations.perCall(new Runnable() {
+            @Override
+            public void run() {
+                decoder.add(str);
+            }
+        }, 20000);
+
+        // beyond its data, only the packet is allocated, while "decoded {0} as {1}" would be formatted into ~1 KB
+        assertThat(packet - data, lessThan(256L));
     }
 }
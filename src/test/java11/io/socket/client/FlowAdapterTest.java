@@ -0,0 +1,182 @@
+package io.socket.client;
+
+import io.socket.emitter.Emitter;
+import io.socket.loopback.LoopbackServer;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs against the Java 11 classes of the multi-release jar, see the java11 profile.
+ */
+@RunWith(JUnit4.class)
+public class FlowAdapterTest {
+
+    private static final int TIMEOUT = 7000;
+
+    private final Emitter emitter = new Emitter();
+    private final EventPublisher.Subscriptions subscriptions = new EventPublisher.Subscriptions();
+
+    private LoopbackServer server;
+    private Socket socket;
+
+    @After
+    public void stopServer() {
+        if (socket != null) {
+            socket.disconnect();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void honorTheDemand() {
+        RecordingSubscriber subscriber = this.subscribe(4, EventPublisher.Overflow.ERROR);
+        this.emit(3);
+        assertThat(subscriber.values.size(), is(0));
+
+        subscriber.subscription.request(2);
+        assertThat(subscriber.values.toString(), is("[0, 1]"));
+        subscriber.subscription.request(Long.MAX_VALUE);
+        this.emit(1);
+        assertThat(subscriber.values.toString(), is("[0, 1, 2, 3]"));
+        assertThat(subscriber.error, is(nullValue()));
+    }
+
+    @Test
+    public void stopListeningOnceCancelled() {
+        RecordingSubscriber subscriber = this.subscribe(2, EventPublisher.Overflow.ERROR);
+        assertThat(this.emitter.hasListeners("tick"), is(true));
+        subscriber.subscription.cancel();
+        assertThat(this.emitter.hasListeners("tick"), is(false));
+    }
+
+    @Test
+    public void signalTheErrors() {
+        RecordingSubscriber subscriber = this.subscribe(2, EventPublisher.Overflow.ERROR);
+        this.emit(3);
+        assertThat(subscriber.error, instanceOf(IllegalStateException.class));
+        assertThat(subscriber.completed, is(false));
+    }
+
+    @Test
+    public void signalTheCompletion() {
+        RecordingSubscriber subscriber = this.subscribe(2, EventPublisher.Overflow.ERROR);
+        this.subscriptions.complete(null);
+        assertThat(subscriber.completed, is(true));
+        assertThat(subscriber.error, is(nullValue()));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectNullSubscriber() {
+        Flow.Publisher<Object[]> publisher = new EventPublisher(this.emitter, "tick", 2,
+                EventPublisher.Overflow.ERROR, this.subscriptions).toFlow();
+        publisher.subscribe(null);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void receiveTheEventsOfASocket() throws InterruptedException {
+        server = new LoopbackServer();
+        socket = IO.socket(URI.create("http://localhost"), server.createOptions());
+
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        final BlockingQueue<Flow.Subscription> subscription = new LinkedBlockingQueue<>();
+        Flow.Publisher<Object[]> publisher = socket.events("echoBack").toFlow();
+        publisher.subscribe(new Flow.Subscriber<Object[]>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription.offer(s);
+                s.request(2);
+            }
+
+            @Override
+            public void onNext(Object[] args) {
+                values.offer(args[0]);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                values.offer(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                values.offer("complete");
+            }
+        });
+        socket.connect();
+        socket.emit("echo", 1);
+        socket.emit("echo", 2);
+        socket.emit("echo", 3);
+
+        assertThat(values.take(), is((Object) 1));
+        assertThat(values.take(), is((Object) 2));
+        // the third one stays buffered until it is requested
+        assertThat(values.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+
+        subscription.take().request(1);
+        assertThat(values.take(), is((Object) 3));
+
+        socket.close();
+        assertThat(values.take(), is((Object) "complete"));
+    }
+
+    private RecordingSubscriber subscribe(int bufferSize, EventPublisher.Overflow overflow) {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        Flow.Publisher<Object[]> publisher =
+                new EventPublisher(this.emitter, "tick", bufferSize, overflow, this.subscriptions).toFlow();
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+
+    private int next;
+
+    private void emit(int count) {
+        for (int i = 0; i < count; i++) {
+            this.emitter.emit("tick", this.next++);
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Object[]> {
+
+        final List<Object> values = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Object[] args) {
+            this.values.add(args[0]);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+    }
+}
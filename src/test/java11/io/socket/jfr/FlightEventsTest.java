@@ -0,0 +1,88 @@
+package io.socket.jfr;
+
+import io.socket.client.IO;
+import io.socket.client.Socket;
+import io.socket.emitter.Emitter;
+import io.socket.loopback.LoopbackServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs against the Java 11 version of {@link FlightEvents}, see the java11 profile.
+ */
+@RunWith(JUnit4.class)
+public class FlightEventsTest {
+
+    private static final int TIMEOUT = 7000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LoopbackServer server;
+    private Socket socket;
+
+    @Before
+    public void startServer() {
+        server = new LoopbackServer();
+    }
+
+    @After
+    public void stopServer() {
+        if (socket != null) {
+            socket.disconnect();
+        }
+        server.close();
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void recordEncodeAndDecodeEvents() throws Exception {
+        final BlockingQueue<Object> values = new LinkedBlockingQueue<>();
+        Path file = folder.newFile("recording.jfr").toPath();
+
+        try (Recording recording = new Recording()) {
+            recording.enable("io.socket.Encode");
+            recording.enable("io.socket.Decode");
+            recording.start();
+
+            socket = IO.socket(URI.create("http://localhost"), server.createOptions());
+            socket.on("echoBack", new Emitter.Listener() {
+                @Override
+                public void call(Object... args) {
+                    values.offer(args[0]);
+                }
+            });
+            socket.connect();
+            socket.emit("echo", "hello");
+            assertThat(values.take(), is((Object) "hello"));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<String> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            events.add(event.getEventType().getName() + " " + event.getString("eventName"));
+        }
+        // the in-JVM server also uses the parser, but the client encodes "echo" and decodes "echoBack"
+        assertThat(events, hasItems("io.socket.Encode echo", "io.socket.Decode echoBack"));
+    }
+}
@@ -10,9 +10,12 @@ if (process.env.SSL) {
   server = require('http').createServer();
 }
 
+var parser = process.env.PARSER === 'msgpack' ? require('socket.io-msgpack-parser') : undefined;
+
 var io = require('socket.io')(server, {
   pingInterval: 2000,
-  wsEngine: 'ws'
+  destroyUpgrade: false,
+  parser: parser
 });
 var port = process.env.PORT || 3000;
 var nsp = process.argv[2] || '/';
@@ -115,6 +118,28 @@ io.of(nsp).on('connection', function(socket) {
   });
 });
 
+// connection state recovery, on a separate server since it appends an offset to the broadcasted events
+var recovery = require('socket.io')(server, {
+  path: '/recovery',
+  pingInterval: 2000,
+  destroyUpgrade: false,
+  parser: parser,
+  connectionStateRecovery: {}
+});
+
+recovery.on('connection', function(socket) {
+  // a broadcast (unlike socket.emit) includes the offset needed to recover the session
+  recovery.to(socket.id).emit('welcome', socket.recovered);
+
+  socket.on('dropAndBroadcast', function(arg) {
+    socket.on('disconnect', function() {
+      // emitted while the client is disconnected, and replayed upon recovery
+      recovery.emit('missed', arg);
+    });
+    socket.conn.close();
+  });
+});
+
 
 function before(context, name, fn) {
   var method = context[name];